@@ -0,0 +1,16 @@
+package com.tianji.api.annotations;
+
+import com.tianji.api.config.UserCacheConfig;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.*;
+
+/**
+ * 开启用户信息的多级缓存，需要服务中已经配置了Redis
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Import(UserCacheConfig.class)
+public @interface EnableUserCache {
+}
@@ -0,0 +1,148 @@
+package com.tianji.api.cache;
+
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tianji.api.client.user.UserClient;
+import com.tianji.api.dto.user.UserDTO;
+import com.tianji.common.utils.CollUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.*;
+
+import static com.tianji.api.constants.UserCacheConstants.USER_CACHE_KEY_PREFIX;
+import static com.tianji.api.constants.UserCacheConstants.USER_CACHE_TTL;
+
+/**
+ * 用户信息的多级缓存：Caffeine -> Redis -> UserClient
+ * <p>
+ * 本地未命中的id先批量查Redis，仍未命中的合并为一次Feign调用，查询结果回写Redis和本地缓存。
+ * 用户信息变更时，由用户服务删除Redis缓存并广播，各服务清理本地缓存
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class UserCache {
+
+    private final Cache<Long, UserDTO> userCaches;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UserClient userClient;
+
+    public UserDTO queryUserById(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return queryUserMap(Collections.singleton(id)).get(id);
+    }
+
+    public List<UserDTO> queryUserByIds(Iterable<Long> ids) {
+        Map<Long, UserDTO> map = queryUserMap(ids);
+        if (map.isEmpty()) {
+            return CollUtils.emptyList();
+        }
+        // 按传入id的顺序返回，与UserClient保持一致
+        List<UserDTO> list = new ArrayList<>(map.size());
+        Set<Long> added = new HashSet<>(map.size());
+        for (Long id : ids) {
+            UserDTO user = map.get(id);
+            if (user != null && added.add(id)) {
+                list.add(user);
+            }
+        }
+        return list;
+    }
+
+    public Map<Long, UserDTO> queryUserMap(Iterable<Long> ids) {
+        if (ids == null) {
+            return CollUtils.emptyMap();
+        }
+        Set<Long> idSet = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                idSet.add(id);
+            }
+        }
+        if (idSet.isEmpty()) {
+            return CollUtils.emptyMap();
+        }
+        return userCaches.getAll(idSet, this::loadUsers);
+    }
+
+    /**
+     * 清理本地缓存
+     */
+    public void evict(Long id) {
+        userCaches.invalidate(id);
+    }
+
+    /**
+     * 本地缓存的命中统计
+     */
+    public CacheStats stats() {
+        return userCaches.stats();
+    }
+
+    private Map<Long, UserDTO> loadUsers(Iterable<? extends Long> ids) {
+        List<Long> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        Map<Long, UserDTO> result = new HashMap<>(idList.size());
+        // 1.批量查询Redis
+        List<Long> misses = new ArrayList<>();
+        List<String> jsons = readRedis(idList);
+        for (int i = 0; i < idList.size(); i++) {
+            String json = jsons == null ? null : jsons.get(i);
+            if (json == null) {
+                misses.add(idList.get(i));
+                continue;
+            }
+            result.put(idList.get(i), JSONUtil.toBean(json, UserDTO.class));
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
+        // 2.Redis未命中的，合并为一次远程调用
+        List<UserDTO> users = userClient.queryUserByIds(misses);
+        if (CollUtils.isEmpty(users)) {
+            // 用户不存在或用户服务降级，不做缓存
+            return result;
+        }
+        for (UserDTO user : users) {
+            result.put(user.getId(), user);
+        }
+        // 3.回写Redis
+        writeRedis(users);
+        return result;
+    }
+
+    private List<String> readRedis(List<Long> ids) {
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            keys.add(USER_CACHE_KEY_PREFIX + id);
+        }
+        try {
+            return stringRedisTemplate.opsForValue().multiGet(keys);
+        } catch (RuntimeException e) {
+            // Redis异常时降级为直接查询用户服务
+            log.error("查询用户Redis缓存异常", e);
+            return null;
+        }
+    }
+
+    private void writeRedis(List<UserDTO> users) {
+        long ttl = USER_CACHE_TTL.getSeconds();
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection src = (StringRedisConnection) connection;
+                for (UserDTO user : users) {
+                    src.setEx(USER_CACHE_KEY_PREFIX + user.getId(), ttl, JSONUtil.toJsonStr(user));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("写入用户Redis缓存异常", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.tianji.api.coalesce;
+
+import com.tianji.api.client.course.CourseClient;
+import com.tianji.api.dto.course.CourseFullInfoDTO;
+import com.tianji.api.dto.course.CourseSimpleInfoDTO;
+import com.tianji.common.utils.CollUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 合并并发的单个课程查询
+ * <p>
+ * 课程简单信息有批量接口，并发请求合并为一次批量查询；课程信息没有批量接口，只对相同课程的并发查询去重
+ */
+public class CourseClientCoalescer {
+
+    private final RequestCoalescer<Long, CourseSimpleInfoDTO> simpleInfoCoalescer;
+    private final SingleFlight<Long, CourseFullInfoDTO> courseInfoFlight;
+
+    public CourseClientCoalescer(CourseClient courseClient, Duration window, int maxBatchSize) {
+        this.simpleInfoCoalescer = new RequestCoalescer<>("课程简单信息", ids -> {
+            List<CourseSimpleInfoDTO> list = courseClient.getSimpleInfoList(ids);
+            if (CollUtils.isEmpty(list)) {
+                return CollUtils.emptyMap();
+            }
+            return list.stream().collect(Collectors.toMap(CourseSimpleInfoDTO::getId, Function.identity()));
+        }, window, maxBatchSize);
+        this.courseInfoFlight = new SingleFlight<>("课程信息",
+                id -> courseClient.getCourseInfoById(id, false, false), Duration.ofSeconds(5));
+    }
+
+    /**
+     * 根据id查询课程简单信息，并发请求合并为一次批量查询
+     */
+    public CourseSimpleInfoDTO getSimpleInfoById(Long id) {
+        return simpleInfoCoalescer.get(id);
+    }
+
+    /**
+     * 根据id查询课程信息，不包含目录和老师，相同课程的并发请求只远程调用一次
+     */
+    public CourseFullInfoDTO getCourseInfoById(Long id) {
+        return courseInfoFlight.get(id);
+    }
+}
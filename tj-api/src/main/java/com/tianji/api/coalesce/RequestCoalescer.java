@@ -0,0 +1,172 @@
+package com.tianji.api.coalesce;
+
+import com.tianji.common.exceptions.CommonException;
+import com.tianji.common.exceptions.RequestTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 请求合并工具
+ * <p>
+ * 把短时间内并发到达的单个key查询合并为一次批量查询，再把结果分发给各个等待的调用方：
+ * <ul>
+ *     <li>没有其它并发请求时直接查询，不等待合并窗口</li>
+ *     <li>有并发请求时，每个批次中第一个到达的线程作为执行者，等待一个很短的合并窗口后，在自己的线程中执行批量查询</li>
+ *     <li>窗口内相同的key只查询一次，批次达到上限时提前执行</li>
+ *     <li>批量查询在执行者线程中发起，UserContext、请求id等上下文都是执行者的，其它请求的上下文不会传递给批量查询</li>
+ *     <li>等待结果超过超时时间的请求抛出 {@link RequestTimeoutException}，不会一直阻塞</li>
+ * </ul>
+ * 批量查询一般直接调用FeignClient，远程调用失败时由FeignClient配置的fallback兜底，
+ * 批量结果中不存在的key返回null，与单个查询降级时的返回值一致。
+ * 由于使用执行者的上下文，只适合与当前登录用户无关的查询
+ *
+ * @param <K> 查询的key
+ * @param <V> 查询结果
+ */
+@Slf4j
+public class RequestCoalescer<K, V> {
+
+    private final String name;
+    private final Function<Collection<K>, Map<K, V>> batchLoader;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long timeoutNanos;
+
+    private final Object lock = new Object();
+    /**
+     * 正在收集请求的批次
+     */
+    private Batch<K, V> current;
+    /**
+     * 正在查询的请求数量，只在锁内修改
+     */
+    private int active;
+
+    public RequestCoalescer(String name, Function<Collection<K>, Map<K, V>> batchLoader,
+                            Duration window, int maxBatchSize) {
+        this(name, batchLoader, window, maxBatchSize, Duration.ofSeconds(5));
+    }
+
+    public RequestCoalescer(String name, Function<Collection<K>, Map<K, V>> batchLoader,
+                            Duration window, int maxBatchSize, Duration timeout) {
+        this.name = name;
+        this.batchLoader = batchLoader;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+        Batch<K, V> batch;
+        CompletableFuture<V> future;
+        boolean leader = false;
+        boolean contended;
+        // 1.加入当前批次，没有批次则创建，并成为该批次的执行者
+        synchronized (lock) {
+            active++;
+            contended = active > 1;
+            if (current == null) {
+                batch = new Batch<>();
+                leader = true;
+                if (contended) {
+                    // 有并发请求时才开放批次，等待其它请求加入
+                    current = batch;
+                }
+            } else {
+                batch = current;
+            }
+            future = batch.futures.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (batch == current && batch.futures.size() >= maxBatchSize) {
+                // 批次已满，不再接收新的请求，通知执行者立即执行
+                current = null;
+                batch.full.countDown();
+            }
+        }
+        try {
+            // 2.执行者等待合并窗口结束后执行批量查询，没有并发请求时直接执行
+            if (leader) {
+                if (contended) {
+                    batch.awaitWindow(windowNanos);
+                    synchronized (lock) {
+                        if (current == batch) {
+                            current = null;
+                        }
+                    }
+                }
+                execute(batch);
+            }
+            // 3.获取结果
+            return await(name, future, timeoutNanos);
+        } finally {
+            synchronized (lock) {
+                active--;
+            }
+        }
+    }
+
+    /**
+     * 等待查询结果，查询的异常原样抛出，超时抛出 {@link RequestTimeoutException}
+     */
+    static <V> V await(String name, CompletableFuture<V> future, long timeoutNanos) {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CommonException(name + "批量查询失败", cause);
+        } catch (TimeoutException e) {
+            throw new RequestTimeoutException(name + "批量查询超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommonException(name + "批量查询被中断", e);
+        }
+    }
+
+    private void execute(Batch<K, V> batch) {
+        Map<K, CompletableFuture<V>> futures = batch.futures;
+        try {
+            Map<K, V> result = batchLoader.apply(new ArrayList<>(futures.keySet()));
+            if (log.isDebugEnabled()) {
+                log.debug("{}合并{}个请求为1次批量查询", name, futures.size());
+            }
+            for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+                entry.getValue().complete(result == null ? null : result.get(entry.getKey()));
+            }
+        } catch (Throwable e) {
+            log.error("{}批量查询失败，合并的请求数量：{}", name, futures.size(), e);
+            futures.values().forEach(f -> f.completeExceptionally(e));
+        }
+    }
+
+    private static class Batch<K, V> {
+        /**
+         * 执行批量查询前只在锁内修改，执行时不再有写入，无需并发容器
+         */
+        private final Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+
+        void awaitWindow(long windowNanos) {
+            try {
+                full.await(windowNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
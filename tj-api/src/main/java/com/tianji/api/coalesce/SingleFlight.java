@@ -0,0 +1,66 @@
+package com.tianji.api.coalesce;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 相同key的并发查询去重
+ * <p>
+ * 适用于没有批量接口的查询，同一个key同时只有一次查询在执行：
+ * <ul>
+ *     <li>第一个到达的线程在自己的线程中执行查询，查询期间到达的相同key的请求等待并共享它的结果或异常</li>
+ *     <li>查询结束后立即移除，之后的请求重新查询，不做缓存</li>
+ *     <li>不同key的查询互不影响，不会像 {@link RequestCoalescer} 那样等待合并窗口</li>
+ *     <li>等待结果超过超时时间的请求抛出 {@link com.tianji.common.exceptions.RequestTimeoutException}</li>
+ * </ul>
+ * 与 {@link RequestCoalescer} 一样使用执行查询线程的上下文，只适合与当前登录用户无关的查询
+ *
+ * @param <K> 查询的key
+ * @param <V> 查询结果
+ */
+@Slf4j
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final Function<K, V> loader;
+    private final long timeoutNanos;
+    /**
+     * 正在执行的查询
+     */
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(String name, Function<K, V> loader, Duration timeout) {
+        this.name = name;
+        this.loader = loader;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+        // 1.已经有相同key的查询在执行，等待它的结果
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            log.debug("{}查询{}正在执行，等待结果", name, key);
+            return RequestCoalescer.await(name, running, timeoutNanos);
+        }
+        // 2.在当前线程中查询，结果分发给等待的请求
+        try {
+            V value = loader.apply(key);
+            future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.tianji.api.coalesce;
+
+import com.tianji.api.client.user.UserClient;
+import com.tianji.api.dto.user.UserDTO;
+import com.tianji.common.utils.CollUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 合并并发的单个用户查询
+ */
+public class UserClientCoalescer {
+
+    private final RequestCoalescer<Long, UserDTO> userCoalescer;
+
+    public UserClientCoalescer(UserClient userClient, Duration window, int maxBatchSize) {
+        this.userCoalescer = new RequestCoalescer<>("用户信息", ids -> {
+            List<UserDTO> list = userClient.queryUserByIds(ids);
+            if (CollUtils.isEmpty(list)) {
+                return CollUtils.emptyMap();
+            }
+            return list.stream().collect(Collectors.toMap(UserDTO::getId, Function.identity()));
+        }, window, maxBatchSize);
+    }
+
+    /**
+     * 根据id查询用户信息，并发请求合并为一次批量查询
+     */
+    public UserDTO queryUserById(Long id) {
+        return userCoalescer.get(id);
+    }
+}
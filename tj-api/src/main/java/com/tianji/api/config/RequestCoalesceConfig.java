@@ -0,0 +1,36 @@
+package com.tianji.api.config;
+
+import com.tianji.api.client.course.CourseClient;
+import com.tianji.api.client.user.UserClient;
+import com.tianji.api.coalesce.CourseClientCoalescer;
+import com.tianji.api.coalesce.UserClientCoalescer;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+
+public class RequestCoalesceConfig {
+    /**
+     * 合并窗口，窗口内到达的请求合并为一次查询
+     */
+    private static final Duration COALESCE_WINDOW = Duration.ofMillis(2);
+    /**
+     * 单批次最多合并的请求数量
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * 课程查询的请求合并工具
+     */
+    @Bean
+    public CourseClientCoalescer courseClientCoalescer(CourseClient courseClient){
+        return new CourseClientCoalescer(courseClient, COALESCE_WINDOW, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * 用户查询的请求合并工具
+     */
+    @Bean
+    public UserClientCoalescer userClientCoalescer(UserClient userClient){
+        return new UserClientCoalescer(userClient, COALESCE_WINDOW, MAX_BATCH_SIZE);
+    }
+}
@@ -0,0 +1,64 @@
+package com.tianji.api.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tianji.api.cache.UserCache;
+import com.tianji.api.client.user.UserClient;
+import com.tianji.api.dto.user.UserDTO;
+import com.tianji.common.utils.NumberUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static com.tianji.api.constants.UserCacheConstants.USER_CHANGE_CHANNEL;
+
+/**
+ * 用户信息缓存配置，通过 {@link com.tianji.api.annotations.EnableUserCache} 开启
+ */
+@Slf4j
+public class UserCacheConfig {
+    /**
+     * 用户信息的caffeine缓存
+     */
+    @Bean
+    public Cache<Long, UserDTO> userCaches(){
+        return Caffeine.newBuilder()
+                .initialCapacity(16)
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .recordStats() // 记录命中统计
+                .build();
+    }
+    /**
+     * 用户信息的缓存工具
+     */
+    @Bean
+    public UserCache userCache(
+            Cache<Long, UserDTO> userCaches, StringRedisTemplate stringRedisTemplate, UserClient userClient){
+        return new UserCache(userCaches, stringRedisTemplate, userClient);
+    }
+    /**
+     * 订阅用户信息变更广播，清理本地缓存
+     */
+    @Bean
+    public RedisMessageListenerContainer userCacheListenerContainer(
+            RedisConnectionFactory connectionFactory, UserCache userCache){
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            String userId = new String(message.getBody(), StandardCharsets.UTF_8);
+            if (!NumberUtils.isLong(userId)) {
+                log.warn("无效的用户缓存清理消息：{}", userId);
+                return;
+            }
+            userCache.evict(Long.valueOf(userId));
+        }, new ChannelTopic(USER_CHANGE_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,18 @@
+package com.tianji.api.constants;
+
+import java.time.Duration;
+
+public interface UserCacheConstants {
+    /**
+     * 用户信息的Redis缓存key前缀，后接用户id
+     */
+    String USER_CACHE_KEY_PREFIX = "user:cache:";
+    /**
+     * Redis缓存有效期
+     */
+    Duration USER_CACHE_TTL = Duration.ofMinutes(30);
+    /**
+     * 用户信息变更的广播频道，消息内容为用户id
+     */
+    String USER_CHANGE_CHANNEL = "user:cache:evict";
+}
@@ -0,0 +1,156 @@
+package com.tianji.api.coalesce;
+
+import com.tianji.common.exceptions.RequestTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    @Test
+    void testConcurrentRequestsAreCoalesced() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger loadedKeys = new AtomicInteger();
+        RequestCoalescer<Long, String> coalescer = new RequestCoalescer<>("test", ids -> {
+            calls.incrementAndGet();
+            loadedKeys.addAndGet(ids.size());
+            return toMap(ids);
+        }, Duration.ofMillis(50), 100);
+
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            long id = i % 4;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return coalescer.get(id);
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < threads; i++) {
+            assertEquals("v" + (i % 4), futures.get(i).get());
+        }
+        executor.shutdown();
+        // 相同的key在同一批次中只查询一次
+        assertTrue(calls.get() < threads, "calls: " + calls.get());
+        assertTrue(loadedKeys.get() < threads, "keys: " + loadedKeys.get());
+    }
+
+    @Test
+    void testFullBatchExecutesImmediately() {
+        RequestCoalescer<Long, String> coalescer =
+                new RequestCoalescer<>("test", RequestCoalescerTest::toMap, Duration.ofSeconds(10), 1);
+        long begin = System.nanoTime();
+        assertEquals("v1", coalescer.get(1L));
+        assertTrue(Duration.ofNanos(System.nanoTime() - begin).toSeconds() < 5);
+    }
+
+    @Test
+    void testMissingKeyAndFailure() {
+        RequestCoalescer<Long, String> empty =
+                new RequestCoalescer<>("test", ids -> new HashMap<>(), Duration.ofMillis(1), 10);
+        assertNull(empty.get(1L));
+
+        RequestCoalescer<Long, String> failing = new RequestCoalescer<>("test", ids -> {
+            throw new IllegalStateException("down");
+        }, Duration.ofMillis(1), 10);
+        assertThrows(IllegalStateException.class, () -> failing.get(1L));
+    }
+
+    @Test
+    void testUncontendedRequestSkipsWindow() {
+        RequestCoalescer<Long, String> coalescer =
+                new RequestCoalescer<>("test", RequestCoalescerTest::toMap, Duration.ofSeconds(10), 100);
+        long begin = System.nanoTime();
+        assertEquals("v1", coalescer.get(1L));
+        assertEquals("v2", coalescer.get(2L));
+        assertTrue(Duration.ofNanos(System.nanoTime() - begin).toSeconds() < 5);
+    }
+
+    @Test
+    void testErrorCompletesAllWaiters() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RequestCoalescer<Long, String> coalescer = new RequestCoalescer<>("test", ids -> {
+            if (ids.contains(1L)) {
+                // 第一个请求占住查询，后续请求进入同一批次
+                loading.countDown();
+                await(release);
+                return toMap(ids);
+            }
+            throw new AssertionError("boom");
+        }, Duration.ofMillis(100), 100, Duration.ofSeconds(5));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        Future<String> first = executor.submit(() -> coalescer.get(1L));
+        loading.await();
+        Future<String> second = executor.submit(() -> coalescer.get(2L));
+        Future<String> third = executor.submit(() -> coalescer.get(3L));
+        for (Future<String> f : List.of(second, third)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        release.countDown();
+        assertEquals("v1", first.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    void testFollowerTimesOut() throws Exception {
+        CountDownLatch loading = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        RequestCoalescer<Long, String> coalescer = new RequestCoalescer<>("test", ids -> {
+            loading.countDown();
+            await(release);
+            return toMap(ids);
+        }, Duration.ofMillis(500), 100, Duration.ofMillis(200));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        Future<String> first = executor.submit(() -> coalescer.get(1L));
+        while (loading.getCount() == 2) {
+            Thread.sleep(1);
+        }
+        // 第二个请求成为新批次的执行者，第三个请求在窗口内加入该批次，执行者阻塞时等待超时
+        Future<String> second = executor.submit(() -> coalescer.get(2L));
+        Thread.sleep(50);
+        Future<String> third = executor.submit(() -> coalescer.get(3L));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> third.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RequestTimeoutException);
+        release.countDown();
+        assertEquals("v1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("v2", second.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<Long, String> toMap(Collection<Long> ids) {
+        Map<Long, String> map = new HashMap<>(ids.size());
+        for (Long id : ids) {
+            map.put(id, "v" + id);
+        }
+        return map;
+    }
+}
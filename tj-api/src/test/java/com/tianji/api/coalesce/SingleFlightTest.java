@@ -0,0 +1,77 @@
+package com.tianji.api.coalesce;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentSameKeyLoadedOnce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", id -> {
+            calls.incrementAndGet();
+            await(release);
+            return "v" + id;
+        }, Duration.ofSeconds(5));
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> flight.get(1L)));
+        }
+        // 等待所有请求都到达后再返回查询结果
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<String> future : futures) {
+            assertEquals("v1", future.get());
+        }
+        executor.shutdown();
+        assertEquals(1, calls.get());
+
+        // 查询结束后不缓存结果
+        assertEquals("v1", flight.get(1L));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testFailureSharedWithWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", id -> {
+            await(release);
+            throw new IllegalStateException("boom");
+        }, Duration.ofSeconds(5));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> first = executor.submit(() -> flight.get(1L));
+        Future<String> second = executor.submit(() -> flight.get(1L));
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<String> future : List.of(first, second)) {
+            ExecutionException e = assertThrows(ExecutionException.class, future::get);
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -27,4 +27,9 @@ public class JwtConstants {
     public static final String LOCK_AUTH_PRIVILEGE_KEY = "lock:auth:privileges";
     /* 权限缓存 KEY  end */
 
+    /**
+     * 用户退出登录、refresh-token作废时，通知网关清理该用户已校验token缓存的频道，消息内容为用户id
+     */
+    public static final String TOKEN_EVICT_CHANNEL = "auth:token:evict";
+
 }
@@ -1,13 +1,23 @@
 package com.tianji.authsdk.gateway.config;
 
+import com.tianji.auth.common.constants.JwtConstants;
 import com.tianji.authsdk.gateway.util.AuthUtil;
 import com.tianji.authsdk.gateway.util.JwtSignerHolder;
+import com.tianji.authsdk.gateway.util.VerifiedTokenCache;
+import com.tianji.common.utils.NumberUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
+import java.nio.charset.StandardCharsets;
+
+@Slf4j
 @Configuration
 public class AuthAutoConfiguration {
 
@@ -18,7 +28,32 @@ public class AuthAutoConfiguration {
     }
 
     @Bean
-    public AuthUtil authUtil(JwtSignerHolder jwtSignerHolder, StringRedisTemplate stringRedisTemplate){
-        return new AuthUtil(jwtSignerHolder, stringRedisTemplate);
+    public VerifiedTokenCache verifiedTokenCache(){
+        return new VerifiedTokenCache();
+    }
+
+    @Bean
+    public AuthUtil authUtil(JwtSignerHolder jwtSignerHolder, StringRedisTemplate stringRedisTemplate,
+                             VerifiedTokenCache verifiedTokenCache){
+        return new AuthUtil(jwtSignerHolder, stringRedisTemplate, verifiedTokenCache);
+    }
+
+    /**
+     * 订阅token清理广播，用户退出登录后，清理各网关实例中该用户的token缓存
+     */
+    @Bean
+    public RedisMessageListenerContainer tokenEvictListenerContainer(
+            RedisConnectionFactory connectionFactory, VerifiedTokenCache verifiedTokenCache){
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            String userId = new String(message.getBody(), StandardCharsets.UTF_8);
+            if (!NumberUtils.isLong(userId)) {
+                log.warn("无效的token清理消息：{}", userId);
+                return;
+            }
+            verifiedTokenCache.evictUser(Long.valueOf(userId));
+        }, new ChannelTopic(JwtConstants.TOKEN_EVICT_CHANNEL));
+        return container;
     }
 }
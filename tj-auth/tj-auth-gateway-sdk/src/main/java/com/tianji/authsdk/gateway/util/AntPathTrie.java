@@ -0,0 +1,149 @@
+package com.tianji.authsdk.gateway.util;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的Ant风格路径匹配树
+ * <p>
+ * 按 / 把路径匹配符拆分为段，构建成前缀树，匹配时只沿着可能匹配的分支向下查找，
+ * 耗时与路径深度相关，与匹配符数量无关。匹配语义与 {@link AntPathMatcher} 保持一致，
+ * 多个匹配符都能匹配时，优先返回精确段，其次是通配段，最后是 ** 。
+ * <p>
+ * 构建完成后只读，可以安全地被多线程共享，需要更新时整体重建后替换引用即可
+ */
+public class AntPathTrie {
+    private static final String PATH_SEPARATOR = "/";
+    private static final String DOUBLE_WILDCARD = "**";
+
+    private final AntPathMatcher segmentMatcher = new AntPathMatcher();
+    /**
+     * 以 / 开头的匹配符
+     */
+    private final Node absoluteRoot = new Node();
+    /**
+     * 不以 / 开头的匹配符，例如 GET:/users/**
+     */
+    private final Node relativeRoot = new Node();
+
+    private AntPathTrie() {
+    }
+
+    public static AntPathTrie of(Collection<String> patterns) {
+        AntPathTrie trie = new AntPathTrie();
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                trie.add(pattern);
+            }
+        }
+        return trie;
+    }
+
+    private void add(String pattern) {
+        Node node = pattern.startsWith(PATH_SEPARATOR) ? absoluteRoot : relativeRoot;
+        for (String segment : tokenize(pattern)) {
+            node = node.child(segment);
+        }
+        node.pattern = pattern;
+    }
+
+    /**
+     * 查找与路径匹配的匹配符
+     *
+     * @param path 请求路径
+     * @return 匹配的匹配符，没有匹配时返回null
+     */
+    public String match(String path) {
+        Node root = path.startsWith(PATH_SEPARATOR) ? absoluteRoot : relativeRoot;
+        return match(root, tokenize(path), 0, path.endsWith(PATH_SEPARATOR));
+    }
+
+    public boolean matches(String path) {
+        return match(path) != null;
+    }
+
+    private static String[] tokenize(String path) {
+        // 与AntPathMatcher的默认拆分规则一致：不去除空白，忽略空段
+        return StringUtils.tokenizeToStringArray(path, PATH_SEPARATOR, false, true);
+    }
+
+    private String match(Node node, String[] segments, int index, boolean trailingSlash) {
+        if (index == segments.length) {
+            // 不含 ** 的匹配符，结尾的 / 必须与路径一致
+            if (node.pattern != null
+                    && (node.pattern.contains(DOUBLE_WILDCARD) || node.pattern.endsWith(PATH_SEPARATOR) == trailingSlash)) {
+                return node.pattern;
+            }
+            // 以 / 结尾的路径可以匹配结尾的 *
+            if (trailingSlash) {
+                for (Map.Entry<String, Node> entry : node.wildcards) {
+                    if ("*".equals(entry.getKey()) && entry.getValue().pattern != null) {
+                        return entry.getValue().pattern;
+                    }
+                }
+            }
+            // 结尾的 ** 可以匹配0个段
+            return node.doubleWildcard == null ? null : match(node.doubleWildcard, segments, index, trailingSlash);
+        }
+        String segment = segments[index];
+        String result;
+        // 1.精确段
+        Node exact = node.exacts.get(segment);
+        if (exact != null && (result = match(exact, segments, index + 1, trailingSlash)) != null) {
+            return result;
+        }
+        // 2.段内通配，例如 *、{id}、*.json
+        for (Map.Entry<String, Node> entry : node.wildcards) {
+            if (segmentMatcher.match(entry.getKey(), segment)
+                    && (result = match(entry.getValue(), segments, index + 1, trailingSlash)) != null) {
+                return result;
+            }
+        }
+        // 3.** 匹配任意多个段
+        if (node.doubleWildcard != null) {
+            for (int i = index; i <= segments.length; i++) {
+                if ((result = match(node.doubleWildcard, segments, i, trailingSlash)) != null) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class Node {
+        private final Map<String, Node> exacts = new HashMap<>();
+        private final List<Map.Entry<String, Node>> wildcards = new ArrayList<>();
+        private Node doubleWildcard;
+        private String pattern;
+
+        Node child(String segment) {
+            if (DOUBLE_WILDCARD.equals(segment)) {
+                if (doubleWildcard == null) {
+                    doubleWildcard = new Node();
+                }
+                return doubleWildcard;
+            }
+            if (!isWildcard(segment)) {
+                return exacts.computeIfAbsent(segment, s -> new Node());
+            }
+            for (Map.Entry<String, Node> entry : wildcards) {
+                if (entry.getKey().equals(segment)) {
+                    return entry.getValue();
+                }
+            }
+            Node node = new Node();
+            wildcards.add(Map.entry(segment, node));
+            return node;
+        }
+
+        private static boolean isWildcard(String segment) {
+            return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import cn.hutool.jwt.JWT;
+import cn.hutool.jwt.JWTPayload;
 import cn.hutool.jwt.JWTValidator;
 import com.tianji.auth.common.domain.PrivilegeRoleDTO;
 import com.tianji.common.domain.R;
@@ -19,7 +20,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.BoundHashOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.util.AntPathMatcher;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -32,21 +32,23 @@ import static com.tianji.auth.common.constants.JwtConstants.*;
 @Slf4j
 public class AuthUtil {
     // 缓存权限信息
-    private Map<String, PrivilegeRoleDTO> privileges = new HashMap<>();
-    // 要拦截的路径匹配符的集合
-    private Set<String> paths = new HashSet<>();
+    private volatile Map<String, PrivilegeRoleDTO> privileges = new HashMap<>();
+    // 要拦截的路径匹配符，预编译为匹配树
+    private volatile AntPathTrie pathTrie = AntPathTrie.of(Collections.emptyList());
     // 权限版本信息，减少不必要的缓存处理
     private int privilegeVersion;
 
-    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
     private final JwtSignerHolder jwtSignerHolder;
     private final StringRedisTemplate stringRedisTemplate;
     private final BoundHashOperations<String, String, String> hashOps;
+    private final VerifiedTokenCache tokenCache;
 
-    public AuthUtil(JwtSignerHolder jwtSignerHolder, StringRedisTemplate stringRedisTemplate) {
+    public AuthUtil(JwtSignerHolder jwtSignerHolder, StringRedisTemplate stringRedisTemplate,
+                    VerifiedTokenCache tokenCache) {
         this.jwtSignerHolder = jwtSignerHolder;
         this.stringRedisTemplate = stringRedisTemplate;
         this.hashOps = stringRedisTemplate.boundHashOps(AUTH_PRIVILEGE_KEY);
+        this.tokenCache = tokenCache;
     }
 
     public R<LoginUserDTO> parseToken(String token) {
@@ -54,31 +56,36 @@ public class AuthUtil {
         if(StringUtils.isBlank(token)){
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN);
         }
+        // 2.查询已校验token的缓存，命中则无需再次验签
+        LoginUserDTO cached = tokenCache.get(token);
+        if (cached != null) {
+            return R.ok(cached);
+        }
         JWT jwt = null;
         try {
             jwt = JWT.of(token).setSigner(jwtSignerHolder.getJwtSigner());
         } catch (Exception e) {
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN);
         }
-        // 2.校验jwt是否有效
+        // 3.校验jwt是否有效
         if (!jwt.verify()) {
             // 验证失败，返回空
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN);
         }
-        // 3.校验是否过期
+        // 4.校验是否过期
         try {
             JWTValidator.of(jwt).validateDate();
         } catch (ValidateException e) {
             return R.error(EXPIRED_TOKEN_CODE, EXPIRED_TOKEN);
         }
-        // 4.数据格式校验
+        // 5.数据格式校验
         Object userPayload = jwt.getPayload(PAYLOAD_USER_KEY);
         if (userPayload == null) {
             // 数据为空
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN_PAYLOAD);
         }
 
-        // 5.数据解析
+        // 6.数据解析
         LoginUserDTO userDTO;
         try {
             userDTO = ((JSONObject)userPayload).toBean(LoginUserDTO.class);
@@ -87,10 +94,19 @@ public class AuthUtil {
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN_PAYLOAD);
         }
 
-        // 6.返回
+        // 7.缓存校验结果，有效期与token一致
+        tokenCache.put(token, userDTO, expireAt(jwt));
+        // 8.返回
         return R.ok(userDTO);
     }
 
+    private long expireAt(JWT jwt) {
+        Long exp = jwt.getPayloads().getLong(JWTPayload.EXPIRES_AT);
+        long maxExpireAt = System.currentTimeMillis() + JWT_TOKEN_TTL.toMillis();
+        // exp单位是秒，没有exp时按access-token的有效期缓存
+        return exp == null ? maxExpireAt : Math.min(exp * 1000, maxExpireAt);
+    }
+
     public void checkAuth(String antPath, R<LoginUserDTO> r){
         // 1.判断是否是需要权限的路径
         String matchPath = findMatchPath(antPath);
@@ -115,14 +131,7 @@ public class AuthUtil {
     }
 
     private String findMatchPath(String antPath){
-        String matchPath = null;
-        for (String pathPattern : paths) {
-            if(antPathMatcher.match(pathPattern, antPath)){
-                matchPath = pathPattern;
-                break;
-            }
-        }
-        return matchPath;
+        return pathTrie.match(antPath);
     }
 
     private PrivilegeRoleDTO findPathPrivilege(String path){
@@ -167,9 +176,11 @@ public class AuthUtil {
         Map<String, PrivilegeRoleDTO> map = new HashMap<>();
         for (PrivilegeRoleDTO p : privilegeRoleDTOS) {
             map.put(p.getAntPath(), p);
-            this.privileges = map;
         }
-        this.paths = map.keySet();
+        // 先构建好完整的匹配树，再整体替换，避免请求读到不完整的数据
+        AntPathTrie trie = AntPathTrie.of(map.keySet());
+        this.privileges = map;
+        this.pathTrie = trie;
         // 4.更新版本
         this.privilegeVersion = currentVersion;
     }
@@ -0,0 +1,99 @@
+package com.tianji.authsdk.gateway.util;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.tianji.common.domain.dto.LoginUserDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已校验token的本地缓存
+ * <p>
+ * 以token的摘要为key，缓存验签、解析后的用户信息，每个条目在token的exp时刻过期，
+ * 避免同一个token在有效期内的每次请求都重复做RSA验签和JSON解析。
+ * refresh-token作废（如退出登录）时，通过广播按用户id清理缓存。
+ * 验签的公钥只在启动时由 {@link JwtSignerHolder} 加载一次，更换秘钥需要重启网关，缓存随之清空
+ */
+@Slf4j
+public class VerifiedTokenCache {
+    private static final int MAXIMUM_SIZE = 100_000;
+
+    private final Cache<String, Entry> cache = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(entry.expireAt - System.currentTimeMillis(), 0));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, entry, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    /**
+     * 查询已校验的用户信息
+     *
+     * @param token access-token
+     * @return 用户信息，未缓存或已过期时返回null
+     */
+    public LoginUserDTO get(String token) {
+        Entry entry = cache.getIfPresent(digest(token));
+        if (entry == null || entry.expireAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.user;
+    }
+
+    /**
+     * 缓存已校验的用户信息
+     *
+     * @param token    access-token
+     * @param user     用户信息
+     * @param expireAt token过期时间，毫秒值
+     */
+    public void put(String token, LoginUserDTO user, long expireAt) {
+        if (expireAt <= System.currentTimeMillis()) {
+            return;
+        }
+        cache.put(digest(token), new Entry(user, expireAt));
+    }
+
+    /**
+     * 清理指定用户的全部缓存
+     *
+     * @param userId 用户id
+     */
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        cache.asMap().values().removeIf(entry -> userId.equals(entry.user.getUserId()));
+        log.debug("清理用户{}的token缓存", userId);
+    }
+
+    private static String digest(String token) {
+        // 只保存摘要，减少内存占用，也避免明文token常驻内存
+        return DigestUtil.sha256Hex(token);
+    }
+
+    private static class Entry {
+        private final LoginUserDTO user;
+        private final long expireAt;
+
+        Entry(LoginUserDTO user, long expireAt) {
+            this.user = user;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.tianji.authsdk.gateway.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AntPathTrieTest {
+
+    private static final List<String> PATTERNS = List.of(
+            "/error/**", "/jwks", "/accounts/login", "GET:/users/me", "GET:/users/{id}",
+            "POST:/users", "PUT:/users/*/status", "GET:/courses/**", "GET:/courses/*/catas",
+            "DELETE:/orders/**/items/*", "GET:/files/*.png", "GET:/a/b/", "GET:/c/*");
+
+    private static final List<String> PATHS = List.of(
+            "/error", "/error/500", "/jwks", "/jwks/", "/accounts/login", "GET:/users/me", "GET:/users/12",
+            "GET:/users/12/x", "POST:/users", "POST:/users/", "PUT:/users/1/status", "PUT:/users/status",
+            "GET:/courses", "GET:/courses/1/catas", "GET:/courses/1/2/3", "DELETE:/orders/1/items/2",
+            "DELETE:/orders/items/2", "DELETE:/orders/1/2/items", "GET:/files/a.png", "GET:/files/a.jpg",
+            "GET:/a/b", "GET:/a/b/", "GET:/c/", "GET:/c/1", "GET:/c", "GET:/unknown");
+
+    @Test
+    void testMatchesSameAsAntPathMatcher() {
+        AntPathMatcher matcher = new AntPathMatcher();
+        AntPathTrie trie = AntPathTrie.of(PATTERNS);
+        for (String path : PATHS) {
+            boolean expected = PATTERNS.stream().anyMatch(p -> matcher.match(p, path));
+            String matched = trie.match(path);
+            assertEquals(expected, matched != null, path);
+            if (matched != null) {
+                assertEquals(true, matcher.match(matched, path), path);
+            }
+        }
+    }
+
+    @Test
+    void testPreferMostSpecific() {
+        AntPathTrie trie = AntPathTrie.of(PATTERNS);
+        assertEquals("GET:/users/me", trie.match("GET:/users/me"));
+        assertEquals("GET:/courses/*/catas", trie.match("GET:/courses/1/catas"));
+        assertNotNull(trie.match("GET:/courses/1"));
+        assertNull(AntPathTrie.of(null).match("/error"));
+    }
+}
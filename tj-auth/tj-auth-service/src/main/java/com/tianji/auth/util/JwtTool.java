@@ -130,9 +130,11 @@ public class JwtTool {
     }
 
     /**
-     * 清理刷新refresh-token的jti，本质是refresh-token作废
+     * 清理刷新refresh-token的jti，本质是refresh-token作废，同时通知网关清理该用户已校验的token缓存
      */
     public void cleanJtiCache() {
-        stringRedisTemplate.delete(JwtConstants.JWT_REDIS_KEY_PREFIX + UserContext.getUser());
+        Long userId = UserContext.getUser();
+        stringRedisTemplate.delete(JwtConstants.JWT_REDIS_KEY_PREFIX + userId);
+        stringRedisTemplate.convertAndSend(JwtConstants.TOKEN_EVICT_CHANNEL, String.valueOf(userId));
     }
 }
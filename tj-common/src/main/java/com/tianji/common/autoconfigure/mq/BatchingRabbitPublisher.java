@@ -0,0 +1,305 @@
+package com.tianji.common.autoconfigure.mq;
+
+import com.tianji.common.exceptions.CommonException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量发送消息的工具
+ * <p>
+ * 消息按 exchange + routingKey 缓冲，攒够一批或到达发送间隔时由发送线程成批发送，一批消息共用一个缓存的channel：
+ * <ul>
+ *     <li>使用独占的连接并开启publisher confirm，broker的确认异步回调，按correlationId在待确认表中找到对应的消息</li>
+ *     <li>已提交但未确认的消息数量有上限，达到上限时发送方等待，等待超时抛出异常，而不是在内存中无限堆积</li>
+ *     <li>被broker拒绝或确认超时的消息重新发送，超过重试次数后记录日志并放弃</li>
+ * </ul>
+ * 确认超时的消息可能已经到达broker，重发会产生重复消息，消费者需要做幂等处理
+ */
+@Slf4j
+public class BatchingRabbitPublisher {
+
+    private final CachingConnectionFactory connectionFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageConverter messageConverter;
+    private final MessagePostProcessor processor = new BasicIdMessageProcessor();
+    private final MqProperties.Batch properties;
+
+    private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+    /**
+     * 已发送、等待broker确认的消息，key是correlationId
+     */
+    private final Map<String, PendingMessage> unconfirmed = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Semaphore permits;
+    private final ThreadPoolExecutor sendExecutor;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean running = true;
+
+    /**
+     * @param connectionFactory 连接工厂，由本工具独占，关闭时一并销毁
+     * @param messageConverter  消息转换器
+     * @param properties        批量发送的配置
+     */
+    public BatchingRabbitPublisher(CachingConnectionFactory connectionFactory, MessageConverter messageConverter,
+                                   MqProperties.Batch properties) {
+        this.connectionFactory = connectionFactory;
+        this.messageConverter = messageConverter;
+        this.properties = properties;
+        this.permits = new Semaphore(properties.getMaxPending());
+        // 1.开启publisher confirm，每个发送线程一个channel
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
+        connectionFactory.setChannelCacheSize(properties.getThreads());
+        this.rabbitTemplate = new RabbitTemplate(connectionFactory);
+        this.rabbitTemplate.setMessageConverter(messageConverter);
+        this.rabbitTemplate.setConfirmCallback(this::confirm);
+        // 2.发送线程，每个缓冲区同时最多提交一个发送任务，队列长度不会超过缓冲区数量
+        AtomicInteger index = new AtomicInteger();
+        this.sendExecutor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "mq-batch-send-" + index.incrementAndGet()));
+        // 3.定时发送不足一批的消息，检查确认超时的消息
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "mq-batch-flush"));
+        long interval = properties.getFlushInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushAll, interval, interval, TimeUnit.MILLISECONDS);
+        long timeout = properties.getConfirmTimeout().toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkConfirmTimeout, timeout, Math.max(timeout / 2, 1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交消息，消息缓冲后批量发送，方法返回时消息尚未发送
+     *
+     * @param exchange   交换机
+     * @param routingKey 路由KEY
+     * @param t          数据
+     * @return 消息被broker确认时完成，重试后仍失败时异常完成
+     * @throws CommonException 未确认的消息达到上限且等待超时，或发送工具已关闭
+     */
+    public <T> CompletableFuture<Void> send(String exchange, String routingKey, T t) {
+        if (!running) {
+            throw new CommonException("消息发送工具已关闭");
+        }
+        // 1.获取发送许可，消息被确认或放弃后释放
+        try {
+            if (!permits.tryAcquire(properties.getAcquireTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new CommonException("待确认的消息过多，请稍后再试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommonException("消息发送被中断", e);
+        }
+        // 2.在调用线程中转换消息，请求id等信息取自调用线程
+        Message message;
+        try {
+            message = processor.postProcessMessage(messageConverter.toMessage(t, new MessageProperties()));
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        // 3.放入缓冲区
+        PendingMessage pending = new PendingMessage(exchange, routingKey, message);
+        enqueue(pending);
+        return pending.future;
+    }
+
+    private void enqueue(PendingMessage pending) {
+        Buffer buffer = buffers.computeIfAbsent(pending.exchange + '\u0000' + pending.routingKey,
+                k -> new Buffer(pending.exchange, pending.routingKey));
+        buffer.messages.add(pending);
+        if (buffer.size.incrementAndGet() >= properties.getBatchSize()) {
+            submitFlush(buffer);
+        }
+    }
+
+    private void flushAll() {
+        for (Buffer buffer : buffers.values()) {
+            if (buffer.size.get() > 0) {
+                submitFlush(buffer);
+            }
+        }
+    }
+
+    private void submitFlush(Buffer buffer) {
+        if (!buffer.flushing.compareAndSet(false, true)) {
+            // 已经有发送任务
+            return;
+        }
+        try {
+            sendExecutor.execute(() -> flush(buffer));
+        } catch (RejectedExecutionException e) {
+            buffer.flushing.set(false);
+        }
+    }
+
+    private void flush(Buffer buffer) {
+        try {
+            List<PendingMessage> batch;
+            while (!(batch = drain(buffer)).isEmpty()) {
+                publish(buffer, batch);
+            }
+        } finally {
+            buffer.flushing.set(false);
+        }
+        // 发送结束前新加入的消息可能因为flushing标记没有触发发送
+        if (buffer.size.get() >= properties.getBatchSize()) {
+            submitFlush(buffer);
+        }
+    }
+
+    private List<PendingMessage> drain(Buffer buffer) {
+        List<PendingMessage> batch = new ArrayList<>(properties.getBatchSize());
+        PendingMessage pending;
+        while (batch.size() < properties.getBatchSize() && (pending = buffer.messages.poll()) != null) {
+            buffer.size.decrementAndGet();
+            pending.correlationId = null;
+            batch.add(pending);
+        }
+        return batch;
+    }
+
+    private void publish(Buffer buffer, List<PendingMessage> batch) {
+        try {
+            // 同一批消息在同一个channel上发送
+            rabbitTemplate.invoke(ops -> {
+                for (PendingMessage pending : batch) {
+                    String id = String.valueOf(sequence.incrementAndGet());
+                    pending.correlationId = id;
+                    pending.sendTime = System.currentTimeMillis();
+                    unconfirmed.put(id, pending);
+                    ops.send(buffer.exchange, buffer.routingKey, pending.message, new CorrelationData(id));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // 除了AmqpException，其它异常也要处理，否则这批消息的许可不会释放，调用方也拿不到发送结果
+            log.error("批量发送消息异常，exchange：{}，routingKey：{}，数量：{}",
+                    buffer.exchange, buffer.routingKey, batch.size(), e);
+            for (PendingMessage pending : batch) {
+                // 没有发出的，以及发出后还没有收到确认的，都需要重发
+                if (pending.correlationId == null || unconfirmed.remove(pending.correlationId) != null) {
+                    retry(pending, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * broker的确认回调，在连接的线程中执行
+     */
+    private void confirm(CorrelationData correlationData, boolean ack, String cause) {
+        if (correlationData == null) {
+            return;
+        }
+        // 待确认表中的消息只会被确认回调、超时检查、发送异常之一取走
+        PendingMessage pending = unconfirmed.remove(correlationData.getId());
+        if (pending == null) {
+            return;
+        }
+        if (ack) {
+            pending.future.complete(null);
+            permits.release();
+            return;
+        }
+        retry(pending, cause);
+    }
+
+    private void checkConfirmTimeout() {
+        long expireTime = System.currentTimeMillis() - properties.getConfirmTimeout().toMillis();
+        unconfirmed.forEach((id, pending) -> {
+            if (pending.sendTime < expireTime && unconfirmed.remove(id, pending)) {
+                retry(pending, "确认超时");
+            }
+        });
+    }
+
+    private void retry(PendingMessage pending, String cause) {
+        if (pending.retries >= properties.getMaxRetries()) {
+            log.error("消息发送失败，已重试{}次，exchange：{}，routingKey：{}，messageId：{}，原因：{}",
+                    pending.retries, pending.exchange, pending.routingKey,
+                    pending.message.getMessageProperties().getMessageId(), cause);
+            pending.future.completeExceptionally(new CommonException("消息发送失败：" + cause));
+            permits.release();
+            return;
+        }
+        pending.retries++;
+        log.warn("消息未被确认，准备第{}次重发，exchange：{}，routingKey：{}，原因：{}",
+                pending.retries, pending.exchange, pending.routingKey, cause);
+        enqueue(pending);
+    }
+
+    /**
+     * 已提交但尚未被确认或放弃的消息数量
+     */
+    public int getPendingCount() {
+        return properties.getMaxPending() - permits.availablePermits();
+    }
+
+    /**
+     * 关闭发送工具，不再接收新消息，等待已提交的消息发送并确认
+     */
+    public void shutdown() {
+        running = false;
+        long deadline = System.currentTimeMillis() + properties.getConfirmTimeout().toMillis();
+        try {
+            while (getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+                flushAll();
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int lost = getPendingCount();
+        if (lost > 0) {
+            log.error("消息发送工具关闭，{}条消息未能确认发送", lost);
+        }
+        scheduler.shutdownNow();
+        sendExecutor.shutdownNow();
+        connectionFactory.destroy();
+    }
+
+    private static class Buffer {
+        private final String exchange;
+        private final String routingKey;
+        private final Queue<PendingMessage> messages = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        /**
+         * 是否已经提交了发送任务
+         */
+        private final AtomicBoolean flushing = new AtomicBoolean();
+
+        Buffer(String exchange, String routingKey) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+        }
+    }
+
+    private static class PendingMessage {
+        private final String exchange;
+        private final String routingKey;
+        private final Message message;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile String correlationId;
+        private volatile long sendTime;
+        private int retries;
+
+        PendingMessage(String exchange, String routingKey, Message message) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.message = message;
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.slf4j.MDC;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.config.ContainerCustomizer;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.AbstractConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
@@ -14,13 +16,16 @@ import org.springframework.amqp.rabbit.retry.RepublishMessageRecoverer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
 import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
 
 import static com.tianji.common.constants.Constant.REQUEST_ID_HEADER;
@@ -31,6 +36,7 @@ import static com.tianji.common.constants.MqConstants.Queue.ERROR_QUEUE_TEMPLATE
 
 @Configuration
 @ConditionalOnClass(value = {MessageConverter.class, AmqpTemplate.class})
+@EnableConfigurationProperties(MqProperties.class)
 public class MqConfig implements EnvironmentAware{
 
     private String defaultErrorRoutingKey;
@@ -84,8 +90,31 @@ public class MqConfig implements EnvironmentAware{
     @Bean
     @ConditionalOnMissingBean
     @ConditionalOnClass(RabbitTemplate.class)
-    public RabbitMqHelper rabbitMqHelper(RabbitTemplate rabbitTemplate){
-        return new RabbitMqHelper(rabbitTemplate);
+    public RabbitMqHelper rabbitMqHelper(
+            RabbitTemplate rabbitTemplate, ObjectProvider<BatchingRabbitPublisher> batchingRabbitPublisher){
+        return new RabbitMqHelper(rabbitTemplate, batchingRabbitPublisher);
+    }
+
+    /**
+     * rabbitmq批量发送工具，第一次批量发送时才创建
+     * <p>
+     * 使用独立的连接开启publisher confirm，不影响普通发送和消费
+     */
+    @Bean(destroyMethod = "shutdown")
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(RabbitTemplate.class)
+    public BatchingRabbitPublisher batchingRabbitPublisher(
+            ConnectionFactory connectionFactory, MessageConverter messageConverter,
+            ObjectProvider<RabbitProperties> rabbitProperties, MqProperties mqProperties){
+        if (!(connectionFactory instanceof AbstractConnectionFactory)) {
+            throw new IllegalStateException("不支持的rabbitmq连接工厂：" + connectionFactory.getClass().getName());
+        }
+        CachingConnectionFactory factory = new CachingConnectionFactory(
+                ((AbstractConnectionFactory) connectionFactory).getRabbitConnectionFactory());
+        rabbitProperties.ifAvailable(p -> factory.setAddresses(p.determineAddresses()));
+        factory.setConnectionNameStrategy(cf -> "batching-publisher");
+        return new BatchingRabbitPublisher(factory, messageConverter, mqProperties.getBatch());
     }
 
     /**
@@ -0,0 +1,48 @@
+package com.tianji.common.autoconfigure.mq;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "tj.mq")
+public class MqProperties {
+
+    /**
+     * 批量发送的配置
+     */
+    private Batch batch = new Batch();
+
+    @Data
+    public static class Batch {
+        /**
+         * 每批最多发送的消息数量
+         */
+        private int batchSize = 100;
+        /**
+         * 缓冲的消息不足一批时，最多等待多久发送
+         */
+        private Duration flushInterval = Duration.ofMillis(20);
+        /**
+         * 发送线程数，同时也是缓存的channel数量
+         */
+        private int threads = 4;
+        /**
+         * 已提交但未被broker确认的消息数量上限
+         */
+        private int maxPending = 10000;
+        /**
+         * 未确认消息达到上限时，发送方最多等待多久
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(1);
+        /**
+         * 等待broker确认的超时时间，超时的消息会重新发送
+         */
+        private Duration confirmTimeout = Duration.ofSeconds(5);
+        /**
+         * 被broker拒绝或确认超时后的最大重试次数
+         */
+        private int maxRetries = 3;
+    }
+}
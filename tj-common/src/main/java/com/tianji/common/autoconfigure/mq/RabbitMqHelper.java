@@ -1,11 +1,10 @@
 package com.tianji.common.autoconfigure.mq;
 
-import cn.hutool.core.lang.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.amqp.core.MessagePostProcessor;
-import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.time.Duration;
@@ -20,16 +19,22 @@ public class RabbitMqHelper {
     private final RabbitTemplate rabbitTemplate;
     private final MessagePostProcessor processor = new BasicIdMessageProcessor();
     private final ThreadPoolTaskExecutor executor;
+    private final ObjectProvider<BatchingRabbitPublisher> batchingPublisher;
 
     public RabbitMqHelper(RabbitTemplate rabbitTemplate) {
+        this(rabbitTemplate, null);
+    }
+
+    public RabbitMqHelper(RabbitTemplate rabbitTemplate, ObjectProvider<BatchingRabbitPublisher> batchingPublisher) {
         this.rabbitTemplate = rabbitTemplate;
+        this.batchingPublisher = batchingPublisher;
         executor = new ThreadPoolTaskExecutor();
         //配置核心线程数
         executor.setCorePoolSize(10);
         //配置最大线程数
         executor.setMaxPoolSize(15);
-        //配置队列大小
-        executor.setQueueCapacity(99999);
+        //配置队列大小，队列不宜过大，队列满后由调用者线程发送，让调用方感知到发送压力
+        executor.setQueueCapacity(1000);
         //配置线程池中的线程的名称前缀
         executor.setThreadNamePrefix("mq-async-send-handler");
 
@@ -45,26 +50,34 @@ public class RabbitMqHelper {
      */
     public <T> void send(String exchange, String routingKey, T t) {
         log.debug("准备发送消息，exchange：{}， RoutingKey：{}， message：{}", exchange, routingKey, t);
-        // 1.设置消息标示，用于消息确认，消息发送失败直接抛出异常，交给调用者处理
-        String id = UUID.randomUUID().toString(true);
-        CorrelationData correlationData = new CorrelationData(id);
-        // 2.设置发送超时时间为500毫秒
-        rabbitTemplate.setReplyTimeout(500);
-        // 3.发送消息，同时设置消息id
-        rabbitTemplate.convertAndSend(exchange, routingKey, t, processor, correlationData);
+        // 发送消息，同时设置消息id，消息发送失败直接抛出异常，交给调用者处理
+        rabbitTemplate.convertAndSend(exchange, routingKey, t, processor);
+    }
+
+    /**
+     * 根据exchange和routingKey批量发送消息
+     * <p>
+     * 消息先缓冲，再按批发送并异步等待broker确认，未确认的消息会重发，适合突发的大量消息。
+     * 方法返回时消息尚未发送，发送结果通过返回值获取，只有待确认的消息过多时才会抛出异常，交给调用者处理。
+     * 没有配置批量发送工具时等同于 {@link #send(String, String, Object)}
+     *
+     * @return 消息被broker确认时完成，重试后仍失败时异常完成
+     */
+    public <T> CompletableFuture<Void> sendBatched(String exchange, String routingKey, T t) {
+        BatchingRabbitPublisher publisher = batchingPublisher == null ? null : batchingPublisher.getIfAvailable();
+        if (publisher == null) {
+            send(exchange, routingKey, t);
+            return CompletableFuture.completedFuture(null);
+        }
+        return publisher.send(exchange, routingKey, t);
     }
 
     /**
      * 根据exchange和routingKey发送消息，并且可以设置延迟时间
      */
     public <T> void sendDelayMessage(String exchange, String routingKey, T t, Duration delay) {
-        // 1.设置消息标示，用于消息确认，消息发送失败直接抛出异常，交给调用者处理
-        String id = UUID.randomUUID().toString(true);
-        CorrelationData correlationData = new CorrelationData(id);
-        // 2.设置发送超时时间为500毫秒
-        rabbitTemplate.setReplyTimeout(500);
-        // 3.发送消息，同时设置消息id
-        rabbitTemplate.convertAndSend(exchange, routingKey, t, new DelayedMessageProcessor(delay), correlationData);
+        // 发送消息，同时设置延迟时间，消息发送失败直接抛出异常，交给调用者处理
+        rabbitTemplate.convertAndSend(exchange, routingKey, t, new DelayedMessageProcessor(delay));
     }
 
 
@@ -106,4 +119,8 @@ public class RabbitMqHelper {
         sendAsync(exchange, routingKey, t, null);
     }
 
+    public void shutdown() {
+        executor.shutdown();
+    }
+
 }
@@ -0,0 +1,55 @@
+package com.tianji.common.autoconfigure.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tianji.common.autoconfigure.mq.MqConfig;
+import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 本地消息表，需要配置 tj.outbox.enabled=true 开启，未开启时 {@link OutboxHelper} 直接通过MQ发送消息
+ */
+@Configuration
+@ConditionalOnClass({JdbcTemplate.class, RabbitMqHelper.class})
+@ConditionalOnBean(RabbitMqHelper.class)
+@AutoConfigureAfter({JdbcTemplateAutoConfiguration.class, MqConfig.class})
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfig {
+
+    private static final String OUTBOX_TABLE = "outbox_event";
+
+    @Bean
+    @ConditionalOnProperty(prefix = "tj.outbox", name = "enabled", havingValue = "false", matchIfMissing = true)
+    public OutboxHelper directOutboxHelper(RabbitMqHelper rabbitMqHelper) {
+        return new OutboxHelper(rabbitMqHelper);
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "tj.outbox", name = "enabled", havingValue = "true")
+    static class OutboxTableConfig {
+
+        @Bean
+        OutboxRepository outboxRepository(JdbcTemplate jdbcTemplate) {
+            return new OutboxRepository(jdbcTemplate, OUTBOX_TABLE);
+        }
+
+        @Bean(initMethod = "start", destroyMethod = "shutdown")
+        public OutboxRelay outboxRelay(OutboxRepository outboxRepository, RabbitMqHelper rabbitMqHelper,
+                                       ObjectMapper objectMapper, OutboxProperties properties) {
+            return new OutboxRelay(outboxRepository, rabbitMqHelper, objectMapper, properties);
+        }
+
+        @Bean
+        public OutboxHelper outboxHelper(OutboxRepository outboxRepository, OutboxRelay outboxRelay,
+                                         ObjectMapper objectMapper) {
+            return new OutboxHelper(outboxRepository, outboxRelay, objectMapper);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.tianji.common.autoconfigure.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
+import com.tianji.common.exceptions.CommonException;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static com.tianji.common.constants.Constant.REQUEST_ID_HEADER;
+
+/**
+ * 本地消息表发送工具
+ * <p>
+ * 消息与业务数据写入同一个库，在业务事务中调用时随事务一起提交或回滚，事务提交后由 {@link OutboxRelay} 发送到MQ，
+ * 避免业务数据更新了但消息丢失，或者消息发出了但业务回滚的情况。消息至少发送一次，消费者需要做幂等处理
+ * <p>
+ * 没有开启本地消息表时，消息通过 {@link RabbitMqHelper#send} 直接发送，与业务事务无关
+ */
+@Slf4j
+public class OutboxHelper {
+
+    private final OutboxRepository repository;
+    private final OutboxRelay relay;
+    private final ObjectMapper objectMapper;
+    private final RabbitMqHelper mqHelper;
+
+    OutboxHelper(OutboxRepository repository, OutboxRelay relay, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.relay = relay;
+        this.objectMapper = objectMapper;
+        this.mqHelper = null;
+    }
+
+    /**
+     * 未开启本地消息表时使用，消息直接发送
+     */
+    OutboxHelper(RabbitMqHelper mqHelper) {
+        this.repository = null;
+        this.relay = null;
+        this.objectMapper = null;
+        this.mqHelper = mqHelper;
+    }
+
+    /**
+     * 根据exchange和routingKey发送消息，消息先写入本地消息表
+     *
+     * @param exchange   交换机
+     * @param routingKey 路由KEY
+     * @param t          数据，发送时按原类型反序列化后再发送，泛型参数会丢失，应使用具体的类型
+     * @param <T>        数据类型
+     */
+    public <T> void send(String exchange, String routingKey, T t) {
+        if (mqHelper != null) {
+            // 未开启本地消息表，直接发送，发送失败抛出异常，交给调用者处理
+            mqHelper.send(exchange, routingKey, t);
+            return;
+        }
+        // 1.序列化消息
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(t);
+        } catch (JsonProcessingException e) {
+            throw new CommonException("消息序列化失败", e);
+        }
+        // 2.写入本地消息表，有事务时随事务提交
+        repository.insert(exchange, routingKey, payload, t.getClass().getName(), MDC.get(REQUEST_ID_HEADER));
+        log.debug("消息写入本地消息表，exchange：{}，RoutingKey：{}，message：{}", exchange, routingKey, payload);
+        // 3.事务提交后立即触发发送，没有事务时已经写入，直接触发
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            relay.wakeUp();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                relay.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.tianji.common.autoconfigure.outbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "tj.outbox")
+public class OutboxProperties {
+
+    /**
+     * 是否开启本地消息表，开启后需要在业务库中执行 sql/outbox_event.sql 建表，
+     * 未开启时 {@link OutboxHelper} 直接通过MQ发送消息
+     */
+    private boolean enabled = false;
+    /**
+     * 启动时是否执行 sql/outbox_event.sql 自动建表，需要数据库账号有建表权限
+     */
+    private boolean initTable = false;
+    /**
+     * 每批发送的消息数量
+     */
+    private int batchSize = 200;
+    /**
+     * 轮询消息表的间隔，事务提交后也会立即触发一次发送
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+    /**
+     * 一批消息发送的租约时间，超过租约仍未发送完成的消息可以被其它实例重新发送
+     */
+    private Duration lease = Duration.ofSeconds(30);
+    /**
+     * 最大重试次数，超过后消息标记为发送失败，需要人工处理
+     */
+    private int maxRetries = 10;
+}
@@ -0,0 +1,148 @@
+package com.tianji.common.autoconfigure.outbox;
+
+import cn.hutool.core.lang.UUID;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.util.ClassUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.tianji.common.constants.Constant.REQUEST_ID_HEADER;
+
+/**
+ * 本地消息表的转发任务
+ * <p>
+ * 定时以及事务提交后，按id顺序领取一批消息，通过 {@link RabbitMqHelper#sendBatched} 批量发送并等待broker确认：
+ * <ul>
+ *     <li>领取消息时写入批次标识和租约到期时间，多个实例不会同时发送同一条消息，实例宕机后租约到期的消息会被重新领取</li>
+ *     <li>确认成功的消息删除，失败或等待确认超时的消息延迟重试，超过重试次数的标记为发送失败</li>
+ *     <li>同一批次内相同exchange和routingKey的消息按id顺序发送，重试的消息可能乱序</li>
+ * </ul>
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxRepository repository;
+    private final RabbitMqHelper mqHelper;
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties properties;
+    private final String instanceId = UUID.randomUUID().toString(true);
+    private final AtomicLong batchSequence = new AtomicLong();
+    /**
+     * 是否已经提交了发送任务，多次触发合并为一次
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+
+    OutboxRelay(OutboxRepository repository, RabbitMqHelper mqHelper, ObjectMapper objectMapper,
+                OutboxProperties properties) {
+        this.repository = repository;
+        this.mqHelper = mqHelper;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    public void start() {
+        if (properties.isInitTable()) {
+            repository.createTable();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-relay"));
+        long interval = properties.getPollInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::wakeUp, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 触发一次发送
+     */
+    void wakeUp() {
+        if (scheduler == null || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.execute(this::relay);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+        }
+    }
+
+    private void relay() {
+        scheduled.set(false);
+        try {
+            // 领取到整批消息时说明可能还有积压，继续发送
+            while (!Thread.currentThread().isInterrupted() && relayBatch() >= properties.getBatchSize()) {
+                log.debug("本地消息表存在积压，继续发送");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("本地消息表发送异常", e);
+        }
+    }
+
+    private int relayBatch() throws InterruptedException {
+        // 1.领取一批消息
+        String owner = instanceId + ":" + batchSequence.incrementAndGet();
+        List<OutboxRepository.OutboxMessage> messages = repository.claim(
+                owner, LocalDateTime.now().plus(properties.getLease()), properties.getBatchSize());
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        // 2.按顺序提交发送
+        List<CompletableFuture<Void>> futures = new ArrayList<>(messages.size());
+        for (OutboxRepository.OutboxMessage m : messages) {
+            futures.add(send(m));
+        }
+        // 3.等待确认，留出更新消息状态的时间，避免租约到期后被重复领取
+        long deadline = System.currentTimeMillis() + properties.getLease().toMillis() / 2;
+        List<Long> succeeded = new ArrayList<>(messages.size());
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            Long id = messages.get(i).getId();
+            try {
+                futures.get(i).get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+                succeeded.add(id);
+            } catch (ExecutionException | TimeoutException e) {
+                failed.add(id);
+            }
+        }
+        // 4.更新消息状态
+        repository.delete(succeeded);
+        repository.retry(failed, owner, properties.getMaxRetries());
+        if (!failed.isEmpty()) {
+            log.warn("本地消息表发送失败{}条，等待重试", failed.size());
+        }
+        return messages.size();
+    }
+
+    private CompletableFuture<Void> send(OutboxRepository.OutboxMessage m) {
+        if (m.getRequestId() != null) {
+            MDC.put(REQUEST_ID_HEADER, m.getRequestId());
+        }
+        try {
+            Object payload = objectMapper.readValue(m.getPayload(),
+                    ClassUtils.forName(m.getPayloadType(), ClassUtils.getDefaultClassLoader()));
+            return mqHelper.sendBatched(m.getExchange(), m.getRoutingKey(), payload);
+        } catch (Exception e) {
+            log.error("本地消息表的消息发送失败，id：{}，exchange：{}，routingKey：{}",
+                    m.getId(), m.getExchange(), m.getRoutingKey(), e);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        } finally {
+            MDC.remove(REQUEST_ID_HEADER);
+        }
+    }
+}
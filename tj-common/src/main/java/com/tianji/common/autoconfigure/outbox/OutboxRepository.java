@@ -0,0 +1,133 @@
+package com.tianji.common.autoconfigure.outbox;
+
+import com.tianji.common.utils.StringUtils;
+import lombok.Data;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 本地消息表的读写，SQL使用MySQL语法
+ * <p>
+ * 消息状态：0-待发送，1-发送中，2-发送失败。发送成功的消息直接删除。
+ * 发送中的消息next_time是租约到期时间，到期后可以被重新领取；待发送的消息next_time是下次可以发送的时间
+ */
+class OutboxRepository {
+
+    static final int STATUS_READY = 0;
+    static final int STATUS_SENDING = 1;
+    static final int STATUS_FAILED = 2;
+
+    /**
+     * 建表脚本，表名固定为outbox_event
+     */
+    private static final String CREATE_TABLE_SCRIPT = "sql/outbox_event.sql";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertSql;
+    private final String claimSql;
+    private final String selectClaimedSql;
+    private final String deleteSql;
+    private final String retrySql;
+
+    OutboxRepository(JdbcTemplate jdbcTemplate, String tableName) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertSql = StringUtils.format("INSERT INTO `{}` (exchange, routing_key, payload, payload_type, " +
+                "request_id, status, next_time) VALUES (?, ?, ?, ?, ?, " + STATUS_READY + ", ?)", tableName);
+        this.claimSql = StringUtils.format("UPDATE `{}` SET status = " + STATUS_SENDING + ", owner = ?, next_time = ? " +
+                "WHERE status IN (" + STATUS_READY + ", " + STATUS_SENDING + ") AND next_time <= ? " +
+                "ORDER BY id LIMIT ?", tableName);
+        this.selectClaimedSql = StringUtils.format("SELECT id, exchange, routing_key, payload, payload_type, " +
+                "request_id, retries FROM `{}` WHERE owner = ? AND status = " + STATUS_SENDING + " ORDER BY id", tableName);
+        this.deleteSql = StringUtils.format("DELETE FROM `{}` WHERE id IN ({})", tableName, "{}");
+        // 先计算状态和下次发送时间，再累加重试次数，重试间隔按2的重试次数次方秒增长，最长5分钟
+        this.retrySql = StringUtils.format("UPDATE `{}` SET " +
+                "status = IF(retries + 1 >= ?, " + STATUS_FAILED + ", " + STATUS_READY + "), " +
+                "next_time = DATE_ADD(?, INTERVAL LEAST(POW(2, retries), 300) SECOND), " +
+                "retries = retries + 1, owner = NULL " +
+                "WHERE id IN ({}) AND owner = ?", tableName, "{}");
+    }
+
+    void createTable() {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource(CREATE_TABLE_SCRIPT));
+        DatabasePopulatorUtils.execute(populator, Objects.requireNonNull(jdbcTemplate.getDataSource()));
+    }
+
+    void insert(String exchange, String routingKey, String payload, String payloadType, String requestId) {
+        jdbcTemplate.update(insertSql, exchange, routingKey, payload, payloadType, requestId,
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * 按id顺序领取一批可以发送的消息
+     *
+     * @param owner      本次发送的批次标识
+     * @param leaseUntil 租约到期时间
+     * @param limit      数量上限
+     * @return 领取到的消息
+     */
+    List<OutboxMessage> claim(String owner, LocalDateTime leaseUntil, int limit) {
+        int rows = jdbcTemplate.update(claimSql, owner, Timestamp.valueOf(leaseUntil),
+                Timestamp.valueOf(LocalDateTime.now()), limit);
+        if (rows == 0) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.query(selectClaimedSql, (rs, i) -> {
+            OutboxMessage m = new OutboxMessage();
+            m.setId(rs.getLong("id"));
+            m.setExchange(rs.getString("exchange"));
+            m.setRoutingKey(rs.getString("routing_key"));
+            m.setPayload(rs.getString("payload"));
+            m.setPayloadType(rs.getString("payload_type"));
+            m.setRequestId(rs.getString("request_id"));
+            m.setRetries(rs.getInt("retries"));
+            return m;
+        }, owner);
+    }
+
+    void delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(StringUtils.format(deleteSql, placeholders(ids.size())), ids.toArray());
+    }
+
+    /**
+     * 发送失败的消息重新标记为待发送，超过重试次数的标记为发送失败
+     */
+    void retry(List<Long> ids, String owner, int maxRetries) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Object[] args = new Object[ids.size() + 3];
+        args[0] = maxRetries;
+        args[1] = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < ids.size(); i++) {
+            args[i + 2] = ids.get(i);
+        }
+        args[args.length - 1] = owner;
+        jdbcTemplate.update(StringUtils.format(retrySql, placeholders(ids.size())), args);
+    }
+
+    private static String placeholders(int size) {
+        return String.join(", ", Collections.nCopies(size, "?"));
+    }
+
+    @Data
+    static class OutboxMessage {
+        private Long id;
+        private String exchange;
+        private String routingKey;
+        private String payload;
+        private String payloadType;
+        private String requestId;
+        private Integer retries;
+    }
+}
@@ -0,0 +1,137 @@
+package com.tianji.common.autoconfigure.redisson.aspect;
+
+import com.tianji.common.utils.StringUtils;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.ObjectUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 锁名称解析器
+ * <p>
+ * 锁名称中可以用 #{} 引用方法参数，例如：pay:notify:payOrderNo:#{payOrder.payOrderNo}。
+ * 每个方法第一次加锁时解析名称模板和参数名并缓存，表达式开启SpEL编译，之后每次加锁只需要求值。
+ * 缓存以方法为key，同一个方法上的锁名称固定，不同注解应使用不同的解析器实例
+ */
+public class LockNameResolver {
+
+    /**
+     * SPEL的正则规则
+     */
+    private static final Pattern pattern = Pattern.compile("\\#\\{([^\\}]*)\\}");
+
+    private final SpelExpressionParser parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, LockNameResolver.class.getClassLoader()));
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+    private final Map<MethodClassKey, LockName> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 解析锁名称
+     *
+     * @param name        原始锁名称
+     * @param method      被代理的方法
+     * @param targetClass 目标对象的类型
+     * @param args        方法参数
+     * @return 解析后的锁名称
+     */
+    public String resolve(String name, Method method, Class<?> targetClass, Object[] args) {
+        // 1.判断是否存在spel表达式
+        if (StringUtils.isBlank(name) || !name.contains("#")) {
+            // 不存在，直接返回
+            return name;
+        }
+        // 2.获取解析好的名称模板并求值
+        return cache.computeIfAbsent(new MethodClassKey(method, targetClass), k -> compile(name, method, targetClass))
+                .evaluate(args);
+    }
+
+    private LockName compile(String name, Method method, Class<?> targetClass) {
+        // 1.参数名，优先从实现类的方法上获取
+        Method targetMethod = tryGetDeclaredMethod(targetClass, method.getName(), method.getParameterTypes());
+        String[] paramNames = parameterNameDiscoverer.getParameterNames(targetMethod != null ? targetMethod : method);
+        // 2.拆分名称模板中的常量和表达式
+        List<String> literals = new ArrayList<>();
+        List<Expression> expressions = new ArrayList<>();
+        Matcher matcher = pattern.matcher(name);
+        int start = 0;
+        while (matcher.find()) {
+            literals.add(name.substring(start, matcher.start()));
+            expressions.add(parser.parseExpression("#" + matcher.group(1)));
+            start = matcher.end();
+        }
+        literals.add(name.substring(start));
+        return new LockName(literals.toArray(new String[0]), expressions.toArray(new Expression[0]),
+                paramNames, method.getParameterCount());
+    }
+
+    private Method tryGetDeclaredMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            // 反射获取方法
+            return clazz.getDeclaredMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            Class<?> superClass = clazz.getSuperclass();
+            if (superClass != null) {
+                // 尝试从父类寻找
+                return tryGetDeclaredMethod(superClass, name, parameterTypes);
+            }
+        }
+        return null;
+    }
+
+    private static class LockName {
+        /**
+         * 表达式之间的常量，比表达式多一个
+         */
+        private final String[] literals;
+        private final Expression[] expressions;
+        private final String[] paramNames;
+        /**
+         * 按下标引用参数的变量名：a0、p0...
+         */
+        private final String[] aliasA;
+        private final String[] aliasP;
+
+        LockName(String[] literals, Expression[] expressions, String[] paramNames, int paramCount) {
+            this.literals = literals;
+            this.expressions = expressions;
+            this.paramNames = paramNames;
+            this.aliasA = new String[paramCount];
+            this.aliasP = new String[paramCount];
+            for (int i = 0; i < paramCount; i++) {
+                aliasA[i] = "a" + i;
+                aliasP[i] = "p" + i;
+            }
+        }
+
+        String evaluate(Object[] args) {
+            // 1.构建context，参数可以通过参数名、#a0、#p0引用
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            for (int i = 0; i < args.length && i < aliasA.length; i++) {
+                if (paramNames != null && i < paramNames.length) {
+                    context.setVariable(paramNames[i], args[i]);
+                }
+                context.setVariable(aliasA[i], args[i]);
+                context.setVariable(aliasP[i], args[i]);
+            }
+            // 2.拼接名称
+            StringBuilder sb = new StringBuilder(literals[0]);
+            for (int i = 0; i < expressions.length; i++) {
+                sb.append(ObjectUtils.nullSafeToString(expressions[i].getValue(context))).append(literals[i + 1]);
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.tianji.common.utils;
 
 import cn.hutool.core.bean.BeanUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * 继承自 hutool 的BeanUtil，增加了bean转换时自定义转换器的功能
+ * <p>
+ * copyBean、copyList优先使用按类型对生成并缓存的拷贝器，不支持的类型退回hutool的反射拷贝
  */
 public class BeanUtils extends BeanUtil {
 
@@ -36,18 +39,24 @@ public class BeanUtils extends BeanUtil {
      * @param <T>     目标对象类型
      * @return 目标对象
      */
+    @SuppressWarnings("unchecked")
     public static <R, T> T copyBean(R source, Class<T> clazz){
         if (source == null) {
             return null;
         }
-        return toBean(source, clazz);
+        GeneratedBeanCopier<R, T> copier = GeneratedBeanCopier.of((Class<R>) source.getClass(), clazz);
+        return copier == null ? toBean(source, clazz) : copier.copy(source);
     }
 
     public static <R, T> List<T> copyList(List<R> list, Class<T> clazz) {
         if (list == null || list.size() == 0) {
             return CollUtils.emptyList();
         }
-        return copyToList(list, clazz);
+        List<T> result = new ArrayList<>(list.size());
+        for (R r : list) {
+            result.add(copyBean(r, clazz));
+        }
+        return result;
     }
 
     public static <R, T> List<T> copyList(List<R> list, Class<T> clazz, Convert<R, T> convert) {
@@ -0,0 +1,211 @@
+package com.tianji.common.utils;
+
+import cn.hutool.core.bean.BeanDesc;
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.bean.PropDesc;
+import cn.hutool.core.convert.BasicType;
+import cn.hutool.core.convert.Convert;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 生成式的bean拷贝器
+ * <p>
+ * 每对(源类型, 目标类型)第一次拷贝时，按hutool的属性规则找出同名的属性，
+ * 通过 LambdaMetafactory 为构造函数、getter、setter生成直接调用的类并缓存，之后的拷贝不再经过反射。
+ * 类型相同的属性直接赋值，类型不同的仍交给hutool的Convert转换，与 BeanUtil.toBean 的结果保持一致。
+ * 集合和Map类型的属性与hutool一样总是转换为新的实例，拷贝结果与源对象不共享集合。
+ * <p>
+ * 源对象是Map、目标类型没有公开的无参构造、属性没有公开的getter/setter等情况无法生成，返回null，由调用方退回hutool
+ */
+@Slf4j
+final class GeneratedBeanCopier<S, T> {
+
+    private static final Map<Class<?>, Map<Class<?>, Object>> COPIERS = new ConcurrentHashMap<>();
+    /**
+     * 无法生成拷贝器的类型对，同样缓存，避免重复尝试
+     */
+    private static final Object UNSUPPORTED = new Object();
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Supplier<T> constructor;
+    private final PropertyCopier[] properties;
+
+    private GeneratedBeanCopier(Supplier<T> constructor, PropertyCopier[] properties) {
+        this.constructor = constructor;
+        this.properties = properties;
+    }
+
+    /**
+     * 获取拷贝器
+     *
+     * @return 拷贝器，不支持的类型返回null
+     */
+    @SuppressWarnings("unchecked")
+    static <S, T> GeneratedBeanCopier<S, T> of(Class<S> sourceClass, Class<T> targetClass) {
+        Object copier = COPIERS.computeIfAbsent(sourceClass, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(targetClass, k -> {
+                    GeneratedBeanCopier<S, T> generated = generate(sourceClass, targetClass);
+                    return generated == null ? UNSUPPORTED : generated;
+                });
+        return copier == UNSUPPORTED ? null : (GeneratedBeanCopier<S, T>) copier;
+    }
+
+    T copy(S source) {
+        T target = constructor.get();
+        for (PropertyCopier property : properties) {
+            property.copy(source, target);
+        }
+        return target;
+    }
+
+    private static <S, T> GeneratedBeanCopier<S, T> generate(Class<S> sourceClass, Class<T> targetClass) {
+        if (Map.class.isAssignableFrom(sourceClass) || !isAccessible(sourceClass) || !isAccessible(targetClass)
+                || !BeanUtil.isBean(targetClass)) {
+            return null;
+        }
+        try {
+            // 1.目标对象的构造函数
+            Constructor<T> ctor = targetClass.getConstructor();
+            Supplier<T> constructor = constructor(ctor);
+            // 2.同名属性
+            BeanDesc sourceDesc = BeanUtil.getBeanDesc(sourceClass);
+            BeanDesc targetDesc = BeanUtil.getBeanDesc(targetClass);
+            List<PropertyCopier> properties = new ArrayList<>();
+            for (PropDesc targetProp : targetDesc.getProps()) {
+                if (!targetProp.isWritable(true)) {
+                    continue;
+                }
+                PropDesc sourceProp = sourceDesc.getProp(targetProp.getFieldName());
+                if (sourceProp == null || !sourceProp.isReadable(true)) {
+                    continue;
+                }
+                Method getter = sourceProp.getGetter();
+                Method setter = targetProp.getSetter();
+                if (!isAccessible(getter) || !isAccessible(setter)) {
+                    // 通过字段读写的属性无法生成，整个类型对退回hutool
+                    return null;
+                }
+                Type targetType = setter.getGenericParameterTypes()[0];
+                if (!(targetType instanceof Class) && !targetType.equals(getter.getGenericReturnType())) {
+                    // 泛型参数不同时hutool会按泛型转换元素，这里不处理，整个类型对退回hutool
+                    return null;
+                }
+                properties.add(new PropertyCopier(getter(getter), setter(setter), setter));
+            }
+            return new GeneratedBeanCopier<>(constructor, properties.toArray(new PropertyCopier[0]));
+        } catch (Throwable e) {
+            log.debug("无法为{} -> {}生成拷贝器，使用反射拷贝", sourceClass.getName(), targetClass.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 生成的类与本类在同一个类加载器中，只能访问公开且从本类加载器可见的类型
+     */
+    private static boolean isAccessible(Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        if (clazz.isArray()) {
+            return isAccessible(clazz.getComponentType());
+        }
+        if (!Modifier.isPublic(clazz.getModifiers())
+                || (clazz.getEnclosingClass() != null && !isAccessible(clazz.getEnclosingClass()))) {
+            return false;
+        }
+        try {
+            return Class.forName(clazz.getName(), false, GeneratedBeanCopier.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static boolean isAccessible(Method method) {
+        if (method == null || !Modifier.isPublic(method.getModifiers()) || !isAccessible(method.getDeclaringClass())) {
+            return false;
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            if (!isAccessible(type)) {
+                return false;
+            }
+        }
+        return isAccessible(method.getReturnType());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> constructor(Constructor<T> ctor) throws Throwable {
+        MethodHandle handle = LOOKUP.unreflectConstructor(ctor);
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get",
+                MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                handle, MethodType.methodType(ctor.getDeclaringClass()));
+        return (Supplier<T>) site.getTarget().invokeExact();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(Method getter) throws Throwable {
+        MethodHandle handle = LOOKUP.unreflect(getter);
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply",
+                MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+                handle, MethodType.methodType(BasicType.wrap(getter.getReturnType()), getter.getDeclaringClass()));
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setter(Method setter) throws Throwable {
+        MethodHandle handle = LOOKUP.unreflect(setter);
+        // 链式setter的返回值直接丢弃
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                MethodType.methodType(BiConsumer.class), MethodType.methodType(void.class, Object.class, Object.class),
+                handle, MethodType.methodType(void.class, setter.getDeclaringClass(),
+                        BasicType.wrap(setter.getParameterTypes()[0])));
+        return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    private static class PropertyCopier {
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        private final Class<?> targetClass;
+        private final Type targetType;
+        private final boolean primitive;
+        /**
+         * 集合和Map即使类型相同也要转换，避免拷贝结果与源对象共享同一个实例
+         */
+        private final boolean container;
+
+        PropertyCopier(Function<Object, Object> getter, BiConsumer<Object, Object> setter, Method setterMethod) {
+            this.getter = getter;
+            this.setter = setter;
+            Class<?> paramClass = setterMethod.getParameterTypes()[0];
+            this.targetClass = BasicType.wrap(paramClass);
+            this.targetType = setterMethod.getGenericParameterTypes()[0];
+            this.primitive = paramClass.isPrimitive();
+            this.container = Collection.class.isAssignableFrom(paramClass) || Map.class.isAssignableFrom(paramClass);
+        }
+
+        void copy(Object source, Object target) {
+            Object value = getter.apply(source);
+            if (value != null && (container || !targetClass.isInstance(value))) {
+                // 类型不同或者是集合，与hutool一样转换，转换失败抛出异常
+                value = Convert.convertWithCheck(targetType, value, null, false);
+            }
+            if (value == null && primitive) {
+                return;
+            }
+            setter.accept(target, value);
+        }
+    }
+}
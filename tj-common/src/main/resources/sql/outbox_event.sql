@@ -0,0 +1,17 @@
+-- 本地消息表，开启 tj.outbox.enabled 的服务需要在各自的业务库中执行
+CREATE TABLE IF NOT EXISTS `outbox_event` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '消息id，也是发送顺序',
+  `exchange` varchar(128) NOT NULL COMMENT '交换机',
+  `routing_key` varchar(128) NOT NULL COMMENT '路由key',
+  `payload` text NOT NULL COMMENT '消息内容，json格式',
+  `payload_type` varchar(255) NOT NULL COMMENT '消息内容的类型',
+  `request_id` varchar(64) DEFAULT NULL COMMENT '请求id',
+  `status` tinyint NOT NULL DEFAULT '0' COMMENT '状态：0-待发送，1-发送中，2-发送失败',
+  `retries` int NOT NULL DEFAULT '0' COMMENT '已重试次数',
+  `owner` varchar(64) DEFAULT NULL COMMENT '领取消息的发送批次',
+  `next_time` datetime NOT NULL COMMENT '下次可以发送的时间，发送中的为租约到期时间',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_status_next_time` (`status`, `next_time`),
+  KEY `idx_owner` (`owner`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='本地消息表';
@@ -0,0 +1,118 @@
+package com.tianji.common.autoconfigure.mq;
+
+import com.tianji.common.exceptions.CommonException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingRabbitPublisherTest {
+
+    private static final String EXCHANGE = "test.topic";
+
+    private final StubAmqpBroker broker = new StubAmqpBroker();
+    private BatchingRabbitPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+        broker.shutdown();
+    }
+
+    @Test
+    void testAllMessagesPublishedAndConfirmed() throws InterruptedException {
+        publisher = newPublisher(new MqProperties.Batch());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            futures.add(publisher.send(EXCHANGE, "key." + (i % 2), i));
+        }
+        awaitTrue(() -> publisher.getPendingCount() == 0);
+        futures.forEach(f -> assertTrue(f.isDone() && !f.isCompletedExceptionally()));
+        assertEquals(125, broker.count("key.0"));
+        assertEquals(125, broker.count("key.1"));
+    }
+
+    @Test
+    void testNackedMessageRepublished() throws InterruptedException {
+        publisher = newPublisher(new MqProperties.Batch());
+        // 每条消息第一次发送时被拒绝
+        broker.nack = r -> broker.received.stream().filter(x -> x.body.equals(r.body)).count() == 1;
+        for (int i = 0; i < 50; i++) {
+            publisher.send(EXCHANGE, "key", i);
+        }
+        awaitTrue(() -> publisher.getPendingCount() == 0);
+        Map<String, Long> counts = broker.received.stream()
+                .collect(Collectors.groupingBy(r -> r.body, Collectors.counting()));
+        assertEquals(50, counts.size());
+        counts.values().forEach(c -> assertEquals(2L, c));
+    }
+
+    @Test
+    void testRepublishedAfterUnexpectedError() throws InterruptedException {
+        publisher = newPublisher(new MqProperties.Batch());
+        broker.publishError = new IllegalStateException("unexpected");
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(publisher.send(EXCHANGE, "key", i));
+        }
+        awaitTrue(() -> publisher.getPendingCount() == 0);
+        futures.forEach(f -> assertTrue(f.isDone() && !f.isCompletedExceptionally()));
+        assertEquals(10, broker.count("key"));
+    }
+
+    @Test
+    void testGiveUpAfterMaxRetries() throws InterruptedException {
+        MqProperties.Batch properties = new MqProperties.Batch();
+        properties.setMaxRetries(2);
+        publisher = newPublisher(properties);
+        broker.nack = r -> true;
+        CompletableFuture<Void> future = publisher.send(EXCHANGE, "key", 1);
+        awaitTrue(() -> publisher.getPendingCount() == 0);
+        assertEquals(3, broker.count("key"));
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    void testBackpressureWhenConfirmsPending() throws InterruptedException {
+        MqProperties.Batch properties = new MqProperties.Batch();
+        properties.setMaxPending(5);
+        properties.setAcquireTimeout(Duration.ofMillis(100));
+        publisher = newPublisher(properties);
+        broker.confirm = false;
+        for (int i = 0; i < 5; i++) {
+            publisher.send(EXCHANGE, "key", i);
+        }
+        assertThrows(CommonException.class, () -> publisher.send(EXCHANGE, "key", 5));
+        awaitTrue(() -> broker.count("key") == 5);
+        // broker恢复确认后，超时的消息重发并被确认
+        broker.confirm = true;
+        awaitTrue(() -> publisher.getPendingCount() == 0);
+        publisher.send(EXCHANGE, "key", 5);
+    }
+
+    private BatchingRabbitPublisher newPublisher(MqProperties.Batch properties) {
+        properties.setConfirmTimeout(Duration.ofMillis(500));
+        return new BatchingRabbitPublisher(new CachingConnectionFactory(broker.connectionFactory()),
+                new Jackson2JsonMessageConverter(), properties);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.tianji.common.autoconfigure.mq;
+
+import com.rabbitmq.client.*;
+import org.mockito.stubbing.Answer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 单元测试用的AMQP broker替身
+ * <p>
+ * 模拟rabbitmq客户端的连接和channel，记录收到的消息，并在channel开启confirm时异步回复ack或nack
+ */
+class StubAmqpBroker {
+
+    /**
+     * 收到的消息，包括被nack的
+     */
+    final List<Received> received = new CopyOnWriteArrayList<>();
+    /**
+     * 需要回复nack的消息
+     */
+    volatile Predicate<Received> nack = r -> false;
+    /**
+     * 是否回复确认
+     */
+    volatile boolean confirm = true;
+    /**
+     * 发送时抛出的异常，只抛出一次
+     */
+    volatile RuntimeException publishError;
+
+    private final ExecutorService confirmExecutor = Executors.newSingleThreadExecutor();
+
+    ConnectionFactory connectionFactory() {
+        Connection connection = mock(Connection.class, (Answer<Object>) invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "isOpen":
+                    return true;
+                case "createChannel":
+                    return channel();
+                case "getAddress":
+                    return java.net.InetAddress.getLoopbackAddress();
+                case "getPort":
+                    return 5672;
+                default:
+                    return RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+        return mock(ConnectionFactory.class, (Answer<Object>) invocation ->
+                invocation.getMethod().getReturnType() == Connection.class
+                        ? connection : RETURNS_DEFAULTS.answer(invocation));
+    }
+
+    private Channel channel() {
+        ChannelState state = new ChannelState();
+        return mock(Channel.class, (Answer<Object>) invocation -> {
+            Object[] args = invocation.getArguments();
+            switch (invocation.getMethod().getName()) {
+                case "isOpen":
+                    return true;
+                case "getNextPublishSeqNo":
+                    return state.confirmSelected ? state.seqNo + 1 : 0L;
+                case "confirmSelect":
+                    state.confirmSelected = true;
+                    return null;
+                case "addConfirmListener":
+                    if (args.length == 1) {
+                        state.listener = (ConfirmListener) args[0];
+                    }
+                    return null;
+                case "basicPublish":
+                    publish(state, args);
+                    return null;
+                default:
+                    return RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+    }
+
+    private void publish(ChannelState state, Object[] args) {
+        RuntimeException error = publishError;
+        if (error != null) {
+            publishError = null;
+            throw error;
+        }
+        byte[] body = (byte[]) args[args.length - 1];
+        Received r = new Received((String) args[0], (String) args[1], new String(body, StandardCharsets.UTF_8));
+        received.add(r);
+        if (!state.confirmSelected) {
+            return;
+        }
+        long seqNo = ++state.seqNo;
+        if (!confirm || state.listener == null) {
+            return;
+        }
+        boolean ack = !nack.test(r);
+        ConfirmListener listener = state.listener;
+        confirmExecutor.execute(() -> {
+            try {
+                if (ack) {
+                    listener.handleAck(seqNo, false);
+                } else {
+                    listener.handleNack(seqNo, false);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    long count(String routingKey) {
+        return received.stream().filter(r -> r.routingKey.equals(routingKey)).count();
+    }
+
+    void shutdown() {
+        confirmExecutor.shutdownNow();
+    }
+
+    private static class ChannelState {
+        private volatile boolean confirmSelected;
+        private volatile ConfirmListener listener;
+        private long seqNo;
+    }
+
+    static class Received {
+        final String exchange;
+        final String routingKey;
+        final String body;
+
+        Received(String exchange, String routingKey, String body) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.body = body;
+        }
+    }
+}
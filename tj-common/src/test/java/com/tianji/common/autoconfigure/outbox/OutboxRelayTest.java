@@ -0,0 +1,112 @@
+package com.tianji.common.autoconfigure.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private static final String EXCHANGE = "test.topic";
+
+    private final OutboxRepository repository = mock(OutboxRepository.class);
+    private final RabbitMqHelper mqHelper = mock(RabbitMqHelper.class);
+    private final OutboxProperties properties = new OutboxProperties();
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        properties.setPollInterval(Duration.ofMillis(20));
+        properties.setLease(Duration.ofMillis(400));
+        properties.setMaxRetries(3);
+        relay = new OutboxRelay(repository, mqHelper, new ObjectMapper(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.shutdown();
+    }
+
+    @Test
+    void testConfirmedDeletedAndFailedRetried() {
+        when(repository.claim(anyString(), any(), anyInt()))
+                .thenReturn(List.of(message(1L, "a"), message(2L, "b")), Collections.emptyList());
+        when(mqHelper.sendBatched(EXCHANGE, "a", 1L)).thenReturn(CompletableFuture.completedFuture(null));
+        when(mqHelper.sendBatched(EXCHANGE, "b", 2L)).thenReturn(failedFuture());
+
+        relay.start();
+
+        verify(repository, timeout(2000)).delete(List.of(1L));
+        verify(repository, timeout(2000)).retry(eq(List.of(2L)), anyString(), eq(3));
+        verify(repository, never()).createTable();
+    }
+
+    @Test
+    void testUnconfirmedRetriedAfterHalfLease() {
+        when(repository.claim(anyString(), any(), anyInt()))
+                .thenReturn(List.of(message(1L, "a")), Collections.emptyList());
+        when(mqHelper.sendBatched(EXCHANGE, "a", 1L)).thenReturn(new CompletableFuture<>());
+
+        relay.start();
+
+        verify(repository, timeout(2000)).retry(eq(List.of(1L)), anyString(), eq(3));
+        verify(repository).delete(Collections.emptyList());
+    }
+
+    @Test
+    void testUnknownPayloadTypeRetriedWithoutSending() {
+        OutboxRepository.OutboxMessage m = message(1L, "a");
+        m.setPayloadType("com.tianji.NotExists");
+        when(repository.claim(anyString(), any(), anyInt()))
+                .thenReturn(List.of(m), Collections.emptyList());
+
+        relay.start();
+
+        verify(repository, timeout(2000)).retry(eq(List.of(1L)), anyString(), eq(3));
+        verify(mqHelper, never()).sendBatched(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testBacklogRelayedInOneRun() {
+        properties.setBatchSize(2);
+        // 不等定时任务，只触发一次发送
+        properties.setPollInterval(Duration.ofMinutes(1));
+        when(repository.claim(anyString(), any(), eq(2)))
+                .thenReturn(List.of(message(1L, "a"), message(2L, "a")), List.of(message(3L, "a")),
+                        Collections.emptyList());
+        when(mqHelper.sendBatched(eq(EXCHANGE), eq("a"), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.start();
+        relay.wakeUp();
+
+        verify(repository, timeout(2000)).delete(List.of(1L, 2L));
+        verify(repository, timeout(2000)).delete(List.of(3L));
+        verify(repository, times(2)).claim(anyString(), any(), eq(2));
+    }
+
+    private static OutboxRepository.OutboxMessage message(Long id, String routingKey) {
+        OutboxRepository.OutboxMessage m = new OutboxRepository.OutboxMessage();
+        m.setId(id);
+        m.setExchange(EXCHANGE);
+        m.setRoutingKey(routingKey);
+        m.setPayload(String.valueOf(id));
+        m.setPayloadType(Long.class.getName());
+        m.setRetries(0);
+        return m;
+    }
+
+    private static CompletableFuture<Void> failedFuture() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalStateException("nack"));
+        return future;
+    }
+}
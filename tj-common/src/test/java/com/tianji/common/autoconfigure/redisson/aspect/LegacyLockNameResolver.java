@@ -0,0 +1,42 @@
+package com.tianji.common.autoconfigure.redisson.aspect;
+
+import com.tianji.common.utils.StringUtils;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.ObjectUtils;
+
+import java.lang.reflect.Method;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 原LockAspect中的锁名称解析方式，每次加锁都创建解析器和context，仅用于对比测试
+ */
+public class LegacyLockNameResolver {
+
+    private static final Pattern pattern = Pattern.compile("\\#\\{([^\\}]*)\\}");
+    private static final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    public static String resolve(String name, Method method, Object[] args) {
+        if (StringUtils.isBlank(name) || !name.contains("#")) {
+            return name;
+        }
+        EvaluationContext context = new MethodBasedEvaluationContext(
+                TypedValue.NULL, method, args, parameterNameDiscoverer);
+        ExpressionParser parser = new SpelExpressionParser();
+        Matcher matcher = pattern.matcher(name);
+        while (matcher.find()) {
+            String tmp = matcher.group();
+            Expression expression = parser.parseExpression("#" + matcher.group(1));
+            Object value = expression.getValue(context);
+            name = name.replace(tmp, ObjectUtils.nullSafeToString(value));
+        }
+        return name;
+    }
+}
@@ -0,0 +1,110 @@
+package com.tianji.common.autoconfigure.redisson.aspect;
+
+import com.tianji.common.autoconfigure.redisson.aspect.LockNameResolverTest.LockedService;
+import com.tianji.common.autoconfigure.redisson.aspect.LockNameResolverTest.PayOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.redisson.Redisson;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加锁开销的基准测试，对比每次解析锁名称与缓存解析结果，直接运行main方法即可
+ * <p>
+ * 加锁的测试使用内嵌Redis，结果主要反映本机往返之外的额外开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LockAspectBenchmark {
+
+    private static final String NAME = "pay:notify:payOrderNo:#{payOrder.payOrderNo}";
+
+    private RedisServer redisServer;
+    private RedissonClient redissonClient;
+    private final LockNameResolver resolver = new LockNameResolver();
+    private Method method;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+        redissonClient = Redisson.create(config);
+        method = LockedService.class.getMethod("checkPayOrder", PayOrder.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @Benchmark
+    public String legacyResolve() {
+        return LegacyLockNameResolver.resolve(NAME, method, args());
+    }
+
+    @Benchmark
+    public String cachedResolve() {
+        return resolver.resolve(NAME, method, LockedService.class, args());
+    }
+
+    @Benchmark
+    public boolean legacyLock() throws InterruptedException {
+        return lockAndUnlock(LegacyLockNameResolver.resolve(NAME, method, args()));
+    }
+
+    @Benchmark
+    public boolean cachedLock() throws InterruptedException {
+        return lockAndUnlock(resolver.resolve(NAME, method, LockedService.class, args()));
+    }
+
+    private Object[] args() {
+        return new Object[]{new PayOrder(ThreadLocalRandom.current().nextLong(1000), 10L)};
+    }
+
+    private boolean lockAndUnlock(String name) throws InterruptedException {
+        RLock lock = redissonClient.getLock(name);
+        boolean success = lock.tryLock(0, 30, TimeUnit.SECONDS);
+        if (success) {
+            lock.unlock();
+        }
+        return success;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LockAspectBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
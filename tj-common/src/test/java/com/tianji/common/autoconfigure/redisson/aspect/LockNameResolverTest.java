@@ -0,0 +1,58 @@
+package com.tianji.common.autoconfigure.redisson.aspect;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockNameResolverTest {
+
+    private static final String NAME = "pay:notify:payOrderNo:#{payOrder.payOrderNo}";
+
+    private final LockNameResolver resolver = new LockNameResolver();
+
+    @Test
+    void testResolveMatchesLegacy() throws Exception {
+        Method method = LockedService.class.getMethod("checkPayOrder", PayOrder.class);
+        // 多次解析，覆盖缓存和SpEL编译后的结果
+        for (long i = 0; i < 200; i++) {
+            Object[] args = {new PayOrder(i, 10L)};
+            String name = resolver.resolve(NAME, method, LockedService.class, args);
+            assertEquals("pay:notify:payOrderNo:" + i, name);
+            assertEquals(LegacyLockNameResolver.resolve(NAME, method, args), name);
+        }
+    }
+
+    @Test
+    void testMultipleExpressionsAndIndexVariables() throws Exception {
+        Method method = LockedService.class.getMethod("receiveCoupon", Long.class, Long.class);
+        String name = resolver.resolve("lock:#{userId}:coupon:#{p1}:end", method, LockedService.class,
+                new Object[]{1L, 2L});
+        assertEquals("lock:1:coupon:2:end", name);
+        assertEquals("lock:null", resolver.resolve("lock:#{a0}", method, String.class, new Object[]{null, 2L}));
+    }
+
+    @Test
+    void testNameWithoutExpression() throws Exception {
+        Method method = LockedService.class.getMethod("receiveCoupon", Long.class, Long.class);
+        assertEquals("lock:plain", resolver.resolve("lock:plain", method, LockedService.class, new Object[]{1L, 2L}));
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class PayOrder {
+        private Long payOrderNo;
+        private Long amount;
+    }
+
+    public static class LockedService {
+        public void checkPayOrder(PayOrder payOrder) {
+        }
+
+        public void receiveCoupon(Long userId, Long couponId) {
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.tianji.common.utils;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.tianji.common.utils.BeanUtilsTest.LessonPO;
+import com.tianji.common.utils.BeanUtilsTest.LessonVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成的拷贝器与hutool反射拷贝的性能对比，直接运行main方法即可
+ * <p>
+ * size对应分页接口一页的数据量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BeanCopyBenchmark {
+
+    @Param({"10", "200"})
+    private int size;
+
+    private List<LessonPO> lessons;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(size);
+        lessons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LessonPO po = new LessonPO();
+            po.setId(random.nextLong());
+            po.setCreateTime(LocalDateTime.now());
+            po.setUserId(random.nextLong());
+            po.setCourseId(random.nextLong());
+            po.setCourseName("课程" + i);
+            po.setStatus(random.nextInt(4));
+            po.setLearnedSections(random.nextInt(100));
+            po.setWeekFreq(random.nextInt(7));
+            po.setPlanStatus(random.nextBoolean());
+            po.setScore(random.nextInt(100));
+            po.setSectionIds(List.of(random.nextLong(), random.nextLong()));
+            lessons.add(po);
+        }
+    }
+
+    @Benchmark
+    public List<LessonVO> generatedCopier() {
+        return BeanUtils.copyList(lessons, LessonVO.class);
+    }
+
+    @Benchmark
+    public List<LessonVO> hutoolReflection() {
+        return BeanUtil.copyToList(lessons, LessonVO.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BeanCopyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,128 @@
+package com.tianji.common.utils;
+
+import cn.hutool.core.bean.BeanUtil;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 生成的拷贝器只支持公开的类型，所以测试类和其中的PO、VO都是public
+ */
+public class BeanUtilsTest {
+
+    @Test
+    void testCopyBeanMatchesHutool() {
+        Random random = new Random(1);
+        for (int i = 0; i < 30; i++) {
+            LessonPO po = newLesson(random, i);
+            assertEquals(BeanUtil.toBean(po, LessonVO.class), BeanUtils.copyBean(po, LessonVO.class));
+        }
+        assertNotNull(GeneratedBeanCopier.of(LessonPO.class, LessonVO.class));
+    }
+
+    @Test
+    void testCopyBeanCopiesCollections() {
+        LessonPO po = newLesson(new Random(3), 1);
+        po.setSectionIds(new ArrayList<>(List.of(1L, 2L)));
+
+        LessonVO vo = BeanUtils.copyBean(po, LessonVO.class);
+
+        assertEquals(po.getSectionIds(), vo.getSectionIds());
+        assertNotSame(po.getSectionIds(), vo.getSectionIds());
+        // 修改源对象的集合不影响拷贝结果
+        po.getSectionIds().add(3L);
+        assertEquals(List.of(1L, 2L), vo.getSectionIds());
+    }
+
+    @Test
+    void testCopyListAndConvert() {
+        Random random = new Random(2);
+        List<LessonPO> lessons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            lessons.add(newLesson(random, i));
+        }
+        List<LessonVO> vos = BeanUtils.copyList(lessons, LessonVO.class, (po, vo) -> vo.setOnlyInTarget("x"));
+        assertEquals(lessons.size(), vos.size());
+        for (int i = 0; i < lessons.size(); i++) {
+            assertEquals(lessons.get(i).getId(), vos.get(i).getId());
+            assertEquals(lessons.get(i).getStatus().longValue(), vos.get(i).getStatus());
+            assertEquals("x", vos.get(i).getOnlyInTarget());
+        }
+        assertTrue(BeanUtils.copyList(null, LessonVO.class).isEmpty());
+        assertNull(BeanUtils.copyBean(null, LessonVO.class));
+    }
+
+    @Test
+    void testMapSourceFallsBackToHutool() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", 1L);
+        map.put("courseName", "java");
+        LessonVO vo = BeanUtils.copyBean(map, LessonVO.class);
+        assertEquals(1L, vo.getId());
+        assertEquals("java", vo.getCourseName());
+    }
+
+    private static LessonPO newLesson(Random random, int i) {
+        LessonPO po = new LessonPO();
+        po.setId(random.nextLong());
+        po.setCreateTime(LocalDateTime.now());
+        po.setUserId(random.nextLong());
+        po.setCourseId(random.nextLong());
+        po.setCourseName("课程" + i);
+        po.setStatus(random.nextInt(4));
+        // 部分数据为null，验证基本类型的处理
+        po.setLearnedSections(i % 3 == 0 ? null : random.nextInt(100));
+        po.setWeekFreq(random.nextInt(7));
+        po.setPlanStatus(random.nextBoolean());
+        po.setScore(random.nextInt(100));
+        po.setSectionIds(List.of(random.nextLong(), random.nextLong()));
+        po.setIgnoredInTarget("ignored");
+        return po;
+    }
+
+    @Data
+    public static class BasePO {
+        private Long id;
+        private LocalDateTime createTime;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class LessonPO extends BasePO {
+        private Long userId;
+        private Long courseId;
+        private String courseName;
+        private Integer status;
+        private Integer learnedSections;
+        private Integer weekFreq;
+        private Boolean planStatus;
+        private int score;
+        private List<Long> sectionIds;
+        private String ignoredInTarget;
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class LessonVO {
+        private Long id;
+        private Long courseId;
+        private String courseName;
+        /**
+         * 类型与PO不同，需要转换
+         */
+        private Long status;
+        private int learnedSections;
+        private String weekFreq;
+        private Boolean planStatus;
+        private Integer score;
+        private List<Long> sectionIds;
+        private LocalDateTime createTime;
+        private String onlyInTarget;
+    }
+}
@@ -1,5 +1,6 @@
 package com.tianji.course;
 
+import com.tianji.api.annotations.EnableUserCache;
 import lombok.extern.slf4j.Slf4j;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
@@ -22,6 +23,7 @@ import java.net.UnknownHostException;
 @EnableScheduling
 @MapperScan("com.tianji.course.mapper")
 @EnableAspectJAutoProxy
+@EnableUserCache
 @Slf4j
 public class CourseApplication {
     public static void main(String[] args) throws UnknownHostException {
@@ -13,7 +13,7 @@ import com.tianji.api.dto.course.CourseDTO;
 import com.tianji.api.dto.course.CoursePurchaseInfoDTO;
 import com.tianji.api.dto.exam.QuestionBizDTO;
 import com.tianji.api.dto.user.UserDTO;
-import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
+import com.tianji.common.autoconfigure.outbox.OutboxHelper;
 import com.tianji.common.constants.ErrorInfo;
 import com.tianji.common.constants.MqConstants;
 import com.tianji.common.domain.dto.PageDTO;
@@ -94,7 +94,7 @@ public class CourseDraftServiceImpl extends ServiceImpl<CourseDraftMapper, Cours
     private ICategoryService categoryService;
 
     @Autowired
-    private RabbitMqHelper rabbitMqHelper;
+    private OutboxHelper outboxHelper;
 
     @Autowired
     private TradeClient tradeClient;
@@ -404,7 +404,7 @@ public class CourseDraftServiceImpl extends ServiceImpl<CourseDraftMapper, Cours
 
         }
         //5.课程上架mq
-        rabbitMqHelper.send(MqConstants.Exchange.COURSE_EXCHANGE, MqConstants.Key.COURSE_UP_KEY, id);
+        outboxHelper.send(MqConstants.Exchange.COURSE_EXCHANGE, MqConstants.Key.COURSE_UP_KEY, id);
     }
 
     @Override
@@ -471,7 +471,7 @@ public class CourseDraftServiceImpl extends ServiceImpl<CourseDraftMapper, Cours
         //7.课程老师copy到草稿中
         courseTeacherDraftMapper.insertFromCourseTeacher(id);
         //8.下架mq广播
-        rabbitMqHelper.send(MqConstants.Exchange.COURSE_EXCHANGE, MqConstants.Key.COURSE_DOWN_KEY, id);
+        outboxHelper.send(MqConstants.Exchange.COURSE_EXCHANGE, MqConstants.Key.COURSE_DOWN_KEY, id);
     }
 
     @GlobalTransactional
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.tianji.api.cache.UserCache;
 import com.tianji.api.client.exam.ExamClient;
 import com.tianji.api.client.learning.LearningClient;
 import com.tianji.api.client.trade.TradeClient;
@@ -81,6 +82,9 @@ public class CourseServiceImpl extends ServiceImpl<CourseMapper, Course> impleme
     @Autowired
     private UserClient userClient;
 
+    @Autowired
+    private UserCache userCache;
+
     @Autowired
     private TradeClient tradeClient;
 
@@ -254,7 +258,7 @@ public class CourseServiceImpl extends ServiceImpl<CourseMapper, Course> impleme
         vo.setSections(course.getSectionNum());
         vo.setCoverUrl(course.getCoverUrl());
         // 4.查询教师信息
-        List<UserDTO> teachers = userClient.queryUserByIds(course.getTeacherIds());
+        List<UserDTO> teachers = userCache.queryUserByIds(course.getTeacherIds());
         if (CollUtils.isNotEmpty(teachers)) {
             UserDTO teacher = teachers.get(0);
             vo.setTeacherName(teacher.getName());
@@ -1,5 +1,6 @@
 package com.tianji.exam;
 
+import com.tianji.api.annotations.EnableUserCache;
 import lombok.extern.slf4j.Slf4j;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
@@ -11,6 +12,7 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 
 @Slf4j
+@EnableUserCache
 @MapperScan("com.tianji.exam.mapper")
 @SpringBootApplication
 public class ExamApplication {
@@ -3,7 +3,7 @@ package com.tianji.exam.service.impl;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.tianji.api.cache.CategoryCache;
-import com.tianji.api.client.user.UserClient;
+import com.tianji.api.cache.UserCache;
 import com.tianji.api.dto.IdAndNumDTO;
 import com.tianji.api.dto.exam.QuestionDTO;
 import com.tianji.api.dto.user.UserDTO;
@@ -47,7 +47,7 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
 
     private final IQuestionDetailService detailService;
     private final IQuestionBizService bizService;
-    private final UserClient userClient;
+    private final UserCache userCache;
     private final CategoryCache categoryCache;
 
     @Override
@@ -134,7 +134,7 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
         // 3.2.查询用户
         Map<Long, UserDTO> userMap = new HashMap<>(uIds.size());
         if (CollUtils.isNotEmpty(uIds)) {
-            List<UserDTO> users = userClient.queryUserByIds(uIds);
+            List<UserDTO> users = userCache.queryUserByIds(uIds);
             userMap = users.stream().collect(Collectors.toMap(UserDTO::getId, u -> u));
         }
         // 4.处理vo
@@ -167,7 +167,7 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
             throw new BadRequestException(QUESTION_NOT_EXISTS);
         }
         // 3.查询题目的录入者
-        UserDTO u = userClient.queryUserById(q.getCreater());
+        UserDTO u = userCache.queryUserById(q.getCreater());
         // 4.转换vo
         QuestionDetailVO v = BeanUtils.copyBean(q, QuestionDetailVO.class);
         // 4.1.详情
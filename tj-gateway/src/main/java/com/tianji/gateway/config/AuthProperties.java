@@ -1,6 +1,10 @@
 package com.tianji.gateway.config;
 
+import com.tianji.authsdk.gateway.util.AntPathTrie;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
@@ -14,6 +18,13 @@ public class AuthProperties implements InitializingBean {
 
     private Set<String> excludePath;
 
+    /**
+     * 由excludePath构建的匹配树，nacos配置刷新重新绑定时会再次调用afterPropertiesSet重建
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile AntPathTrie excludePathTrie;
+
     @Override
     public void afterPropertiesSet() throws Exception {
         // 添加默认不拦截的路径
@@ -22,5 +33,15 @@ public class AuthProperties implements InitializingBean {
         excludePath.add("/accounts/login");
         excludePath.add("/accounts/admin/login");
         excludePath.add("/accounts/refresh");
+        excludePathTrie = AntPathTrie.of(excludePath);
+    }
+
+    /**
+     * 判断是否是无需登录的路径
+     *
+     * @param antPath 请求方式:请求路径
+     */
+    public boolean isExcludePath(String antPath) {
+        return excludePathTrie.matches(antPath);
     }
 }
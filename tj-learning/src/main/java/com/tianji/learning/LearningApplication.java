@@ -1,5 +1,6 @@
 package com.tianji.learning;
 
+import com.tianji.api.annotations.EnableUserCache;
 import lombok.extern.slf4j.Slf4j;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
@@ -13,6 +14,7 @@ import java.net.UnknownHostException;
 
 @SpringBootApplication
 @EnableScheduling
+@EnableUserCache
 @MapperScan("com.tianji.learning.mapper")
 @Slf4j
 public class LearningApplication {
@@ -0,0 +1,28 @@
+package com.tianji.learning.config;
+
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LearningMqConfig {
+
+    /**
+     * 批量消费点赞数变更消息的监听容器，攒够一批或等待超时后一次性交给监听器处理，
+     * 监听器写入数据库后整批确认
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory likedTimesContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory){
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(100);
+        factory.setPrefetchCount(100);
+        factory.setReceiveTimeout(500L);
+        return factory;
+    }
+}
@@ -0,0 +1,8 @@
+package com.tianji.learning.constants;
+
+public interface LearningConstants {
+    /**
+     * 历史赛季榜单表名前缀，后接赛季id，表中的id即为名次
+     */
+    String POINTS_BOARD_TABLE_PREFIX = "points_board_";
+}
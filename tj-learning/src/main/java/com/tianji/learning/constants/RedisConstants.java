@@ -2,5 +2,45 @@ package com.tianji.learning.constants;
 
 public interface RedisConstants {
     String SING_RECORD_KEY_PREFIX = "sign:uid:";
+    /**
+     * 每日全站签到位图，key后缀为日期yyyyMMdd，offset为用户的签到序号
+     */
+    String SIGN_DAY_KEY_PREFIX = "sign:day:";
+    /**
+     * 用户签到序号，hash结构：field为用户id，value为从1开始连续分配的序号，用作每日签到位图的offset
+     */
+    String SIGN_USER_INDEX_KEY = "sign:user:index";
+    /**
+     * 用户签到序号的发号器
+     */
+    String SIGN_USER_INDEX_SEQ_KEY = "sign:user:seq";
     String POINTS_BOARD_KEY_PREFIX = "board";
+    /**
+     * 用户当日获得的积分，hash结构：key为 用户id:日期，field为积分类型，value为当日已获得的积分
+     */
+    String POINTS_DAILY_KEY_TEMPLATE = "points:daily:{}:{}";
+    /**
+     * 历史赛季榜单前列名次的缓存，zset结构：score为名次，member为 用户id:积分
+     */
+    String POINTS_BOARD_HISTORY_KEY_TEMPLATE = "board:history:{}";
+    /**
+     * 历史赛季用户名次的缓存，hash结构：field为用户id，value为 名次:积分，未上榜为 0:0
+     */
+    String POINTS_BOARD_HISTORY_USER_KEY_TEMPLATE = "board:history:{}:users";
+    /**
+     * 赛季榜单持久化进度，hash结构：field为分片序号，value为该分片已写入的最后一页，key后缀为赛季
+     */
+    String POINTS_BOARD_PERSIST_KEY_TEMPLATE = "board:persist:{}";
+    /**
+     * 学习记录缓存，hash结构：key为课表id，field为小节id，value为播放进度
+     */
+    String LEARNING_RECORD_KEY_TEMPLATE = "learning:record:{}";
+    /**
+     * 课表状态缓存，hash结构：key为用户id，field为课表id，value为课表的学习进度
+     */
+    String LEARNING_LESSON_KEY_TEMPLATE = "learning:lesson:{}";
+    /**
+     * 课程小节总数缓存，key为课程id
+     */
+    String COURSE_SECTION_NUM_KEY_TEMPLATE = "learning:course:sections:{}";
 }
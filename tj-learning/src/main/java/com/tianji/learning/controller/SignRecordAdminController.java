@@ -0,0 +1,43 @@
+package com.tianji.learning.controller;
+
+import com.tianji.common.utils.DateUtils;
+import com.tianji.learning.domain.vo.SignDailyActiveVO;
+import com.tianji.learning.service.ISignRecordService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Api(tags = "签到统计相关接口")
+@RestController
+@RequestMapping("/admin/sign-records")
+@RequiredArgsConstructor
+public class SignRecordAdminController {
+    private final ISignRecordService recordService;
+
+    @GetMapping("/daily-active")
+    @ApiOperation("查询每日签到人数")
+    public List<SignDailyActiveVO> queryDailyActive(
+            @ApiParam("开始日期") @RequestParam("begin") @DateTimeFormat(pattern = DateUtils.DEFAULT_DATE_FORMAT) LocalDate begin,
+            @ApiParam("结束日期") @RequestParam("end") @DateTimeFormat(pattern = DateUtils.DEFAULT_DATE_FORMAT) LocalDate end){
+        return recordService.queryDailyActive(begin, end);
+    }
+
+    @GetMapping("/cohort")
+    @ApiOperation("统计日期范围内的签到人数")
+    public Long countCohort(
+            @ApiParam("开始日期") @RequestParam("begin") @DateTimeFormat(pattern = DateUtils.DEFAULT_DATE_FORMAT) LocalDate begin,
+            @ApiParam("结束日期") @RequestParam("end") @DateTimeFormat(pattern = DateUtils.DEFAULT_DATE_FORMAT) LocalDate end,
+            @ApiParam("true：每天都签到的人数，false：至少签到一次的人数")
+            @RequestParam(value = "everyDay", defaultValue = "true") Boolean everyDay){
+        return recordService.countCohort(begin, end, everyDay);
+    }
+}
@@ -2,14 +2,17 @@ package com.tianji.learning.controller;
 
 
 import com.tianji.learning.domain.vo.SignResultVO;
+import com.tianji.learning.domain.vo.SignStatisticsVO;
 import com.tianji.learning.service.ISignRecordService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @Api(tags = "签到相关接口")
@@ -31,6 +34,13 @@ public class SignRecordController {
         return recordService.querySignRecord();
     }
 
+    @GetMapping("/statistics")
+    @ApiOperation("查询月度签到统计")
+    public SignStatisticsVO querySignStatistics(
+            @ApiParam("月份，格式：yyyyMM，为空则查询本月") @RequestParam(value = "month", required = false) String month){
+        return recordService.querySignStatistics(month);
+    }
+
 
 
 
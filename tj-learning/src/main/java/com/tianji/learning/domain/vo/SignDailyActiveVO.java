@@ -0,0 +1,20 @@
+package com.tianji.learning.domain.vo;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel(description = "每日签到人数")
+public class SignDailyActiveVO {
+    @ApiModelProperty("日期")
+    private LocalDate date;
+    @ApiModelProperty("签到人数")
+    private Long count;
+}
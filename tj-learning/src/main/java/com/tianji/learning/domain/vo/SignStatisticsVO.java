@@ -0,0 +1,20 @@
+package com.tianji.learning.domain.vo;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+@Data
+@ApiModel(description = "月度签到统计")
+public class SignStatisticsVO {
+    @ApiModelProperty("月份，格式：yyyyMM")
+    private String month;
+    @ApiModelProperty("本月签到天数")
+    private Integer signDays;
+    @ApiModelProperty("本月最长连续签到天数")
+    private Integer longestStreak;
+    @ApiModelProperty("截至最后一天的连续签到天数，当月为截至今天")
+    private Integer currentStreak;
+    @ApiModelProperty("签到日历，下标0为1号，1代表已签到")
+    private Byte[] records;
+}
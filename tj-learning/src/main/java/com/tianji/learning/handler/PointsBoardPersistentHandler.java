@@ -1,22 +1,35 @@
 package com.tianji.learning.handler;
 
+import com.tianji.common.exceptions.CommonException;
+import com.tianji.common.utils.BooleanUtils;
 import com.tianji.common.utils.CollUtils;
 import com.tianji.common.utils.DateUtils;
+import com.tianji.common.utils.NumberUtils;
+import com.tianji.common.utils.StringUtils;
 import com.tianji.learning.constants.RedisConstants;
 import com.tianji.learning.domain.po.PointsBoard;
 import com.tianji.learning.service.IPointsBoardSeasonService;
 import com.tianji.learning.service.IPointsBoardService;
-import com.tianji.learning.utils.TableInfoContext;
 import com.xxl.job.core.context.XxlJobHelper;
 import com.xxl.job.core.handler.annotation.XxlJob;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.BoundHashOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class PointsBoardPersistentHandler {
@@ -25,6 +38,32 @@ public class PointsBoardPersistentHandler {
 
     private final IPointsBoardService pointsBoardService;
 
+    private static final int PAGE_SIZE = 1000;
+    /**
+     * 读取与写入之间最多缓冲的页数
+     */
+    private static final int PIPELINE_CAPACITY = 4;
+    private static final String SHARD_TOTAL_FIELD = "total";
+    private static final String SHARD_DONE_FIELD_PREFIX = "done:";
+    private static final Duration PERSIST_PROGRESS_TTL = Duration.ofDays(7);
+
+    private ThreadPoolTaskExecutor readExecutor;
+
+    @PostConstruct
+    public void init() {
+        readExecutor = new ThreadPoolTaskExecutor();
+        readExecutor.setCorePoolSize(1);
+        readExecutor.setMaxPoolSize(4);
+        readExecutor.setQueueCapacity(0);
+        readExecutor.setThreadNamePrefix("points-board-reader-");
+        readExecutor.initialize();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        readExecutor.shutdown();
+    }
+
     @XxlJob("createTableJob")
     public void createPointsBoardTableOfLastSeason(){
         LocalDateTime time = LocalDateTime.now().minusMonths(1);
@@ -35,38 +74,143 @@ public class PointsBoardPersistentHandler {
         pointsBoardService.createPointsBoardTableBySeason(season);
     }
 
-
+    /**
+     * 持久化上赛季榜单
+     * <p>
+     * 各分片按名次分页读取，读取线程把数据放入有界队列，任务线程批量写入赛季表，每写完一页记录一次进度。
+     * 任务失败重试时从记录的进度继续，写入按名次覆盖，重复写入也不会产生重复数据
+     */
     @XxlJob("savePointsBoard2DB")
-    public void savePointsBoard2DB(){
+    public void savePointsBoard2DB() throws InterruptedException {
         LocalDateTime time = LocalDateTime.now().minusMonths(1);
         Integer season = seasonService.querySeasonByTime(time);
-        TableInfoContext.setInfo("points_board" + season);
-
+        if (season == null) {
+            return;
+        }
         //拼接key
         String key = RedisConstants.POINTS_BOARD_KEY_PREFIX + time.format(DateUtils.POINTS_BOARD_SUFFIX_FORMATTER);
         int index = XxlJobHelper.getShardIndex();
         int total = XxlJobHelper.getShardTotal();
-        int pageNo = index + 1;
-        int pageSize = 1000;
-        while (true){
-            List<PointsBoard> boardList = pointsBoardService.queryCurrentBoard(key, pageNo, pageSize);
-            if (CollUtils.isEmpty(boardList)) {
-                break;
+        // 1.读取进度，找到本分片要写入的第一页
+        BoundHashOperations<String, String, String> progress = redisTemplate.boundHashOps(
+                StringUtils.format(RedisConstants.POINTS_BOARD_PERSIST_KEY_TEMPLATE, season));
+        Integer pageNo = nextPageNo(progress, index, total);
+        if (pageNo == null) {
+            XxlJobHelper.log("赛季{}榜单的分片{}已经持久化完成", season, index);
+            return;
+        }
+        XxlJobHelper.log("赛季{}榜单持久化，分片{}/{}，从第{}页开始", season, index, total, pageNo);
+        // 2.读取线程，按名次分页读取Redis
+        BlockingQueue<BoardPage> queue = new ArrayBlockingQueue<>(PIPELINE_CAPACITY);
+        Future<?> reader = readExecutor.submit(() -> readPages(key, pageNo, total, queue));
+        // 3.写入赛季表，并记录进度
+        try {
+            while (true) {
+                BoardPage page = queue.take();
+                if (page.error != null) {
+                    throw new CommonException("读取赛季榜单失败，页码：" + page.pageNo, page.error);
+                }
+                if (CollUtils.isEmpty(page.list)) {
+                    break;
+                }
+                pointsBoardService.saveSeasonBoard(season, page.list);
+                progress.put(String.valueOf(index), String.valueOf(page.pageNo));
             }
-            boardList.forEach(b -> {
-                b.setId(b.getRank().longValue());
-                b.setRank(null);
-            });
-            pointsBoardService.saveBatch(boardList);
-            pageNo+=total;
+            progress.put(SHARD_DONE_FIELD_PREFIX + index, "1");
+        } finally {
+            reader.cancel(true);
         }
     }
 
+    /**
+     * 根据持久化进度计算本分片要写入的第一页
+     *
+     * @return 页码，本分片已经完成时返回null
+     */
+    private Integer nextPageNo(BoundHashOperations<String, String, String> progress, int index, int total) {
+        // 1.首次执行，记录分片数量
+        if (BooleanUtils.isTrue(progress.putIfAbsent(SHARD_TOTAL_FIELD, String.valueOf(total)))) {
+            progress.expire(PERSIST_PROGRESS_TTL);
+            return index + 1;
+        }
+        Map<String, String> entries = progress.entries();
+        // 2.分片数量变化，之前的进度无法复用，从头开始
+        if (entries == null || NumberUtils.parseInt(entries.get(SHARD_TOTAL_FIELD)) != total) {
+            redisTemplate.delete(progress.getKey());
+            progress.put(SHARD_TOTAL_FIELD, String.valueOf(total));
+            progress.expire(PERSIST_PROGRESS_TTL);
+            return index + 1;
+        }
+        // 3.从上次写入的下一页继续
+        if (entries.containsKey(SHARD_DONE_FIELD_PREFIX + index)) {
+            return null;
+        }
+        String lastPage = entries.get(String.valueOf(index));
+        return lastPage == null ? index + 1 : NumberUtils.parseInt(lastPage) + total;
+    }
+
+    private void readPages(String key, int pageNo, int total, BlockingQueue<BoardPage> queue) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<PointsBoard> boardList;
+                try {
+                    boardList = pointsBoardService.queryCurrentBoard(key, pageNo, PAGE_SIZE);
+                } catch (RuntimeException e) {
+                    queue.put(new BoardPage(pageNo, null, e));
+                    return;
+                }
+                // 名次作为赛季表的id
+                boardList.forEach(b -> {
+                    b.setId(b.getRank().longValue());
+                    b.setRank(null);
+                });
+                queue.put(new BoardPage(pageNo, boardList, null));
+                if (boardList.isEmpty()) {
+                    return;
+                }
+                pageNo += total;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 清理上赛季的Redis榜单，只有所有分片都持久化完成后才会删除
+     */
     @XxlJob("clearPointsBoardFromRedis")
     public void clearPointsBoardFromRedis(){
         LocalDateTime time = LocalDateTime.now().minusMonths(1);
+        Integer season = seasonService.querySeasonByTime(time);
+        if (season == null) {
+            return;
+        }
         String key = RedisConstants.POINTS_BOARD_KEY_PREFIX + time.format(DateUtils.POINTS_BOARD_SUFFIX_FORMATTER);
+        // 1.校验持久化进度
+        String progressKey = StringUtils.format(RedisConstants.POINTS_BOARD_PERSIST_KEY_TEMPLATE, season);
+        Map<String, String> entries = redisTemplate.<String, String>boundHashOps(progressKey).entries();
+        String total = entries == null ? null : entries.get(SHARD_TOTAL_FIELD);
+        long done = entries == null ? 0 : entries.keySet().stream().filter(f -> f.startsWith(SHARD_DONE_FIELD_PREFIX)).count();
+        if (total == null || done < NumberUtils.parseInt(total)) {
+            XxlJobHelper.handleFail(StringUtils.format("赛季{}榜单尚未持久化完成，已完成分片：{}/{}", season, done, total));
+            return;
+        }
+        // 2.删除Redis榜单和持久化进度
         redisTemplate.unlink(key);
+        redisTemplate.delete(progressKey);
+        // 3.持久化期间可能缓存了不完整的历史榜单，一并清理
+        pointsBoardService.cleanHistoryBoardCache(season);
     }
 
+    private static class BoardPage {
+        private final int pageNo;
+        private final List<PointsBoard> list;
+        private final RuntimeException error;
+
+        BoardPage(int pageNo, List<PointsBoard> list, RuntimeException error) {
+            this.pageNo = pageNo;
+            this.list = list;
+            this.error = error;
+        }
+    }
 }
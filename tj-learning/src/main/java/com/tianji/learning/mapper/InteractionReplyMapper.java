@@ -2,6 +2,9 @@ package com.tianji.learning.mapper;
 
 import com.tianji.learning.domain.po.InteractionReply;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Map;
 
 /**
  * <p>
@@ -13,4 +16,10 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface InteractionReplyMapper extends BaseMapper<InteractionReply> {
 
+    /**
+     * 批量更新点赞数，一条语句完成
+     *
+     * @param likedTimes 回答id -> 点赞数
+     */
+    int updateLikedTimesBatch(@Param("likedTimes") Map<Long, Integer> likedTimes);
 }
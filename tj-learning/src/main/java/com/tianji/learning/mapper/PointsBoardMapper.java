@@ -2,7 +2,9 @@ package com.tianji.learning.mapper;
 
 import com.tianji.learning.domain.po.PointsBoard;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
-import feign.Param;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * <p>
@@ -15,4 +17,12 @@ import feign.Param;
 public interface PointsBoardMapper extends BaseMapper<PointsBoard> {
 
     void createPointsBoardTable(@Param("tableName") String tableName);
+
+    /**
+     * 批量写入赛季榜单，id即名次，重复写入时覆盖，保证任务重试时数据不重复
+     *
+     * @param tableName 赛季表名
+     * @param list      榜单数据
+     */
+    void insertOrUpdateBatch(@Param("tableName") String tableName, @Param("list") List<PointsBoard> list);
 }
@@ -26,4 +26,9 @@ public interface PointsRecordMapper extends BaseMapper<PointsRecord> {
 
     @Select("SELECT type, SUM(points) AS points FROM points_record ${ew.customSqlSegment} GROUP BY type")
     List<PointsRecord> queryUserPointsByDate(@Param(Constants.WRAPPER) QueryWrapper<PointsRecord> wrapper);
+
+    /**
+     * 批量新增积分记录
+     */
+    int insertBatch(@Param("list") List<PointsRecord> list);
 }
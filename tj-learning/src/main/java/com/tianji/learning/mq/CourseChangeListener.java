@@ -0,0 +1,36 @@
+package com.tianji.learning.mq;
+
+import com.tianji.common.constants.MqConstants;
+import com.tianji.learning.utils.LearningLessonCacheHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 监听课程上下架，清理学习中心缓存的课程小节总数
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CourseChangeListener {
+
+    private final LearningLessonCacheHandler lessonCacheHandler;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue(value = "learning.course.change.queue", durable = "true"),
+            exchange = @Exchange(value = MqConstants.Exchange.COURSE_EXCHANGE, type = ExchangeTypes.TOPIC),
+            key = {MqConstants.Key.COURSE_UP_KEY, MqConstants.Key.COURSE_DOWN_KEY, MqConstants.Key.COURSE_EXPIRE_KEY}
+    ))
+    public void listenCourseChange(Long courseId){
+        if (courseId == null){
+            return;
+        }
+        log.debug("监听到课程{}状态变更，清理课程小节缓存", courseId);
+        lessonCacheHandler.cleanCourseSectionNum(courseId);
+    }
+}
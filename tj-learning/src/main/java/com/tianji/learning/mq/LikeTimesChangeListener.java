@@ -1,9 +1,8 @@
 package com.tianji.learning.mq;
 
 import com.tianji.api.dto.remark.LikeTimesDTO;
-import com.tianji.learning.domain.po.InteractionReply;
-import com.tianji.learning.service.IInteractionReplyService;
-import lombok.AllArgsConstructor;
+import com.tianji.common.utils.CollUtils;
+import com.tianji.learning.utils.ReplyLikedTimesBatchWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.ExchangeTypes;
@@ -13,8 +12,9 @@ import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.tianji.common.constants.MqConstants.Exchange.LIKE_RECORD_EXCHANGE;
 import static com.tianji.common.constants.MqConstants.Key.QA_LIKED_TIMES_KEY;
@@ -23,22 +23,29 @@ import static com.tianji.common.constants.MqConstants.Key.QA_LIKED_TIMES_KEY;
 @Component
 @RequiredArgsConstructor
 public class LikeTimesChangeListener {
-    private final IInteractionReplyService replyService;
+    private final ReplyLikedTimesBatchWriter likedTimesBatchWriter;
 
     @RabbitListener(bindings = @QueueBinding(
             value = @Queue(name = "qa.like.times.queue", durable = "ture"),
             exchange = @Exchange(name = LIKE_RECORD_EXCHANGE, type = ExchangeTypes.TOPIC),
             key = QA_LIKED_TIMES_KEY
-    ))
-    public void listenReplyTimesChange(List<LikeTimesDTO> likeTimesDTOs){
-        log.debug("监听到回答或点评的点赞数变更消息");
-        List<InteractionReply> list = new ArrayList<>(likeTimesDTOs.size());
-        for (LikeTimesDTO dto : likeTimesDTOs) {
-            InteractionReply r = new InteractionReply();
-            r.setId(dto.getBizId());
-            r.setLikedTimes(dto.getLikeTimes());
-            list.add(r);
+    ), containerFactory = "likedTimesContainerFactory")
+    public void listenReplyTimesChange(List<List<LikeTimesDTO>> messages){
+        log.debug("监听到回答或点评的点赞数变更消息：{}条", messages.size());
+        // 靠后的消息中的点赞数更新，覆盖之前的
+        Map<Long, Integer> likedTimes = new LinkedHashMap<>();
+        for (List<LikeTimesDTO> likeTimesDTOs : messages) {
+            if (CollUtils.isEmpty(likeTimesDTOs)) {
+                continue;
+            }
+            for (LikeTimesDTO dto : likeTimesDTOs) {
+                likedTimes.put(dto.getBizId(), dto.getLikeTimes());
+            }
         }
-        replyService.updateBatchById(list);
+        if (likedTimes.isEmpty()) {
+            return;
+        }
+        // 写入数据库后才返回，整批消息随后确认
+        likedTimesBatchWriter.write(likedTimes);
     }
 }
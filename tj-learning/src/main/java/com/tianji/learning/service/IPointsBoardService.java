@@ -21,4 +21,8 @@ public interface IPointsBoardService extends IService<PointsBoard> {
     void createPointsBoardTableBySeason(Integer season);
 
     List<PointsBoard> queryCurrentBoard(String key, Integer pageNo, Integer pageSize);
+
+    void saveSeasonBoard(Integer season, List<PointsBoard> list);
+
+    void cleanHistoryBoardCache(Integer season);
 }
@@ -1,9 +1,11 @@
 package com.tianji.learning.service;
 
-import com.baomidou.mybatisplus.extension.service.IService;
-import com.tianji.learning.domain.po.PointsRecord;
+import com.tianji.learning.domain.vo.SignDailyActiveVO;
 import com.tianji.learning.domain.vo.SignResultVO;
-import com.tianji.learning.service.impl.SignRecordServiceImpl;
+import com.tianji.learning.domain.vo.SignStatisticsVO;
+
+import java.time.LocalDate;
+import java.util.List;
 
 /**
  * <p>
@@ -18,4 +20,23 @@ public interface ISignRecordService {
     SignResultVO addSignRecords();
 
     Byte[] querySignRecord();
+
+    /**
+     * 查询当前用户指定月份的签到统计
+     *
+     * @param month 月份，格式：yyyyMM，为空则查询本月
+     */
+    SignStatisticsVO querySignStatistics(String month);
+
+    /**
+     * 查询日期范围内每天的签到人数
+     */
+    List<SignDailyActiveVO> queryDailyActive(LocalDate begin, LocalDate end);
+
+    /**
+     * 统计日期范围内的签到人数
+     *
+     * @param everyDay true：每天都签到的人数，false：至少签到一次的人数
+     */
+    Long countCohort(LocalDate begin, LocalDate end, boolean everyDay);
 }
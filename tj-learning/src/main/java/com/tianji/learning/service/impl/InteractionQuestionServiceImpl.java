@@ -2,11 +2,11 @@ package com.tianji.learning.service.impl;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.tianji.api.cache.CategoryCache;
+import com.tianji.api.cache.UserCache;
 import com.tianji.api.client.course.CatalogueClient;
 import com.tianji.api.client.course.CategoryClient;
 import com.tianji.api.client.course.CourseClient;
 import com.tianji.api.client.search.SearchClient;
-import com.tianji.api.client.user.UserClient;
 import com.tianji.api.dto.course.CataSimpleInfoDTO;
 import com.tianji.api.dto.course.CourseSimpleInfoDTO;
 import com.tianji.api.dto.user.UserDTO;
@@ -49,7 +49,7 @@ import java.util.stream.Collectors;
 public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuestionMapper, InteractionQuestion> implements IInteractionQuestionService {
 
     private final IInteractionReplyService replyService;
-    private final UserClient userClient;
+    private final UserCache userCache;
     private final CourseClient courseClient;
     private final SearchClient searchClient;
     private final CatalogueClient catalogueClient;
@@ -109,8 +109,8 @@ public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuest
         //根据id查询用户信息(提问者)
         userIds.remove(null);
         Map<Long, UserDTO> userMap = new HashMap<>();
-        if (CollUtils.isEmpty(userIds)) {
-            List<UserDTO> users = userClient.queryUserByIds(userIds);
+        if (CollUtils.isNotEmpty(userIds)) {
+            List<UserDTO> users = userCache.queryUserByIds(userIds);
             userMap = users.stream()
                     .collect(Collectors.toMap(UserDTO::getId, u -> u));
         }
@@ -151,7 +151,7 @@ public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuest
         //查询提问者信息
         UserDTO user = null;
         if (!question.getAnonymity()) {
-             user = userClient.queryUserById(question.getId());
+             user = userCache.queryUserById(question.getUserId());
         }
         //po转vo
         QuestionVO vo = BeanUtils.copyBean(question, QuestionVO.class);
@@ -198,7 +198,7 @@ public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuest
             cataIds.add(q.getSectionId());
         }
         //根据id查询用户
-        List<UserDTO> users = userClient.queryUserByIds(userIds);
+        List<UserDTO> users = userCache.queryUserByIds(userIds);
         Map<Long, UserDTO> userMap = new HashMap<>(users.size());
         if (CollUtils.isNotEmpty(users)){
             userMap = users.stream().collect(Collectors.toMap(UserDTO::getId, u -> u));
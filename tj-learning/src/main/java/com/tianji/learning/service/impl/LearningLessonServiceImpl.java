@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.tianji.api.client.course.CatalogueClient;
 import com.tianji.api.client.course.CourseClient;
+import com.tianji.api.coalesce.CourseClientCoalescer;
 import com.tianji.api.dto.IdAndNumDTO;
 import com.tianji.api.dto.course.CataSimpleInfoDTO;
 import com.tianji.api.dto.course.CourseFullInfoDTO;
@@ -23,6 +24,7 @@ import com.tianji.learning.enums.PlanStatus;
 import com.tianji.learning.mapper.LearningLessonMapper;
 import com.tianji.learning.mapper.LearningRecordMapper;
 import com.tianji.learning.service.ILearningLessonService;
+import com.tianji.learning.utils.LearningLessonCacheHandler;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -53,8 +55,10 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
 
 
     private final CourseClient courseClient;
+    private final CourseClientCoalescer courseClientCoalescer;
     private final CatalogueClient catalogueClient;
     private final LearningRecordMapper recordMapper;
+    private final LearningLessonCacheHandler lessonCacheHandler;
     @Override
     @Transactional
     public void addUserLessons(Long userId, List<Long> courseIds) {
@@ -83,6 +87,8 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
             saveBatch(list);
 
         }
+        //事务提交后清理用户课表缓存
+        lessonCacheHandler.cleanUserLessons(userId);
     }
 
     @Override
@@ -168,6 +174,7 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
             l.setPlanStatus(PlanStatus.PLAN_RUNNING);
         }
         updateById(l);
+        lessonCacheHandler.cleanLesson(userId, lesson.getId());
     }
 
     /*查询我的学习计划*/
@@ -272,7 +279,7 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
         LearningLessonVO vo = BeanUtils.copyBean(lesson, LearningLessonVO.class);
 
         // 使用课程客户端服务，根据课程ID查询课程的完整信息。
-        CourseFullInfoDTO cInfo = courseClient.getCourseInfoById(lesson.getCourseId(), false, false);
+        CourseFullInfoDTO cInfo = courseClientCoalescer.getCourseInfoById(lesson.getCourseId());
 
         // 如果找不到相应的课程信息，则抛出异常。
         if (cInfo == null) {
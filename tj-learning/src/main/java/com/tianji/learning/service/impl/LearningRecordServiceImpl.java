@@ -2,13 +2,12 @@ package com.tianji.learning.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
-import com.tianji.api.client.course.CourseClient;
-import com.tianji.api.dto.course.CourseFullInfoDTO;
 import com.tianji.api.dto.leanring.LearningLessonDTO;
 import com.tianji.api.dto.leanring.LearningRecordDTO;
 import com.tianji.common.exceptions.BizIllegalException;
 import com.tianji.common.exceptions.DbException;
 import com.tianji.common.utils.BeanUtils;
+import com.tianji.common.utils.StringUtils;
 import com.tianji.common.utils.UserContext;
 import com.tianji.learning.domain.dto.LearningRecordFormDTO;
 import com.tianji.learning.domain.po.LearningLesson;
@@ -18,6 +17,8 @@ import com.tianji.learning.enums.SectionType;
 import com.tianji.learning.mapper.LearningRecordMapper;
 import com.tianji.learning.service.ILearningLessonService;
 import com.tianji.learning.service.ILearningRecordService;
+import com.tianji.learning.utils.LearningLessonCacheHandler;
+import com.tianji.learning.utils.LearningRecordDelayTaskHandler;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import groovyjarjarasm.asm.Handle;
 import io.swagger.annotations.ApiImplicitParam;
@@ -43,7 +44,9 @@ public class LearningRecordServiceImpl extends ServiceImpl<LearningRecordMapper,
     private final ILearningLessonService lessonService;
 
 
-    private final CourseClient courseClient;
+    private final LearningRecordDelayTaskHandler taskHandler;
+
+    private final LearningLessonCacheHandler lessonCacheHandler;
     @Override
     public LearningLessonDTO queryLearningRecordByCourse(Long courseId) {
         //获取登录用户
@@ -79,74 +82,113 @@ public class LearningRecordServiceImpl extends ServiceImpl<LearningRecordMapper,
             //2.2处理考试
             finished = handleExamRecord(userId, recordDTO);
         }
+        if (!finished && recordDTO.getSectionType() == SectionType.VIDEO){
+            //未完成的视频进度、课表的学习状态和最近学习小节由延迟任务异步写入
+            return;
+        }
 
         //处理课表数据
-        handleLearningLessonsChanges(recordDTO, finished);
+        handleLearningLessonsChanges(userId, recordDTO, finished);
     }
 
-    private void handleLearningLessonsChanges(LearningRecordFormDTO recordDTO, boolean finished) {
+    private void handleLearningLessonsChanges(Long userId, LearningRecordFormDTO recordDTO, boolean finished) {
        //查询课表
-        LearningLesson lesson = lessonService.getById(recordDTO.getLessonId());
+        LearningLesson lesson = lessonCacheHandler.getLesson(userId, recordDTO.getLessonId());
         if (lesson == null){
             throw new BizIllegalException("课程不存在，无法更新数据!");
         }
-        //判断是否有新的完成小节
-        boolean allLearned = false;
+        //未开始学习的课表改为学习中
+        String statusSql = StringUtils.format("status = IF(status = {}, {}, status)",
+                LessonStatus.NOT_BEGIN.getValue(), LessonStatus.LEARNING.getValue());
         if (finished){
-            CourseFullInfoDTO cInfo = courseClient.getCourseInfoById(lesson.getCourseId(), false, false);
-            if (cInfo == null){
+            //如果有新完成，查询课程小节总数，由数据库根据累加后的已学小节数判断是否学完，并发提交也不会漏掉
+            Integer sectionNum = lessonCacheHandler.getCourseSectionNum(lesson.getCourseId());
+            if (sectionNum == null){
                 throw new BizIllegalException("课程不存在，无法更新数据!");
             }
-            //如果有新完成，查询课程数据
-            allLearned = lesson.getLearnedSections() + 1 >= cInfo.getSectionNum();
+            //MySQL按顺序执行SET，这里的learned_sections已经是累加后的值
+            statusSql = StringUtils.format("status = IF(learned_sections >= {}, {}, IF(status = {}, {}, status))",
+                    sectionNum, LessonStatus.FINISHED.getValue(),
+                    LessonStatus.NOT_BEGIN.getValue(), LessonStatus.LEARNING.getValue());
         }
         //更新课表
         lessonService.lambdaUpdate()
-                .set(lesson.getLearnedSections() == 0, LearningLesson::getStatus, LessonStatus.LEARNING.getValue())
-                .set(allLearned, LearningLesson::getStatus, LessonStatus.FINISHED.getValue())
                 .set(!finished, LearningLesson::getLatestSectionId, recordDTO.getSectionId())
                 .set(!finished, LearningLesson::getLatestLearnTime, recordDTO.getCommitTime())
-                .setSql(finished, "learned_sections = learnedd_sections + 1 ")
+                .setSql(finished, "learned_sections = learned_sections + 1")
+                .setSql(statusSql)
                 .eq(LearningLesson::getId,lesson.getId())
                 .update();
-        //比较课程是否已经学完
-
-
+        //事务提交后清理课表缓存
+        lessonCacheHandler.cleanLesson(userId, lesson.getId());
     }
 
     private boolean handleVideoRecord(Long userId, LearningRecordFormDTO recordDTO) {
         //查询旧的学习记录
-        LearningRecord old = lambdaQuery()
-                .eq(LearningRecord::getLessonId, recordDTO.getLessonId())
-                .eq(LearningRecord::getSectionId, recordDTO.getSectionId())
-                .one();
+        LearningRecord old = queryOldRecord(recordDTO.getLessonId(), recordDTO.getSectionId());
         //判断是否存在
         if (old == null){
             //不存在，新增
             //转换PO
             LearningRecord record = BeanUtils.copyBean(recordDTO, LearningRecord.class);
             record.setUserId(userId);
+            record.setFinished(false);
             //写入数据库
             boolean success = save(record);
             if (!success){
                 throw new DbException("新增学习记录失败！");
             }
+            //提交延迟任务，由延迟任务更新课表的学习状态和最近学习小节
+            taskHandler.addLearningRecordTask(record, recordDTO.getCommitTime());
             return false;
         }
         //存在，更新
         //判断是否第一次完成
         boolean finished = !old.getFinished() && recordDTO.getMoment() * 2 >= recordDTO.getDuration();
-        //更新数据
+        if (!finished){
+            //非第一次完成，只更新缓存并提交延迟任务
+            LearningRecord record = new LearningRecord();
+            record.setId(old.getId());
+            record.setUserId(userId);
+            record.setLessonId(recordDTO.getLessonId());
+            record.setSectionId(recordDTO.getSectionId());
+            record.setMoment(recordDTO.getMoment());
+            record.setFinished(old.getFinished());
+            taskHandler.addLearningRecordTask(record, recordDTO.getCommitTime());
+            return false;
+        }
+        //第一次完成，直接更新数据库
         boolean success = lambdaUpdate()
                 .set(LearningRecord::getMoment, recordDTO.getMoment())
-                .set(finished, LearningRecord::getFinished, true)
-                .set(finished, LearningRecord::getFinishTime, recordDTO.getCommitTime())
+                .set(LearningRecord::getFinished, true)
+                .set(LearningRecord::getFinishTime, recordDTO.getCommitTime())
                 .eq(LearningRecord::getId, old.getId())
                 .update();
         if (!success){
-            throw new DbException("更新考试记录失败！");
+            throw new DbException("更新学习记录失败！");
+        }
+        //清理缓存，下次心跳重新从数据库加载finished状态
+        taskHandler.cleanRecordCache(recordDTO.getLessonId(), recordDTO.getSectionId());
+        return true;
+    }
+
+    private LearningRecord queryOldRecord(Long lessonId, Long sectionId) {
+        //查询缓存
+        LearningRecord record = taskHandler.readRecordCache(lessonId, sectionId);
+        if (record != null){
+            return record;
+        }
+        //未命中，查询数据库
+        record = lambdaQuery()
+                .eq(LearningRecord::getLessonId, lessonId)
+                .eq(LearningRecord::getSectionId, sectionId)
+                .one();
+        if (record == null){
+            return null;
         }
-        return finished;
+        //写入缓存
+        taskHandler.writeRecordCache(record);
+        return record;
     }
 
     private boolean handleExamRecord(Long userId, LearningRecordFormDTO recordDTO) {
@@ -2,9 +2,12 @@ package com.tianji.learning.service.impl;
 
 import com.tianji.api.client.user.UserClient;
 import com.tianji.api.dto.user.UserDTO;
+import com.tianji.common.utils.BooleanUtils;
 import com.tianji.common.utils.CollUtils;
 import com.tianji.common.utils.DateUtils;
+import com.tianji.common.utils.StringUtils;
 import com.tianji.common.utils.UserContext;
+import com.tianji.learning.constants.LearningConstants;
 import com.tianji.learning.constants.RedisConstants;
 import com.tianji.learning.domain.po.PointsBoard;
 import com.tianji.learning.domain.query.PointsBoardQuery;
@@ -13,14 +16,18 @@ import com.tianji.learning.domain.vo.PointsBoardVO;
 import com.tianji.learning.mapper.PointsBoardMapper;
 import com.tianji.learning.service.IPointsBoardService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.tianji.learning.utils.TableInfoContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.BoundZSetOperations;
+import org.springframework.data.redis.core.DefaultTypedTuple;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +45,13 @@ public class PointsBoardServiceImpl extends ServiceImpl<PointsBoardMapper, Point
     private final StringRedisTemplate redisTemplate;
     private final UserClient userClient;
 
+    /**
+     * 历史榜单缓存的名次数量，前列名次的分页查询直接读缓存
+     */
+    private static final int HISTORY_CACHE_RANKS = 1000;
+    private static final Duration HISTORY_CACHE_TTL = Duration.ofDays(7);
+    private static final String NOT_ON_BOARD = "0:0";
+
     @Override
     public PointsBoardVO queryPointsBoardBySeason(PointsBoardQuery query) {
         //判断是否当前赛季
@@ -81,11 +95,112 @@ public class PointsBoardServiceImpl extends ServiceImpl<PointsBoardMapper, Point
 
     @Override
     public void createPointsBoardTableBySeason(Integer season) {
-        getBaseMapper().createPointsBoardTable("points_board_" + season);
+        getBaseMapper().createPointsBoardTable(LearningConstants.POINTS_BOARD_TABLE_PREFIX + season);
+    }
+
+    @Override
+    public void saveSeasonBoard(Integer season, List<PointsBoard> list) {
+        if (CollUtils.isEmpty(list)) {
+            return;
+        }
+        getBaseMapper().insertOrUpdateBatch(LearningConstants.POINTS_BOARD_TABLE_PREFIX + season, list);
+    }
+
+    @Override
+    public void cleanHistoryBoardCache(Integer season) {
+        redisTemplate.delete(List.of(
+                StringUtils.format(RedisConstants.POINTS_BOARD_HISTORY_KEY_TEMPLATE, season),
+                StringUtils.format(RedisConstants.POINTS_BOARD_HISTORY_USER_KEY_TEMPLATE, season)));
     }
 
     private List<PointsBoard> queryHistoryBoard(PointsBoardQuery query) {
-        return null;
+        Long season = query.getSeason();
+        // 赛季表的id就是名次，分页查询即为名次区间查询
+        int from = (query.getPageNo() - 1) * query.getPageSize() + 1;
+        int to = from + query.getPageSize() - 1;
+        // 1.前列名次，读缓存
+        if (to <= HISTORY_CACHE_RANKS) {
+            return queryHistoryBoardFromCache(season, from, to);
+        }
+        // 2.其它名次，按主键范围查询数据库
+        return queryHistoryBoardFromDb(season, from, to);
+    }
+
+    private List<PointsBoard> queryHistoryBoardFromCache(Long season, int from, int to) {
+        // 1.按名次区间查询缓存
+        String key = StringUtils.format(RedisConstants.POINTS_BOARD_HISTORY_KEY_TEMPLATE, season);
+        Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet().rangeByScoreWithScores(key, from, to);
+        if (CollUtils.isNotEmpty(tuples)) {
+            List<PointsBoard> list = new ArrayList<>(tuples.size());
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getValue() == null || tuple.getScore() == null) {
+                    continue;
+                }
+                // 缓存的格式为 用户id:积分
+                long[] values = parseCacheValue(tuple.getValue());
+                PointsBoard p = new PointsBoard();
+                p.setUserId(values[0]);
+                p.setPoints((int) values[1]);
+                p.setRank(tuple.getScore().intValue());
+                list.add(p);
+            }
+            return list;
+        }
+        if (BooleanUtils.isTrue(redisTemplate.hasKey(key))) {
+            // 缓存存在，说明该区间超出了榜单人数
+            return CollUtils.emptyList();
+        }
+        // 2.缓存未命中，查询前列名次并写入缓存
+        List<PointsBoard> top = queryHistoryBoardFromDb(season, 1, HISTORY_CACHE_RANKS);
+        if (CollUtils.isEmpty(top)) {
+            return CollUtils.emptyList();
+        }
+        // 名次不连续，说明赛季数据还在持久化中，暂不缓存
+        if (isContinuous(top)) {
+            Set<ZSetOperations.TypedTuple<String>> cache = new HashSet<>(top.size());
+            for (PointsBoard p : top) {
+                cache.add(new DefaultTypedTuple<>(p.getUserId() + ":" + p.getPoints(), p.getRank().doubleValue()));
+            }
+            redisTemplate.opsForZSet().add(key, cache);
+            redisTemplate.expire(key, HISTORY_CACHE_TTL);
+        }
+        // 3.返回区间内的数据
+        return top.stream()
+                .filter(p -> p.getRank() >= from && p.getRank() <= to)
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isContinuous(List<PointsBoard> list) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).getRank() != i + 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<PointsBoard> queryHistoryBoardFromDb(Long season, int from, int to) {
+        List<PointsBoard> list = querySeasonTable(season, () -> lambdaQuery()
+                .select(PointsBoard::getId, PointsBoard::getUserId, PointsBoard::getPoints)
+                .between(PointsBoard::getId, from, to)
+                .orderByAsc(PointsBoard::getId)
+                .list());
+        list.forEach(p -> p.setRank(p.getId().intValue()));
+        return list;
+    }
+
+    private <T> T querySeasonTable(Long season, Supplier<T> supplier) {
+        TableInfoContext.setInfo(LearningConstants.POINTS_BOARD_TABLE_PREFIX + season);
+        try {
+            return supplier.get();
+        } finally {
+            TableInfoContext.remove();
+        }
+    }
+
+    private static long[] parseCacheValue(String value) {
+        int index = value.indexOf(':');
+        return new long[]{Long.parseLong(value.substring(0, index)), Long.parseLong(value.substring(index + 1))};
     }
 
     @Override
@@ -114,7 +229,33 @@ public class PointsBoardServiceImpl extends ServiceImpl<PointsBoardMapper, Point
     }
 
     private PointsBoard queryMyHistoryBoard(Long season) {
-        return null;
+        Long userId = UserContext.getUser();
+        // 1.查询缓存
+        String key = StringUtils.format(RedisConstants.POINTS_BOARD_HISTORY_USER_KEY_TEMPLATE, season);
+        String cache = (String) redisTemplate.opsForHash().get(key, userId.toString());
+        if (cache != null) {
+            // 缓存的格式为 名次:积分
+            long[] values = parseCacheValue(cache);
+            PointsBoard p = new PointsBoard();
+            p.setUserId(userId);
+            p.setRank((int) values[0]);
+            p.setPoints((int) values[1]);
+            return p;
+        }
+        // 2.缓存未命中，根据用户id查询
+        PointsBoard board = querySeasonTable(season, () -> lambdaQuery()
+                .select(PointsBoard::getId, PointsBoard::getUserId, PointsBoard::getPoints)
+                .eq(PointsBoard::getUserId, userId)
+                .one());
+        PointsBoard p = new PointsBoard();
+        p.setUserId(userId);
+        p.setRank(board == null ? 0 : board.getId().intValue());
+        p.setPoints(board == null ? 0 : board.getPoints());
+        // 3.写入缓存，未上榜的用户也缓存，避免重复查询
+        redisTemplate.opsForHash().put(key, userId.toString(),
+                board == null ? NOT_ON_BOARD : p.getRank() + ":" + p.getPoints());
+        redisTemplate.expire(key, HISTORY_CACHE_TTL);
+        return p;
     }
 
     private PointsBoard queryMyCurrentBoard(String key) {
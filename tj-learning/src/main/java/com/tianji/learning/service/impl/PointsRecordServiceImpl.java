@@ -1,8 +1,10 @@
 package com.tianji.learning.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.tianji.common.exceptions.DbException;
 import com.tianji.common.utils.CollUtils;
 import com.tianji.common.utils.DateUtils;
+import com.tianji.common.utils.StringUtils;
 import com.tianji.common.utils.UserContext;
 import com.tianji.learning.constants.RedisConstants;
 import com.tianji.learning.domain.po.PointsRecord;
@@ -10,15 +12,17 @@ import com.tianji.learning.domain.vo.PointsStatisticsVO;
 import com.tianji.learning.enums.PointsRecordType;
 import com.tianji.learning.mapper.PointsRecordMapper;
 import com.tianji.learning.service.IPointsRecordService;
+import com.tianji.learning.utils.PointsRecordBatchWriter;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.RequiredArgsConstructor;
-import org.checkerframework.checker.units.qual.A;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
-import javax.validation.Valid;
-import java.time.LocalDate;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,53 +39,68 @@ import java.util.List;
 public class PointsRecordServiceImpl extends ServiceImpl<PointsRecordMapper, PointsRecord> implements IPointsRecordService {
 
     private final StringRedisTemplate redisTemplate;
+    private final PointsRecordBatchWriter recordBatchWriter;
+
+    private static final DefaultRedisScript<Long> ADD_POINTS_SCRIPT;
+    private static final DateTimeFormatter DAILY_KEY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    /**
+     * 当日积分计数的有效期，覆盖跨天时仍在处理的请求
+     */
+    private static final Duration DAILY_POINTS_TTL = Duration.ofDays(2);
+
+    static {
+        ADD_POINTS_SCRIPT = new DefaultRedisScript<>();
+        ADD_POINTS_SCRIPT.setLocation(new ClassPathResource("lua/add_points.lua"));
+        ADD_POINTS_SCRIPT.setResultType(Long.class);
+    }
+
     @Override
     /**
      * 为用户添加积分记录
+     * <p>
+     * 每日上限的校验、当日积分的累加以及榜单的更新在一个Lua脚本中原子完成，积分记录异步批量写入数据库
      * @param    userId 用户的ID
      * @param points 要添加的积分值
      * @param type 积分记录的类型
      */
     public void addPointsRecord(Long userId, int points, PointsRecordType type) {
-        // 获取该类型的积分上限
-        int maxPoints = type.getMaxPoints();
-        // 获取当前时间
         LocalDateTime now = LocalDateTime.now();
-
-        // 设定要添加的实际积分为传入的积分值
-        int realPoints = points;
-
-        // 如果此积分类型有上限
-        if (maxPoints > 0) {
-            // 获取当天的开始和结束时间
-            LocalDateTime begin = DateUtils.getDayStartTime(now);
-            LocalDateTime end = DateUtils.getDayEndTime(now);
-
-            // 查询用户当天已获得的此类型的积分总数
-            int currentPoints = queryUserPointsByTypeAndDate(userId, type, begin, end);
-
-            // 如果用户当天已获得的积分已达到上限，则直接返回
-            if (currentPoints >= maxPoints) {
-                return;
-            }
-
-            // 如果用户将要获得的积分加上当天已获得的积分超过上限，则调整实际添加的积分值
-            if (currentPoints + points >= maxPoints) {
-                realPoints = maxPoints - currentPoints;
-            }
+        String dailyKey = StringUtils.format(
+                RedisConstants.POINTS_DAILY_KEY_TEMPLATE, userId, now.format(DAILY_KEY_FORMATTER));
+        String boardKey = RedisConstants.POINTS_BOARD_KEY_PREFIX + now.format(DateUtils.POINTS_BOARD_SUFFIX_FORMATTER);
+        // 1.执行脚本，得到实际增加的积分
+        long realPoints = executeAddPoints(dailyKey, boardKey, userId, points, type);
+        if (realPoints < 0) {
+            // 2.当日计数不存在，从数据库加载后重试
+            int currentPoints = queryUserPointsByTypeAndDate(
+                    userId, type, DateUtils.getDayStartTime(now), DateUtils.getDayEndTime(now));
+            redisTemplate.opsForHash().putIfAbsent(dailyKey, String.valueOf(type.getValue()), String.valueOf(currentPoints));
+            redisTemplate.expire(dailyKey, DAILY_POINTS_TTL);
+            realPoints = executeAddPoints(dailyKey, boardKey, userId, points, type);
         }
-
-        // 创建并设置新的积分记录
+        // 3.已达到上限，不记录
+        if (realPoints <= 0) {
+            return;
+        }
+        // 4.记录实际获得的积分，异步批量写入数据库
         PointsRecord p = new PointsRecord();
         p.setUserId(userId);
         p.setType(type);
-        p.setPoints(points);
-        // 保存新的积分记录到数据库
-        save(p);
+        p.setPoints((int) realPoints);
+        p.setCreateTime(now);
+        recordBatchWriter.add(p);
+    }
 
-        // 更新Redis中的用户积分榜，增加用户的实际积分
-        String key = RedisConstants.POINTS_BOARD_KEY_PREFIX + now.format(DateUtils.POINTS_BOARD_SUFFIX_FORMATTER);
-        redisTemplate.opsForZSet().incrementScore(key, userId.toString(), realPoints);
+    private long executeAddPoints(String dailyKey, String boardKey, Long userId, int points, PointsRecordType type) {
+        Long result = redisTemplate.execute(
+                ADD_POINTS_SCRIPT,
+                List.of(dailyKey, boardKey),
+                userId.toString(), String.valueOf(type.getValue()), String.valueOf(points),
+                String.valueOf(type.getMaxPoints()));
+        if (result == null) {
+            throw new DbException("增加积分失败");
+        }
+        return result;
     }
 
 
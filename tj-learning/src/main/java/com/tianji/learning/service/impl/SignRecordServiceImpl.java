@@ -2,21 +2,38 @@ package com.tianji.learning.service.impl;
 
 import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
 import com.tianji.common.constants.MqConstants;
+import com.tianji.common.exceptions.BadRequestException;
 import com.tianji.common.exceptions.BizIllegalException;
+import com.tianji.common.exceptions.DbException;
 import com.tianji.common.utils.BooleanUtils;
 import com.tianji.common.utils.CollUtils;
 import com.tianji.common.utils.DateUtils;
+import com.tianji.common.utils.StringUtils;
 import com.tianji.common.utils.UserContext;
 import com.tianji.learning.constants.RedisConstants;
+import com.tianji.learning.domain.vo.SignDailyActiveVO;
 import com.tianji.learning.domain.vo.SignResultVO;
+import com.tianji.learning.domain.vo.SignStatisticsVO;
 import com.tianji.learning.mq.message.SignInMessage;
 import com.tianji.learning.service.ISignRecordService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.connection.RedisStringCommands.BitOperation;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -32,6 +49,22 @@ import java.util.List;
 public class SignRecordServiceImpl implements ISignRecordService {
     private final RabbitMqHelper mqHelper;
     private final StringRedisTemplate redisTemplate;
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern(DateUtils.DEFAULT_DATE_FORMAT_COMPACT);
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern(DateUtils.DEFAULT_MONTH_FORMAT_COMPACT);
+    /**
+     * 每日签到位图保留一年，用于留存等统计
+     */
+    private static final Duration DAILY_SIGN_TTL = Duration.ofDays(366);
+    private static final String COHORT_KEY_TEMPLATE = "sign:cohort:{}:{}:{}";
+    private static final DefaultRedisScript<Long> COUNT_COHORT_SCRIPT;
+
+    static {
+        COUNT_COHORT_SCRIPT = new DefaultRedisScript<>();
+        COUNT_COHORT_SCRIPT.setLocation(new ClassPathResource("lua/count_cohort.lua"));
+        COUNT_COHORT_SCRIPT.setResultType(Long.class);
+    }
+
     @Override
     public SignResultVO addSignRecords() {
         //签到
@@ -47,6 +80,8 @@ public class SignRecordServiceImpl implements ISignRecordService {
         if (BooleanUtils.isTrue(exits)) {
             throw new BizIllegalException("不允许重复签到！");
         }
+        //记录到每日全站签到位图，用于统计
+        recordDailySign(userId, now);
         //计算连续签到天数
         int signDays = countSignDays(key, now.getDayOfMonth());
         //计算签到积分
@@ -91,47 +126,165 @@ public class SignRecordServiceImpl implements ISignRecordService {
                 + userId
                 + now.format(DateUtils.SIGN_DATE_SUFFIX_FORMATTER);
 
-        // 从Redis中按位查询指定键名下的签到数据
-        // 使用bitfield命令检索指定的位字段
-        List<Long> result = redisTemplate.opsForValue()
-                .bitField(key, BitFieldSubCommands.create().get(
-                        BitFieldSubCommands.BitFieldType.unsigned(dayOfMonth)).valueAt(0));
+        // 从Redis中按位查询指定键名下的签到数据，转换为签到日历
+        return toRecords(readSignBits(key, dayOfMonth), dayOfMonth);
+    }
 
-        // 如果结果为空或不存在，则返回一个空的字节数组
-        if (CollUtils.isEmpty(result)) {
-            return new Byte[0];
+    @Override
+    public SignStatisticsVO querySignStatistics(String month) {
+        Long userId = UserContext.getUser();
+        LocalDate now = LocalDate.now();
+        YearMonth current = YearMonth.from(now);
+        YearMonth yearMonth = parseMonth(month, current);
+        if (yearMonth.isAfter(current)) {
+            throw new BadRequestException("不能查询未来月份的签到记录");
         }
+        // 1.本月只统计到今天，历史月份统计整月
+        int len = yearMonth.equals(current) ? now.getDayOfMonth() : yearMonth.lengthOfMonth();
+        String key = RedisConstants.SING_RECORD_KEY_PREFIX
+                + userId
+                + yearMonth.atDay(1).format(DateUtils.SIGN_DATE_SUFFIX_FORMATTER);
+        // 2.一次BITFIELD读取整月的签到数据，在本地完成各项统计
+        long bits = readSignBits(key, len);
+        SignStatisticsVO vo = new SignStatisticsVO();
+        vo.setMonth(yearMonth.format(MONTH_FORMATTER));
+        vo.setSignDays(Long.bitCount(bits));
+        vo.setLongestStreak(longestStreak(bits, len));
+        vo.setCurrentStreak(Long.numberOfTrailingZeros(~bits));
+        vo.setRecords(toRecords(bits, len));
+        return vo;
+    }
 
-        // 将结果转化为整数
-        int num = result.get(0).intValue();
+    @Override
+    public List<SignDailyActiveVO> queryDailyActive(LocalDate begin, LocalDate end) {
+        List<LocalDate> days = listDays(begin, end);
+        // 一次管道批量BITCOUNT每天的签到位图
+        List<Object> counts = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection src = (StringRedisConnection) connection;
+            for (LocalDate day : days) {
+                src.bitCount(dailySignKey(day));
+            }
+            return null;
+        });
+        List<SignDailyActiveVO> list = new ArrayList<>(days.size());
+        for (int i = 0; i < days.size(); i++) {
+            list.add(new SignDailyActiveVO(days.get(i), (Long) counts.get(i)));
+        }
+        return list;
+    }
 
-        // 初始化一个Byte数组，其长度与当前月份的天数相同
-        Byte[] arr = new Byte[dayOfMonth];
+    @Override
+    public Long countCohort(LocalDate begin, LocalDate end, boolean everyDay) {
+        List<LocalDate> days = listDays(begin, end);
+        BitOperation op = everyDay ? BitOperation.AND : BitOperation.OR;
+        List<String> keys = new ArrayList<>(days.size() + 1);
+        keys.add(StringUtils.format(COHORT_KEY_TEMPLATE, op.name().toLowerCase(),
+                begin.format(DAY_FORMATTER), end.format(DAY_FORMATTER)));
+        days.forEach(day -> keys.add(dailySignKey(day)));
+        // BITOP合并到临时key，计数后删除，在一个脚本中原子执行
+        return redisTemplate.execute(COUNT_COHORT_SCRIPT, keys, op.name());
+    }
 
-        // 从结果的最后一个位开始，逐个解析每一位，将其存储在Byte数组中
-        int pos = dayOfMonth - 1;
-        while (pos >= 0) {
-            // 通过&操作获取当前位的值（0或1）
-            arr[pos--] = (byte)(num & 1);
+    private void recordDailySign(Long userId, LocalDate date) {
+        long index = querySignIndex(userId);
+        String key = dailySignKey(date);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection src = (StringRedisConnection) connection;
+            src.setBit(key, index, true);
+            src.expire(key, DAILY_SIGN_TTL.getSeconds());
+            return null;
+        });
+    }
 
-            // 右移一位，准备检查下一个位
-            num >>>= 1;
+    /**
+     * 查询用户的签到序号，首次签到时分配
+     */
+    private long querySignIndex(Long userId) {
+        HashOperations<String, String, String> hashOps = redisTemplate.opsForHash();
+        String field = userId.toString();
+        String index = hashOps.get(RedisConstants.SIGN_USER_INDEX_KEY, field);
+        if (index != null) {
+            return Long.parseLong(index);
+        }
+        Long seq = redisTemplate.opsForValue().increment(RedisConstants.SIGN_USER_INDEX_SEQ_KEY);
+        if (seq == null) {
+            throw new DbException("分配签到序号失败");
         }
+        if (BooleanUtils.isTrue(hashOps.putIfAbsent(RedisConstants.SIGN_USER_INDEX_KEY, field, seq.toString()))) {
+            return seq;
+        }
+        // 并发分配，以先写入的为准
+        return Long.parseLong(hashOps.get(RedisConstants.SIGN_USER_INDEX_KEY, field));
+    }
 
-        // 返回存储签到记录的Byte数组
-        return arr;
+    private String dailySignKey(LocalDate date) {
+        return RedisConstants.SIGN_DAY_KEY_PREFIX + date.format(DAY_FORMATTER);
     }
 
+    private List<LocalDate> listDays(LocalDate begin, LocalDate end) {
+        if (begin == null || end == null || begin.isAfter(end)) {
+            throw new BadRequestException("日期范围不正确");
+        }
+        if (ChronoUnit.DAYS.between(begin, end) >= DateUtils.MAX_3_MONTH_DAY) {
+            throw new BadRequestException("日期范围不能超过" + DateUtils.MAX_3_MONTH_DAY + "天");
+        }
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate d = begin; !d.isAfter(end); d = d.plusDays(1)) {
+            days.add(d);
+        }
+        return days;
+    }
 
+    private YearMonth parseMonth(String month, YearMonth defaultMonth) {
+        if (StringUtils.isBlank(month)) {
+            return defaultMonth;
+        }
+        try {
+            return YearMonth.parse(month, MONTH_FORMATTER);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("月份格式不正确");
+        }
+    }
 
-    private int countSignDays(String key, int len) {
+    /**
+     * 读取签到位图的前len位，第1天在最高位
+     */
+    private long readSignBits(String key, int len) {
         List<Long> result = redisTemplate.opsForValue()
                 .bitField(key, BitFieldSubCommands.create().get(
                         BitFieldSubCommands.BitFieldType.unsigned(len)).valueAt(0));
-        if (CollUtils.isEmpty(result)) {
+        if (CollUtils.isEmpty(result) || result.get(0) == null) {
             return 0;
         }
-        int num = result.get(0).intValue();
+        return result.get(0);
+    }
+
+    private static Byte[] toRecords(long bits, int len) {
+        Byte[] arr = new Byte[len];
+        // 从最后一位开始，逐个解析每一位
+        for (int pos = len - 1; pos >= 0; pos--) {
+            arr[pos] = (byte) (bits & 1);
+            bits >>>= 1;
+        }
+        return arr;
+    }
+
+    private static int longestStreak(long bits, int len) {
+        int longest = 0;
+        int streak = 0;
+        for (int i = 0; i < len; i++) {
+            if ((bits & 1) == 1) {
+                longest = Math.max(longest, ++streak);
+            } else {
+                streak = 0;
+            }
+            bits >>>= 1;
+        }
+        return longest;
+    }
+
+    private int countSignDays(String key, int len) {
+        long num = readSignBits(key, len);
         int count = 0;
         //循环，与1做计算，得到最后一个bit，判断是否为0，为0则终止
         while ((num & 1) == 1){
@@ -0,0 +1,38 @@
+package com.tianji.learning.utils;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟任务，配合 {@link java.util.concurrent.DelayQueue} 使用
+ */
+@Data
+public class DelayTask<D> implements Delayed {
+    private D data;
+    private long deadlineNanos;
+
+    public DelayTask(D data, Duration delayTime) {
+        this.data = data;
+        this.deadlineNanos = System.nanoTime() + delayTime.toNanos();
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        long l = getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+        if (l > 0) {
+            return 1;
+        } else if (l < 0) {
+            return -1;
+        } else {
+            return 0;
+        }
+    }
+}
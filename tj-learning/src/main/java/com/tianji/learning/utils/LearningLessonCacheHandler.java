@@ -0,0 +1,166 @@
+package com.tianji.learning.utils;
+
+import com.tianji.api.coalesce.CourseClientCoalescer;
+import com.tianji.api.dto.course.CourseFullInfoDTO;
+import com.tianji.common.utils.JsonUtils;
+import com.tianji.common.utils.NumberUtils;
+import com.tianji.common.utils.StringUtils;
+import com.tianji.learning.constants.RedisConstants;
+import com.tianji.learning.domain.po.LearningLesson;
+import com.tianji.learning.enums.LessonStatus;
+import com.tianji.learning.mapper.LearningLessonMapper;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * 学习心跳处理时使用的课表状态与课程小节总数缓存
+ * <p>
+ * 课表按用户缓存，课表数据变化后清理缓存，事务中的修改等事务提交后再清理；课程小节总数在课程上下架时失效
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LearningLessonCacheHandler {
+
+    private final StringRedisTemplate redisTemplate;
+    private final LearningLessonMapper lessonMapper;
+    private final CourseClientCoalescer courseClientCoalescer;
+
+    private final static Duration LESSON_CACHE_TTL = Duration.ofMinutes(10);
+    private final static Duration SECTION_NUM_CACHE_TTL = Duration.ofMinutes(30);
+
+    /**
+     * 查询课表，缓存未命中时查询数据库并写入缓存
+     */
+    public LearningLesson getLesson(Long userId, Long lessonId) {
+        // 1.查询缓存
+        String key = StringUtils.format(RedisConstants.LEARNING_LESSON_KEY_TEMPLATE, userId);
+        try {
+            Object cacheData = redisTemplate.opsForHash().get(key, lessonId.toString());
+            if (cacheData != null) {
+                return JsonUtils.toBean(cacheData.toString(), LessonCacheData.class).toLesson();
+            }
+        } catch (Exception e) {
+            log.error("课表缓存读取异常", e);
+        }
+        // 2.未命中，查询数据库
+        LearningLesson lesson = lessonMapper.selectById(lessonId);
+        if (lesson == null) {
+            return null;
+        }
+        // 3.写入缓存
+        putLesson(userId, lesson);
+        return lesson;
+    }
+
+    /**
+     * 写入课表缓存
+     */
+    public void putLesson(Long userId, LearningLesson lesson) {
+        String key = StringUtils.format(RedisConstants.LEARNING_LESSON_KEY_TEMPLATE, userId);
+        try {
+            redisTemplate.opsForHash().put(key, lesson.getId().toString(), JsonUtils.toJsonStr(new LessonCacheData(lesson)));
+            redisTemplate.expire(key, LESSON_CACHE_TTL);
+        } catch (Exception e) {
+            log.error("课表缓存更新异常", e);
+        }
+    }
+
+    /**
+     * 清理单个课表的缓存，课表数据变化后调用
+     */
+    public void cleanLesson(Long userId, Long lessonId) {
+        String key = StringUtils.format(RedisConstants.LEARNING_LESSON_KEY_TEMPLATE, userId);
+        afterCommit(() -> redisTemplate.opsForHash().delete(key, lessonId.toString()));
+    }
+
+    /**
+     * 清理用户的课表缓存，用户课表新增或删除时调用
+     */
+    public void cleanUserLessons(Long userId) {
+        String key = StringUtils.format(RedisConstants.LEARNING_LESSON_KEY_TEMPLATE, userId);
+        afterCommit(() -> redisTemplate.delete(key));
+    }
+
+    /**
+     * 有事务时等事务提交后再执行，避免提交前并发查询把旧数据重新写入缓存
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 查询课程小节总数，缓存未命中时远程查询课程信息
+     */
+    public Integer getCourseSectionNum(Long courseId) {
+        // 1.查询缓存
+        String key = StringUtils.format(RedisConstants.COURSE_SECTION_NUM_KEY_TEMPLATE, courseId);
+        String cacheData = redisTemplate.opsForValue().get(key);
+        if (StringUtils.isNotBlank(cacheData)) {
+            return NumberUtils.parseInt(cacheData);
+        }
+        // 2.未命中，查询课程
+        CourseFullInfoDTO cInfo = courseClientCoalescer.getCourseInfoById(courseId);
+        if (cInfo == null || cInfo.getSectionNum() == null) {
+            return null;
+        }
+        // 3.写入缓存
+        redisTemplate.opsForValue().set(key, cInfo.getSectionNum().toString(), SECTION_NUM_CACHE_TTL);
+        return cInfo.getSectionNum();
+    }
+
+    /**
+     * 清理课程小节总数缓存，课程上下架、过期时调用
+     */
+    public void cleanCourseSectionNum(Long courseId) {
+        redisTemplate.delete(StringUtils.format(RedisConstants.COURSE_SECTION_NUM_KEY_TEMPLATE, courseId));
+    }
+
+    @Data
+    @NoArgsConstructor
+    private static class LessonCacheData {
+        private Long id;
+        private Long userId;
+        private Long courseId;
+        private Integer status;
+        private Integer learnedSections;
+        private Long latestSectionId;
+
+        public LessonCacheData(LearningLesson lesson) {
+            this.id = lesson.getId();
+            this.userId = lesson.getUserId();
+            this.courseId = lesson.getCourseId();
+            this.status = lesson.getStatus() == null ? null : lesson.getStatus().getValue();
+            this.learnedSections = lesson.getLearnedSections();
+            this.latestSectionId = lesson.getLatestSectionId();
+        }
+
+        public LearningLesson toLesson() {
+            LearningLesson lesson = new LearningLesson();
+            lesson.setId(id);
+            lesson.setUserId(userId);
+            lesson.setCourseId(courseId);
+            lesson.setStatus(LessonStatus.of(status));
+            lesson.setLearnedSections(learnedSections);
+            lesson.setLatestSectionId(latestSectionId);
+            return lesson;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.tianji.learning.utils;
+
+import com.tianji.common.utils.JsonUtils;
+import com.tianji.common.utils.StringUtils;
+import com.tianji.learning.constants.RedisConstants;
+import com.tianji.learning.domain.po.LearningLesson;
+import com.tianji.learning.domain.po.LearningRecord;
+import com.tianji.learning.enums.LessonStatus;
+import com.tianji.learning.mapper.LearningRecordMapper;
+import com.tianji.learning.service.ILearningLessonService;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 视频播放进度的延迟写入处理器
+ * <p>
+ * 播放进度先写入Redis，同时投递一个延迟任务；任务到期时如果缓存中的进度与任务中的进度一致，
+ * 说明用户已经停止播放，此时再把最新进度持久化到数据库，避免每次心跳都访问数据库
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LearningRecordDelayTaskHandler {
+
+    private final StringRedisTemplate redisTemplate;
+    private final LearningRecordMapper recordMapper;
+    private final ILearningLessonService lessonService;
+    private final LearningLessonCacheHandler lessonCacheHandler;
+
+    private final DelayQueue<DelayTask<RecordTaskData>> queue = new DelayQueue<>();
+    private final static Duration DELAY_TIME = Duration.ofSeconds(20);
+    private final static Duration CACHE_TTL = Duration.ofMinutes(1);
+    private ThreadPoolTaskExecutor executor;
+    private volatile boolean begin = true;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("learning-record-flusher-");
+        // 队列满时由调度线程自己执行，形成背压
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        Thread worker = new Thread(this::handleDelayTask, "learning-record-delay-task");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        begin = false;
+        log.debug("延迟任务停止执行！");
+        executor.shutdown();
+    }
+
+    private void handleDelayTask() {
+        while (begin) {
+            try {
+                // 1.获取到期的延迟任务
+                DelayTask<RecordTaskData> task = queue.take();
+                // 2.交给线程池异步处理
+                executor.execute(() -> flushRecord(task.getData()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("处理延迟任务发生异常", e);
+            }
+        }
+    }
+
+    private void flushRecord(RecordTaskData data) {
+        try {
+            // 1.查询Redis缓存
+            LearningRecord record = readRecordCache(data.getLessonId(), data.getSectionId());
+            if (record == null) {
+                return;
+            }
+            // 2.比较数据，moment值不一致说明用户仍在持续提交播放进度，放弃旧数据
+            if (!Objects.equals(data.getMoment(), record.getMoment())) {
+                return;
+            }
+            // 3.一致，持久化播放进度数据到数据库
+            // 3.1.更新学习记录的moment，finished由同步流程维护，此处不更新
+            record.setFinished(null);
+            recordMapper.updateById(record);
+            // 3.2.更新课表最近学习信息，未开始学习的课表改为学习中
+            lessonService.lambdaUpdate()
+                    .set(LearningLesson::getLatestSectionId, data.getSectionId())
+                    .set(LearningLesson::getLatestLearnTime,
+                            data.getCommitTime() == null ? LocalDateTime.now() : data.getCommitTime())
+                    .setSql(StringUtils.format("status = IF(status = {}, {}, status)",
+                            LessonStatus.NOT_BEGIN.getValue(), LessonStatus.LEARNING.getValue()))
+                    .eq(LearningLesson::getId, data.getLessonId())
+                    .update();
+            // 3.3.课表缓存失效，下次从数据库重新加载
+            lessonCacheHandler.cleanLesson(data.getUserId(), data.getLessonId());
+        } catch (Exception e) {
+            log.error("持久化学习记录发生异常，lessonId：{}，sectionId：{}", data.getLessonId(), data.getSectionId(), e);
+        }
+    }
+
+    /**
+     * 缓存播放进度并投递延迟写入任务
+     */
+    public void addLearningRecordTask(LearningRecord record, LocalDateTime commitTime) {
+        // 1.添加数据到Redis缓存
+        writeRecordCache(record);
+        // 2.提交延迟任务到延迟队列 DelayQueue
+        queue.add(new DelayTask<>(new RecordTaskData(record, commitTime), DELAY_TIME));
+    }
+
+    public void writeRecordCache(LearningRecord record) {
+        log.debug("更新学习记录的缓存数据");
+        try {
+            // 1.数据转换
+            String json = JsonUtils.toJsonStr(new RecordCacheData(record));
+            // 2.写入Redis
+            String key = StringUtils.format(RedisConstants.LEARNING_RECORD_KEY_TEMPLATE, record.getLessonId());
+            redisTemplate.opsForHash().put(key, record.getSectionId().toString(), json);
+            // 3.添加缓存过期时间
+            redisTemplate.expire(key, CACHE_TTL);
+        } catch (Exception e) {
+            log.error("更新学习记录缓存异常", e);
+        }
+    }
+
+    public LearningRecord readRecordCache(Long lessonId, Long sectionId) {
+        try {
+            // 1.读取Redis数据
+            String key = StringUtils.format(RedisConstants.LEARNING_RECORD_KEY_TEMPLATE, lessonId);
+            Object cacheData = redisTemplate.opsForHash().get(key, sectionId.toString());
+            if (cacheData == null) {
+                return null;
+            }
+            // 2.数据检查和转换
+            LearningRecord record = JsonUtils.toBean(cacheData.toString(), LearningRecord.class);
+            record.setLessonId(lessonId);
+            record.setSectionId(sectionId);
+            return record;
+        } catch (Exception e) {
+            log.error("缓存读取异常", e);
+            return null;
+        }
+    }
+
+    public void cleanRecordCache(Long lessonId, Long sectionId) {
+        // 删除数据
+        String key = StringUtils.format(RedisConstants.LEARNING_RECORD_KEY_TEMPLATE, lessonId);
+        redisTemplate.opsForHash().delete(key, sectionId.toString());
+    }
+
+    @Data
+    @NoArgsConstructor
+    private static class RecordCacheData {
+        private Long id;
+        private Integer moment;
+        private Boolean finished;
+
+        public RecordCacheData(LearningRecord record) {
+            this.id = record.getId();
+            this.moment = record.getMoment();
+            this.finished = record.getFinished();
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    private static class RecordTaskData {
+        private Long userId;
+        private Long lessonId;
+        private Long sectionId;
+        private Integer moment;
+        private LocalDateTime commitTime;
+
+        public RecordTaskData(LearningRecord record, LocalDateTime commitTime) {
+            this.userId = record.getUserId();
+            this.lessonId = record.getLessonId();
+            this.sectionId = record.getSectionId();
+            this.moment = record.getMoment();
+            this.commitTime = commitTime;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.tianji.learning.utils;
+
+import com.tianji.learning.domain.po.PointsRecord;
+import com.tianji.learning.mapper.PointsRecordMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 积分记录的批量写入处理器
+ * <p>
+ * 积分的每日上限和榜单已经在Redis中原子完成，积分记录只用于明细查询，
+ * 因此先写入缓冲区，数量达到上限或者定时任务到期时批量插入数据库
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PointsRecordBatchWriter {
+
+    private static final int MAX_BATCH_SIZE = 500;
+    /**
+     * 数据库持续不可用时，缓冲区最多保留的记录数，超出的记录丢弃
+     */
+    private static final int MAX_BUFFER_SIZE = 100000;
+
+    private final PointsRecordMapper recordMapper;
+
+    private List<PointsRecord> buffer = new ArrayList<>();
+    private final Object bufferLock = new Object();
+    /**
+     * 保证各批次按顺序写入
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public void add(PointsRecord record) {
+        int size;
+        synchronized (bufferLock) {
+            buffer.add(record);
+            size = buffer.size();
+        }
+        if (size >= MAX_BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void flush() {
+        flushLock.lock();
+        try {
+            // 1.取出缓冲区的数据
+            List<PointsRecord> records;
+            synchronized (bufferLock) {
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                records = buffer;
+                buffer = new ArrayList<>();
+            }
+            // 2.分批写入
+            for (int i = 0; i < records.size(); i += MAX_BATCH_SIZE) {
+                List<PointsRecord> batch = records.subList(i, Math.min(i + MAX_BATCH_SIZE, records.size()));
+                try {
+                    recordMapper.insertBatch(batch);
+                } catch (RuntimeException e) {
+                    log.error("批量写入积分记录失败，将在下次重试", e);
+                    requeue(records.subList(i, records.size()));
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 写入失败的记录放回缓冲区头部
+     */
+    private void requeue(List<PointsRecord> failed) {
+        synchronized (bufferLock) {
+            List<PointsRecord> list = new ArrayList<>(failed.size() + buffer.size());
+            list.addAll(failed);
+            list.addAll(buffer);
+            if (list.size() > MAX_BUFFER_SIZE) {
+                log.error("积分记录缓冲区已满，丢弃{}条记录", list.size() - MAX_BUFFER_SIZE);
+                list = new ArrayList<>(list.subList(list.size() - MAX_BUFFER_SIZE, list.size()));
+            }
+            buffer = list;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+}
@@ -0,0 +1,45 @@
+package com.tianji.learning.utils;
+
+import com.tianji.learning.mapper.InteractionReplyMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 回答点赞数的批量写入处理器
+ * <p>
+ * 监听器批量消费点赞数变更消息，同一回答只保留最后一次的点赞数，通过 CASE WHEN 语句每批更新多行。
+ * 写入完成后监听器才返回，消息在写入成功后才确认；写入失败时抛出异常，整批消息重新投递，
+ * 点赞数是最新的总数，重复写入不影响结果
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReplyLikedTimesBatchWriter {
+
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final InteractionReplyMapper replyMapper;
+
+    /**
+     * 分批写入点赞数
+     *
+     * @param likedTimes 回答id -> 最新的点赞数
+     */
+    public void write(Map<Long, Integer> likedTimes) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(likedTimes.entrySet());
+        for (int i = 0; i < entries.size(); i += MAX_BATCH_SIZE) {
+            Map<Long, Integer> batch = new LinkedHashMap<>();
+            for (Map.Entry<Long, Integer> e : entries.subList(i, Math.min(i + MAX_BATCH_SIZE, entries.size()))) {
+                batch.put(e.getKey(), e.getValue());
+            }
+            replyMapper.updateLikedTimesBatch(batch);
+        }
+        log.debug("批量更新回答点赞数：{}条", entries.size());
+    }
+}
@@ -0,0 +1,24 @@
+-- 增加积分：按每日上限计算实际可得的积分，累加到当日计数并更新赛季榜单
+-- KEYS[1] 用户当日积分计数key（hash结构，field为积分类型），KEYS[2] 赛季榜单key
+-- ARGV[1] 用户id，ARGV[2] 积分类型，ARGV[3] 本次积分，ARGV[4] 每日上限（0代表没有上限）
+-- 返回值：实际增加的积分，-1代表当日计数不存在，需要先从数据库加载
+local points = tonumber(ARGV[3])
+local maxPoints = tonumber(ARGV[4])
+if (maxPoints > 0) then
+    local current = redis.call('hget', KEYS[1], ARGV[2])
+    if (not current) then
+        return -1
+    end
+    current = tonumber(current)
+    if (current >= maxPoints) then
+        return 0
+    end
+    if (current + points > maxPoints) then
+        points = maxPoints - current
+    end
+    redis.call('hincrby', KEYS[1], ARGV[2], points)
+end
+if (points > 0) then
+    redis.call('zincrby', KEYS[2], points, ARGV[1])
+end
+return points
@@ -0,0 +1,8 @@
+-- 统计签到人群：把多日的签到位图按位运算合并到临时key，计数后删除，脚本原子执行，并发请求不会互相覆盖临时key
+-- KEYS[1] 临时key，KEYS[2..n] 每日签到位图key
+-- ARGV[1] 位运算，AND或OR
+-- 返回值：合并后位图中1的个数
+redis.call('bitop', ARGV[1], KEYS[1], unpack(KEYS, 2))
+local count = redis.call('bitcount', KEYS[1])
+redis.call('del', KEYS[1])
+return count
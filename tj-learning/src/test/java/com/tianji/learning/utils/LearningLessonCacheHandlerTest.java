@@ -0,0 +1,165 @@
+package com.tianji.learning.utils;
+
+import com.tianji.api.coalesce.CourseClientCoalescer;
+import com.tianji.api.dto.course.CourseFullInfoDTO;
+import com.tianji.learning.domain.po.LearningLesson;
+import com.tianji.learning.enums.LessonStatus;
+import com.tianji.learning.mapper.LearningLessonMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class LearningLessonCacheHandlerTest {
+
+    private static final Long USER_ID = 1L;
+    private static final Long LESSON_ID = 10L;
+    private static final Long COURSE_ID = 100L;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private LearningLessonMapper lessonMapper;
+    private CourseClientCoalescer courseClientCoalescer;
+    private LearningLessonCacheHandler cacheHandler;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        lessonMapper = mock(LearningLessonMapper.class);
+        courseClientCoalescer = mock(CourseClientCoalescer.class);
+        cacheHandler = new LearningLessonCacheHandler(redisTemplate, lessonMapper, courseClientCoalescer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        redisTemplate.execute(connection -> {
+            connection.flushDb();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void getLessonLoadsFromDbOnceThenHitsCache() {
+        when(lessonMapper.selectById(LESSON_ID)).thenReturn(lesson(LessonStatus.LEARNING, 3));
+
+        LearningLesson first = cacheHandler.getLesson(USER_ID, LESSON_ID);
+        LearningLesson second = cacheHandler.getLesson(USER_ID, LESSON_ID);
+
+        assertEquals(3, first.getLearnedSections());
+        assertEquals(LessonStatus.LEARNING, second.getStatus());
+        assertEquals(COURSE_ID, second.getCourseId());
+        verify(lessonMapper, times(1)).selectById(anyLong());
+    }
+
+    @Test
+    void cleanLessonWithoutTransactionEvictsImmediately() {
+        when(lessonMapper.selectById(LESSON_ID))
+                .thenReturn(lesson(LessonStatus.LEARNING, 3), lesson(LessonStatus.FINISHED, 4));
+        cacheHandler.getLesson(USER_ID, LESSON_ID);
+
+        cacheHandler.cleanLesson(USER_ID, LESSON_ID);
+
+        LearningLesson lesson = cacheHandler.getLesson(USER_ID, LESSON_ID);
+        assertEquals(LessonStatus.FINISHED, lesson.getStatus());
+        assertEquals(4, lesson.getLearnedSections());
+    }
+
+    @Test
+    void cleanLessonInTransactionEvictsAfterCommit() {
+        // 事务提交前，并发的查询读到旧数据并写入缓存
+        when(lessonMapper.selectById(LESSON_ID))
+                .thenReturn(lesson(LessonStatus.LEARNING, 3), lesson(LessonStatus.FINISHED, 4));
+        TransactionSynchronizationManager.initSynchronization();
+        cacheHandler.cleanLesson(USER_ID, LESSON_ID);
+        assertEquals(3, cacheHandler.getLesson(USER_ID, LESSON_ID).getLearnedSections());
+
+        // 事务提交后清理缓存，不会留下旧数据
+        commit();
+
+        LearningLesson lesson = cacheHandler.getLesson(USER_ID, LESSON_ID);
+        assertEquals(LessonStatus.FINISHED, lesson.getStatus());
+        assertEquals(4, lesson.getLearnedSections());
+    }
+
+    @Test
+    void cleanUserLessonsInTransactionEvictsAfterCommit() {
+        when(lessonMapper.selectById(LESSON_ID)).thenReturn(lesson(LessonStatus.LEARNING, 3));
+        cacheHandler.getLesson(USER_ID, LESSON_ID);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cacheHandler.cleanUserLessons(USER_ID);
+        assertEquals(Boolean.TRUE, redisTemplate.hasKey("learning:lesson:" + USER_ID));
+
+        commit();
+        assertEquals(Boolean.FALSE, redisTemplate.hasKey("learning:lesson:" + USER_ID));
+    }
+
+    @Test
+    void courseSectionNumCachedUntilCleaned() {
+        CourseFullInfoDTO course = new CourseFullInfoDTO();
+        course.setSectionNum(12);
+        when(courseClientCoalescer.getCourseInfoById(COURSE_ID)).thenReturn(course);
+
+        assertEquals(12, cacheHandler.getCourseSectionNum(COURSE_ID));
+        assertEquals(12, cacheHandler.getCourseSectionNum(COURSE_ID));
+        verify(courseClientCoalescer, times(1)).getCourseInfoById(COURSE_ID);
+
+        cacheHandler.cleanCourseSectionNum(COURSE_ID);
+        assertEquals(12, cacheHandler.getCourseSectionNum(COURSE_ID));
+        verify(courseClientCoalescer, times(2)).getCourseInfoById(COURSE_ID);
+    }
+
+    private static void commit() {
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+            s.afterCommit();
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static LearningLesson lesson(LessonStatus status, int learnedSections) {
+        LearningLesson lesson = new LearningLesson();
+        lesson.setId(LESSON_ID);
+        lesson.setUserId(USER_ID);
+        lesson.setCourseId(COURSE_ID);
+        lesson.setStatus(status);
+        lesson.setLearnedSections(learnedSections);
+        return lesson;
+    }
+}
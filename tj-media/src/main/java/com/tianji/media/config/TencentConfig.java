@@ -4,25 +4,30 @@ import com.qcloud.cos.COSClient;
 import com.qcloud.cos.ClientConfig;
 import com.qcloud.cos.auth.BasicCOSCredentials;
 import com.qcloud.cos.auth.COSCredentials;
+import com.qcloud.cos.endpoint.UserSpecifiedEndpointBuilder;
+import com.qcloud.cos.http.HttpProtocol;
 import com.qcloud.cos.region.Region;
-import com.qcloud.cos.transfer.TransferManager;
-import com.qcloud.cos.transfer.TransferManagerConfiguration;
 import com.qcloud.vod.VodUploadClient;
 import com.tencentcloudapi.common.Credential;
 import com.tencentcloudapi.common.profile.ClientProfile;
 import com.tencentcloudapi.common.profile.HttpProfile;
 import com.tencentcloudapi.vod.v20180717.VodClient;
 import com.tianji.media.storage.IFileStorage;
+import com.tianji.common.utils.StringUtils;
 import com.tianji.media.storage.IMediaStorage;
+import com.tianji.media.storage.tencent.CosMultipartUploader;
 import com.tianji.media.storage.tencent.TencentFileStorage;
 import com.tianji.media.storage.tencent.TencentMediaStorage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 @EnableConfigurationProperties({TencentProperties.class})
@@ -54,8 +59,9 @@ public class TencentConfig {
 
     @Bean
     @ConditionalOnProperty(prefix = "tj.platform", name = "media", havingValue = "TENCENT")
-    public IMediaStorage tencentMediaStorage(VodClient tencentVodClient, TencentProperties properties){
-        return new TencentMediaStorage(tencentVodClient, properties);
+    public IMediaStorage tencentMediaStorage(
+            VodClient tencentVodClient, CosMultipartUploader cosMultipartUploader, TencentProperties properties){
+        return new TencentMediaStorage(tencentVodClient, cosMultipartUploader, properties);
     }
 
     @Bean
@@ -63,37 +69,44 @@ public class TencentConfig {
     public COSClient tencentCosClient(TencentProperties properties){
         // 1.授权信息
         COSCredentials cred = new BasicCOSCredentials(properties.getSecretId(), properties.getSecretKey());
-        // 2.基本配置
-        Region region = new Region(properties.getCos().getRegion());
-        ClientConfig clientConfig = new ClientConfig(region);
-        // 3.初始化客户端
-        return new COSClient(cred, clientConfig);
+        // 2.初始化客户端
+        return new COSClient(cred, cosClientConfig(properties.getCos().getRegion(), properties.getCos()));
     }
 
-    @Bean
-    @ConditionalOnProperty(prefix = "tj.platform", name = "file", havingValue = "TENCENT")
-    public TransferManager transferManager(COSClient tencentCosClient, TencentProperties properties){
-        // 自定义线程池大小，建议在客户端与 COS 网络充足（例如使用腾讯云的 CVM，同地域上传 COS）的情况下，设置成16或32即可，可较充分的利用网络资源
-        // 对于使用公网传输且网络带宽质量不高的情况，建议减小该值，避免因网速过慢，造成请求超时。
-        ExecutorService threadPool = Executors.newFixedThreadPool(4);
-
-        // 传入一个 threadPool, 若不传入线程池，默认 TransferManager 中会生成一个单线程的线程池。
-        TransferManager transferManager = new TransferManager(tencentCosClient, threadPool);
-
-        // 设置高级接口的配置项
-        // 分块上传阈值和分块大小分别为 5MB 和 1MB
-        TransferManagerConfiguration transferManagerConfiguration = new TransferManagerConfiguration();
-        transferManagerConfiguration.setMultipartUploadThreshold(properties.getCos().getMultipartUploadThreshold());
-        transferManagerConfiguration.setMinimumUploadPartSize(properties.getCos().getMinimumUploadPartSize());
-        transferManager.setConfiguration(transferManagerConfiguration);
+    /**
+     * COS客户端配置，配置了自定义域名时直接访问该域名，便于对接兼容COS协议的本地服务
+     */
+    public static ClientConfig cosClientConfig(String region, TencentProperties.CosProperties cos){
+        ClientConfig clientConfig = new ClientConfig(new Region(region));
+        clientConfig.setHttpProtocol(HttpProtocol.valueOf(cos.getProtocol()));
+        if (StringUtils.isNotBlank(cos.getEndpoint())) {
+            clientConfig.setEndpointBuilder(new UserSpecifiedEndpointBuilder(cos.getEndpoint(), cos.getEndpoint()));
+        }
+        return clientConfig;
+    }
 
-        return transferManager;
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnExpression("'${tj.platform.media:}' == 'TENCENT' or '${tj.platform.file:}' == 'TENCENT'")
+    public CosMultipartUploader cosMultipartUploader(TencentProperties properties){
+        TencentProperties.CosProperties cos = properties.getCos();
+        // 所有上传共用的有界线程池，在途分块数量已经由上传工具限制，队列满时由提交分块的线程自己上传
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                cos.getUploadThreads(), cos.getUploadThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cos.getUploadThreads() * 4),
+                r -> new Thread(r, "cos-upload-" + index.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return new CosMultipartUploader(executor,
+                cos.getMultipartUploadThreshold(), cos.getMinimumUploadPartSize(),
+                cos.getMaxPartsInFlight(), cos.getPartRetries(),
+                cos.getMaxConcurrentUploads(), cos.getUploadAcquireTimeout());
     }
 
     @Bean
     @ConditionalOnProperty(prefix = "tj.platform", name = "file", havingValue = "TENCENT")
     public IFileStorage tencentFileStorage(
-            COSClient tencentCosClient, TransferManager transferManager, TencentProperties properties){
-        return new TencentFileStorage(tencentCosClient, transferManager, properties);
+            COSClient tencentCosClient, CosMultipartUploader cosMultipartUploader, TencentProperties properties){
+        return new TencentFileStorage(tencentCosClient, cosMultipartUploader, properties);
     }
 }
@@ -36,5 +36,19 @@ public class TencentProperties {
         private long multipartUploadThreshold;
         /*分块上传的最小分块大小*/
         private long minimumUploadPartSize;
+        /*自定义访问域名，为空时按区域访问COS，可指向兼容COS协议的本地服务*/
+        private String endpoint;
+        /*访问自定义域名时使用的协议*/
+        private String protocol = "https";
+        /*上传线程池大小，所有上传共用*/
+        private int uploadThreads = 16;
+        /*同时进行的上传数量上限*/
+        private int maxConcurrentUploads = 8;
+        /*单个上传同时在途的分块数量上限*/
+        private int maxPartsInFlight = 4;
+        /*单个分块的重试次数*/
+        private int partRetries = 3;
+        /*等待上传许可的最长时间，毫秒*/
+        private long uploadAcquireTimeout = 3000;
     }
 }
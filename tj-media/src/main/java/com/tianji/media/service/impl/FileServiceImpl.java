@@ -43,15 +43,14 @@ public class FileServiceImpl extends ServiceImpl<FileMapper, File> implements IF
         String originalFilename = file.getOriginalFilename();
         // 2.生成新文件名
         String filename = generateNewFileName(originalFilename);
-        // 3.获取文件流
-        InputStream inputStream;
-        try {
-            inputStream = file.getInputStream();
+        // 3.获取文件流，直接流式上传，不在内存中缓存整个文件
+        String requestId;
+        try (InputStream inputStream = file.getInputStream()) {
+            // 4.上传文件
+            requestId = fileStorage.uploadFile(filename, inputStream, file.getSize());
         } catch (IOException e) {
             throw new CommonException("文件读取异常", e);
         }
-        // 4.上传文件
-        String requestId = fileStorage.uploadFile(filename, inputStream, file.getSize());
         // 5.写入数据库
         File fileInfo = null;
         try {
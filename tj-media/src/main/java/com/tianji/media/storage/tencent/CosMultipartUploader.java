@@ -0,0 +1,237 @@
+package com.tianji.media.storage.tencent;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.auth.COSCredentials;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.*;
+import com.tianji.common.exceptions.CommonException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * COS分块上传工具
+ * <p>
+ * 所有上传共用一个有界线程池，边读取输入流边上传分块：
+ * <ul>
+ *     <li>同时进行的上传数量有上限，超过上限的请求等待一段时间后失败，避免大量并发上传耗尽线程和内存</li>
+ *     <li>单个上传同时在途的分块数量有上限，内存占用不超过 上传数量 * 在途分块数 * 分块大小</li>
+ *     <li>记录已完成分块的ETag，某个分块失败时只重试该分块，不会从头上传整个文件</li>
+ * </ul>
+ * 凭证通过请求参数传入，不同凭证的上传可以共用同一个客户端
+ */
+@Slf4j
+public class CosMultipartUploader {
+
+    /**
+     * 分块数量上限
+     */
+    private static final int MAX_PART_COUNT = 10000;
+
+    private final ExecutorService executor;
+    private final long multipartThreshold;
+    private final long minPartSize;
+    private final int maxPartsInFlight;
+    private final int partRetries;
+    private final Semaphore uploadPermits;
+    private final long acquireTimeoutMillis;
+
+    public CosMultipartUploader(ExecutorService executor, long multipartThreshold, long minPartSize,
+                                int maxPartsInFlight, int partRetries, int maxConcurrentUploads, long acquireTimeoutMillis) {
+        this.executor = executor;
+        this.multipartThreshold = multipartThreshold;
+        this.minPartSize = minPartSize;
+        this.maxPartsInFlight = maxPartsInFlight;
+        this.partRetries = partRetries;
+        this.uploadPermits = new Semaphore(maxConcurrentUploads);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * 上传文件
+     *
+     * @param cos           客户端
+     * @param bucket        存储桶
+     * @param key           文件key
+     * @param inputStream   文件流，由调用方关闭
+     * @param contentLength 文件大小
+     * @param credentials   本次上传使用的凭证，为null时使用客户端的凭证
+     * @return 请求id
+     */
+    public String upload(COS cos, String bucket, String key, InputStream inputStream, long contentLength,
+                         COSCredentials credentials) {
+        // 1.获取上传许可
+        try {
+            if (!uploadPermits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new CommonException("上传任务过多，请稍后再试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommonException("上传被中断", e);
+        }
+        try {
+            // 2.小文件直接上传
+            if (contentLength <= multipartThreshold) {
+                return putObject(cos, bucket, key, inputStream, contentLength, credentials);
+            }
+            // 3.大文件分块上传
+            return multipartUpload(cos, bucket, key, inputStream, contentLength, credentials);
+        } finally {
+            uploadPermits.release();
+        }
+    }
+
+    private String putObject(COS cos, String bucket, String key, InputStream inputStream, long contentLength,
+                             COSCredentials credentials) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(contentLength);
+        PutObjectRequest request = new PutObjectRequest(bucket, key, inputStream, metadata);
+        request.setCosCredentials(credentials);
+        return cos.putObject(request).getRequestId();
+    }
+
+    private String multipartUpload(COS cos, String bucket, String key, InputStream inputStream, long contentLength,
+                                   COSCredentials credentials) {
+        // 1.初始化分块上传，文件很大时加大分块，保证分块数量不超过上限
+        long partSize = Math.max(minPartSize, (contentLength + MAX_PART_COUNT - 1) / MAX_PART_COUNT);
+        InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(bucket, key);
+        initRequest.setCosCredentials(credentials);
+        String uploadId = cos.initiateMultipartUpload(initRequest).getUploadId();
+        UploadProgress progress = new UploadProgress(cos, bucket, key, uploadId, credentials);
+        List<Future<PartETag>> futures = new ArrayList<>((int) (contentLength / partSize) + 1);
+        try {
+            // 2.读取分块并提交上传，在途分块数量达到上限时等待，有分块最终失败时不再读取
+            Semaphore inFlight = new Semaphore(maxPartsInFlight);
+            long remaining = contentLength;
+            int partNumber = 1;
+            while (remaining > 0 && !progress.failed) {
+                int size = (int) Math.min(partSize, remaining);
+                byte[] data = readPart(inputStream, size);
+                inFlight.acquire();
+                if (progress.failed) {
+                    // 等待期间有分块最终失败，不再提交
+                    inFlight.release();
+                    break;
+                }
+                int number = partNumber;
+                futures.add(executor.submit(() -> {
+                    try {
+                        return uploadPart(progress, number, data);
+                    } catch (RuntimeException e) {
+                        progress.failed = true;
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+                remaining -= size;
+                partNumber++;
+            }
+            // 3.等待所有分块完成
+            for (Future<PartETag> future : futures) {
+                progress.partETags.add(future.get());
+            }
+            // 4.合并分块
+            progress.partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+            CompleteMultipartUploadRequest completeRequest =
+                    new CompleteMultipartUploadRequest(bucket, key, uploadId, progress.partETags);
+            completeRequest.setCosCredentials(credentials);
+            return cos.completeMultipartUpload(completeRequest).getRequestId();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(progress, futures);
+            throw new CommonException("上传被中断", e);
+        } catch (ExecutionException e) {
+            abort(progress, futures);
+            throw new CommonException("分块上传失败", e.getCause());
+        } catch (RuntimeException e) {
+            abort(progress, futures);
+            throw e;
+        }
+    }
+
+    private byte[] readPart(InputStream inputStream, int size) {
+        try {
+            byte[] data = inputStream.readNBytes(size);
+            if (data.length < size) {
+                throw new CommonException("文件流长度与文件大小不一致");
+            }
+            return data;
+        } catch (IOException e) {
+            throw new CommonException("文件读取异常", e);
+        }
+    }
+
+    /**
+     * 上传单个分块，失败时只重试该分块
+     */
+    private PartETag uploadPart(UploadProgress progress, int partNumber, byte[] data) {
+        RuntimeException err = null;
+        for (int i = 0; i <= partRetries; i++) {
+            UploadPartRequest request = new UploadPartRequest();
+            request.setBucketName(progress.bucket);
+            request.setKey(progress.key);
+            request.setUploadId(progress.uploadId);
+            request.setPartNumber(partNumber);
+            request.setPartSize(data.length);
+            request.setInputStream(new ByteArrayInputStream(data));
+            request.setCosCredentials(progress.credentials);
+            try {
+                return progress.cos.uploadPart(request).getPartETag();
+            } catch (CosServiceException e) {
+                // 服务端明确拒绝的请求（凭证、权限等）重试也不会成功
+                if (e.getStatusCode() < 500) {
+                    throw e;
+                }
+                err = e;
+            } catch (RuntimeException e) {
+                err = e;
+            }
+            log.warn("上传分块失败，uploadId：{}，分块：{}，已尝试{}次", progress.uploadId, partNumber, i + 1, err);
+        }
+        throw err;
+    }
+
+    private void abort(UploadProgress progress, List<Future<PartETag>> futures) {
+        futures.forEach(f -> f.cancel(true));
+        try {
+            AbortMultipartUploadRequest request =
+                    new AbortMultipartUploadRequest(progress.bucket, progress.key, progress.uploadId);
+            request.setCosCredentials(progress.credentials);
+            progress.cos.abortMultipartUpload(request);
+        } catch (RuntimeException e) {
+            log.error("取消分块上传失败，uploadId：{}，已完成分块：{}", progress.uploadId, progress.partETags.size(), e);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class UploadProgress {
+        private final COS cos;
+        private final String bucket;
+        private final String key;
+        private final String uploadId;
+        private final COSCredentials credentials;
+        /**
+         * 已完成的分块，只在上传线程中修改
+         */
+        private final List<PartETag> partETags = new ArrayList<>();
+        private volatile boolean failed;
+
+        UploadProgress(COS cos, String bucket, String key, String uploadId, COSCredentials credentials) {
+            this.cos = cos;
+            this.bucket = bucket;
+            this.key = key;
+            this.uploadId = uploadId;
+            this.credentials = credentials;
+        }
+    }
+}
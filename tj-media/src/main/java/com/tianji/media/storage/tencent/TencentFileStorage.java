@@ -9,8 +9,6 @@ import com.tianji.media.storage.IFileStorage;
 import com.qcloud.cos.COSClient;
 import com.qcloud.cos.model.*;
 import com.qcloud.cos.model.DeleteObjectsRequest.KeyVersion;
-import com.qcloud.cos.transfer.TransferManager;
-import com.qcloud.cos.transfer.Upload;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.InputStream;
@@ -23,12 +21,12 @@ import static com.tianji.media.enums.FileErrorInfo.Msg.*;
 public class TencentFileStorage implements IFileStorage {
 
     private final COSClient cosClient;
-    private final TransferManager transferManager;
+    private final CosMultipartUploader uploader;
     private final String bucketName;
 
-    public TencentFileStorage(COSClient tencentCosClient, TransferManager transferManager, TencentProperties properties) {
+    public TencentFileStorage(COSClient tencentCosClient, CosMultipartUploader uploader, TencentProperties properties) {
         this.cosClient = tencentCosClient;
-        this.transferManager = transferManager;
+        this.uploader = uploader;
         this.bucketName = properties.getCos().getBucket() + "-" + properties.getAppId();
     }
 
@@ -39,20 +37,9 @@ public class TencentFileStorage implements IFileStorage {
         AssertUtils.isNotBlank(key, FILE_KEY_IS_NULL);
         AssertUtils.isNotNull(inputStream);
 
-        // 2.元信息，主要是文件大小，这样才可以利用分片上传功能
-        ObjectMetadata objectMetadata = new ObjectMetadata();
-        objectMetadata.setContentLength(contentLength);
-
-        // 3.请求对象
-        PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, key, inputStream, objectMetadata);
-
         try {
-            // 4.异步发起上传，返回异步结果upload
-            Upload upload = transferManager.upload(putObjectRequest);
-            // 5.等待结果
-            UploadResult result = upload.waitForUploadResult();
-            // 6.返回信息
-            return result.getRequestId();
+            // 2.上传，超过阈值时边读边分块上传
+            return uploader.upload(cosClient, bucketName, key, inputStream, contentLength, null);
         } catch (Exception e) {
             log.error("上传文件[{}]时发生异常：", key, e);
             throw new CommonException("文件上传异常。", e);
@@ -7,15 +7,9 @@ import cn.hutool.crypto.digest.HMac;
 import cn.hutool.crypto.digest.HmacAlgorithm;
 import cn.hutool.jwt.JWT;
 import com.qcloud.cos.COSClient;
-import com.qcloud.cos.ClientConfig;
 import com.qcloud.cos.auth.BasicCOSCredentials;
 import com.qcloud.cos.auth.BasicSessionCredentials;
 import com.qcloud.cos.auth.COSCredentials;
-import com.qcloud.cos.http.HttpProtocol;
-import com.qcloud.cos.model.ObjectMetadata;
-import com.qcloud.cos.region.Region;
-import com.qcloud.cos.transfer.TransferManager;
-import com.qcloud.cos.transfer.Upload;
 import com.qcloud.vod.common.FileUtil;
 import com.qcloud.vod.common.StringUtil;
 import com.tencentcloudapi.common.exception.TencentCloudSDKException;
@@ -23,6 +17,7 @@ import com.tencentcloudapi.vod.v20180717.VodClient;
 import com.tencentcloudapi.vod.v20180717.models.*;
 import com.tianji.common.exceptions.CommonException;
 import com.tianji.common.utils.StringUtils;
+import com.tianji.media.config.TencentConfig;
 import com.tianji.media.config.TencentProperties;
 import com.tianji.media.domain.po.Media;
 import com.tianji.media.enums.FileStatus;
@@ -37,16 +32,24 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.tianji.media.enums.FileErrorInfo.Msg.*;
 
 @Slf4j
 public class TencentMediaStorage implements IMediaStorage {
     private final VodClient vodClient;
+    private final CosMultipartUploader uploader;
     private final TencentProperties tencentProperties;
+    /**
+     * 存储区域 -> COS客户端，各次上传的临时凭证随请求传入，客户端按区域共用
+     */
+    private final Map<String, COSClient> cosClients = new ConcurrentHashMap<>();
 
-    public TencentMediaStorage(VodClient vodClient, TencentProperties tencentProperties) {
+    public TencentMediaStorage(VodClient vodClient, CosMultipartUploader uploader, TencentProperties tencentProperties) {
         this.vodClient = vodClient;
+        this.uploader = uploader;
         this.tencentProperties = tencentProperties;
     }
 
@@ -161,24 +164,20 @@ public class TencentMediaStorage implements IMediaStorage {
         } else {
             credentials = new BasicCOSCredentials(tencentProperties.getSecretId(), tencentProperties.getSecretKey());
         }
-        // 2.准备上传客户端
-        ClientConfig clientConfig = new ClientConfig(new Region(applyUploadResponse.getStorageRegion()));
-        clientConfig.setHttpProtocol(HttpProtocol.https);
-        COSClient cosClient = new COSClient(credentials, clientConfig);
-        TransferManager transferManager = new TransferManager(cosClient);
-        try {
-            // 3.开始上传
-            ObjectMetadata metadata = new ObjectMetadata();
-            metadata.setContentLength(contentLength);
-            Upload upload = transferManager.upload(applyUploadResponse.getStorageBucket(), applyUploadResponse.getMediaStoragePath(), inputStream, metadata);
-            // 4.等待上传完成
-            upload.waitForCompletion();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            // 5.关闭客户端
-            transferManager.shutdownNow();
-        }
+        // 2.获取共用的上传客户端
+        COSClient cosClient = cosClients.computeIfAbsent(applyUploadResponse.getStorageRegion(), this::createCosClient);
+        // 3.边读边分块上传，失败的分块单独重试
+        uploader.upload(cosClient, applyUploadResponse.getStorageBucket(), applyUploadResponse.getMediaStoragePath(),
+                inputStream, contentLength, credentials);
+    }
+
+    private COSClient createCosClient(String region) {
+        COSCredentials credentials = new BasicCOSCredentials(tencentProperties.getSecretId(), tencentProperties.getSecretKey());
+        return new COSClient(credentials, TencentConfig.cosClientConfig(region, tencentProperties.getCos()));
+    }
+
+    public void shutdown() {
+        cosClients.values().forEach(COSClient::shutdown);
     }
 
     private ApplyUploadResponse applyUpload(String filename) {
@@ -0,0 +1,200 @@
+package com.tianji.media.storage.tencent;
+
+import com.qcloud.cos.COS;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.model.*;
+import com.tianji.common.exceptions.CommonException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CosMultipartUploaderTest {
+
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "video.mp4";
+    private static final int PART_SIZE = 10;
+
+    private final COS cos = mock(COS.class);
+    /**
+     * 每个分块的上传次数
+     */
+    private final Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+        InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+        initResult.setUploadId("upload-1");
+        when(cos.initiateMultipartUpload(any())).thenReturn(initResult);
+        CompleteMultipartUploadResult completeResult = new CompleteMultipartUploadResult();
+        completeResult.setRequestId("request-1");
+        when(cos.completeMultipartUpload(any())).thenReturn(completeResult);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testFailingPartRetriedAlone() {
+        when(cos.uploadPart(any())).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            int n = attempt(request);
+            // 第3块第一次上传失败
+            if (request.getPartNumber() == 3 && n == 1) {
+                throw serviceException(503);
+            }
+            return partResult(request);
+        });
+
+        String requestId = newUploader(4, 2).upload(cos, BUCKET, KEY, content(5), 5 * PART_SIZE, null);
+
+        assertEquals("request-1", requestId);
+        assertEquals(2, attempts.get(3).get());
+        for (int part : List.of(1, 2, 4, 5)) {
+            assertEquals(1, attempts.get(part).get(), "part " + part);
+        }
+        verify(cos, never()).abortMultipartUpload(any());
+    }
+
+    @Test
+    void testPartsCompletedInOrder() {
+        when(cos.uploadPart(any())).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            attempt(request);
+            // 前面的分块更慢，完成顺序与分块顺序相反
+            Thread.sleep((6L - request.getPartNumber()) * 20);
+            return partResult(request);
+        });
+
+        newUploader(5, 0).upload(cos, BUCKET, KEY, content(5), 5 * PART_SIZE, null);
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(cos).completeMultipartUpload(captor.capture());
+        List<Integer> partNumbers = captor.getValue().getPartETags().stream()
+                .map(PartETag::getPartNumber)
+                .collect(Collectors.toList());
+        assertEquals(List.of(1, 2, 3, 4, 5), partNumbers);
+        assertEquals("upload-1", captor.getValue().getUploadId());
+    }
+
+    @Test
+    void testPermanentFailureAborts() {
+        when(cos.uploadPart(any())).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            attempt(request);
+            if (request.getPartNumber() == 2) {
+                throw serviceException(500);
+            }
+            return partResult(request);
+        });
+
+        assertThrows(CommonException.class,
+                () -> newUploader(1, 2).upload(cos, BUCKET, KEY, content(5), 5 * PART_SIZE, null));
+
+        // 重试次数用完后放弃，取消整个上传，不再上传后续分块
+        assertEquals(3, attempts.get(2).get());
+        assertNull(attempts.get(3));
+        verify(cos).abortMultipartUpload(any());
+        verify(cos, never()).completeMultipartUpload(any());
+    }
+
+    @Test
+    void testClientErrorNotRetried() {
+        when(cos.uploadPart(any())).thenAnswer(invocation -> {
+            attempt(invocation.getArgument(0));
+            throw serviceException(403);
+        });
+
+        assertThrows(CommonException.class,
+                () -> newUploader(1, 3).upload(cos, BUCKET, KEY, content(3), 3 * PART_SIZE, null));
+
+        assertEquals(1, attempts.get(1).get());
+        verify(cos).abortMultipartUpload(any());
+    }
+
+    @Test
+    void testPartsInFlightBounded() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(cos.uploadPart(any())).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+                return partResult(request);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        newUploader(2, 0).upload(cos, BUCKET, KEY, content(20), 20 * PART_SIZE, null);
+
+        assertTrue(maxRunning.get() <= 2, "max running: " + maxRunning.get());
+        verify(cos, times(20)).uploadPart(any());
+    }
+
+    @Test
+    void testConcurrentUploadsBounded() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cos.putObject(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return new PutObjectResult();
+        });
+        CosMultipartUploader uploader =
+                new CosMultipartUploader(executor, 5 * PART_SIZE, PART_SIZE, 2, 0, 1, 100);
+
+        // 小文件直接上传，不使用分块线程池
+        Future<String> first = executor.submit(() -> uploader.upload(cos, BUCKET, KEY, content(1), PART_SIZE, null));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // 上传数量达到上限，等待超时后失败
+        assertThrows(CommonException.class,
+                () -> uploader.upload(cos, BUCKET, KEY, content(1), PART_SIZE, null));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        // 许可释放后可以继续上传
+        uploader.upload(cos, BUCKET, KEY, content(1), PART_SIZE, null);
+    }
+
+    private CosMultipartUploader newUploader(int maxPartsInFlight, int partRetries) {
+        return new CosMultipartUploader(executor, PART_SIZE, PART_SIZE, maxPartsInFlight, partRetries, 4, 1000);
+    }
+
+    private int attempt(UploadPartRequest request) {
+        return attempts.computeIfAbsent(request.getPartNumber(), k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static UploadPartResult partResult(UploadPartRequest request) {
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag("etag-" + request.getPartNumber());
+        return result;
+    }
+
+    private static CosServiceException serviceException(int statusCode) {
+        CosServiceException e = new CosServiceException("status " + statusCode);
+        e.setStatusCode(statusCode);
+        return e;
+    }
+
+    private static ByteArrayInputStream content(int parts) {
+        return new ByteArrayInputStream(new byte[parts * PART_SIZE]);
+    }
+}
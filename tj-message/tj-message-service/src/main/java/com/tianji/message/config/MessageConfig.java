@@ -2,8 +2,12 @@ package com.tianji.message.config;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tianji.message.domain.po.PublicNotice;
 import com.tianji.message.domain.po.SmsThirdPlatform;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -69,4 +73,31 @@ public class MessageConfig {
                 .expireAfterWrite(Duration.ofMinutes(30))
                 .build();
     }
+
+    /**
+     * 批量消费短信消息的监听容器，攒够一批或等待超时后一次性交给监听器处理
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory smsBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory){
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(200);
+        factory.setReceiveTimeout(500L);
+        return factory;
+    }
+
+    /**
+     * 公告时间线缓存，所有用户共享，发布公告时清理
+     */
+    @Bean
+    public Cache<String, List<PublicNotice>> publicNoticeCache(){
+        return Caffeine.newBuilder()
+                .initialCapacity(1)
+                .maximumSize(1)
+                .expireAfterWrite(Duration.ofSeconds(30))
+                .build();
+    }
 }
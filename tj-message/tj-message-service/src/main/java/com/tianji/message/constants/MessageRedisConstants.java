@@ -0,0 +1,8 @@
+package com.tianji.message.constants;
+
+public interface MessageRedisConstants {
+    /**
+     * 用户的公告已读游标，value为用户已经看过的最新公告id，key后缀为用户id
+     */
+    String NOTICE_READ_CURSOR_KEY_PREFIX = "message:notice:cursor:";
+}
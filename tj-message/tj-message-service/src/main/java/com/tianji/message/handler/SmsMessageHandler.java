@@ -2,6 +2,7 @@ package com.tianji.message.handler;
 
 import com.tianji.api.dto.sms.SmsInfoDTO;
 import com.tianji.common.constants.MqConstants;
+import com.tianji.common.utils.CollUtils;
 import com.tianji.message.service.ISmsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.rabbit.annotation.Exchange;
@@ -10,6 +11,8 @@ import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 public class SmsMessageHandler {
@@ -20,8 +23,11 @@ public class SmsMessageHandler {
             value = @Queue(name = "sms.message.queue", durable = "true"),
             exchange = @Exchange(MqConstants.Exchange.SMS_EXCHANGE),
             key = MqConstants.Key.SMS_MESSAGE
-    ))
-    public void listenSmsMessage(SmsInfoDTO smsInfoDTO){
-        smsService.sendMessage(smsInfoDTO);
+    ), containerFactory = "smsBatchContainerFactory")
+    public void listenSmsMessage(List<SmsInfoDTO> smsInfoDTOs){
+        if (CollUtils.isEmpty(smsInfoDTOs)) {
+            return;
+        }
+        smsService.sendMessages(smsInfoDTOs);
     }
 }
@@ -13,5 +13,4 @@ import com.tianji.message.domain.po.UserInbox;
  */
 public interface UserInboxMapper extends BaseMapper<UserInbox> {
 
-    UserInbox queryLatestPublicNotice(Long userId);
 }
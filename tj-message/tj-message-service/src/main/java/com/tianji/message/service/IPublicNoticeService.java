@@ -4,6 +4,8 @@ import com.tianji.message.domain.po.NoticeTemplate;
 import com.tianji.message.domain.po.PublicNotice;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.List;
+
 /**
  * <p>
  * 公告消息模板 服务类
@@ -15,4 +17,9 @@ import com.baomidou.mybatisplus.extension.service.IService;
 public interface IPublicNoticeService extends IService<PublicNotice> {
 
     void saveNoticeOfTemplate(NoticeTemplate noticeTemplate);
+
+    /**
+     * 查询有效的公告，按推送时间倒序
+     */
+    List<PublicNotice> queryActiveNotices();
 }
@@ -11,5 +11,10 @@ public interface ISmsService {
 
     void sendMessage(SmsInfoDTO smsInfoDTO);
 
+    /**
+     * 批量发送短信，模板和参数都相同的短信合并后分块发送
+     */
+    void sendMessages(List<SmsInfoDTO> smsInfoDTOs);
+
     void sendMessageAsync(SmsInfoDTO smsInfoDTO);
 }
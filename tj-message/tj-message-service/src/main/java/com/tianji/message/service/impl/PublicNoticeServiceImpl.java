@@ -1,6 +1,10 @@
 package com.tianji.message.service.impl;
 
+import com.baomidou.mybatisplus.core.metadata.OrderItem;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.tianji.common.utils.CollUtils;
 import com.tianji.message.config.MessageProperties;
 import com.tianji.message.domain.po.NoticeTemplate;
 import com.tianji.message.domain.po.PublicNotice;
@@ -10,6 +14,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -24,6 +31,14 @@ import java.time.LocalDateTime;
 public class PublicNoticeServiceImpl extends ServiceImpl<PublicNoticeMapper, PublicNotice> implements IPublicNoticeService {
 
     private final MessageProperties messageProperties;
+    private final Cache<String, List<PublicNotice>> publicNoticeCache;
+
+    private static final String ACTIVE_NOTICES_KEY = "ACTIVE";
+    /**
+     * 最多展示的公告数量
+     */
+    private static final int MAX_ACTIVE_NOTICES = 200;
+
     @Override
     public void saveNoticeOfTemplate(NoticeTemplate noticeTemplate) {
         LocalDateTime now = LocalDateTime.now();
@@ -34,5 +49,26 @@ public class PublicNoticeServiceImpl extends ServiceImpl<PublicNoticeMapper, Pub
         notice.setType(noticeTemplate.getType());
         notice.setExpireTime(now.plusMonths(messageProperties.getNoticeTtlMonths()));
         save(notice);
+        publicNoticeCache.invalidate(ACTIVE_NOTICES_KEY);
+    }
+
+    @Override
+    public List<PublicNotice> queryActiveNotices() {
+        List<PublicNotice> notices = publicNoticeCache.get(ACTIVE_NOTICES_KEY, key -> {
+            Page<PublicNotice> page = new Page<PublicNotice>(1, MAX_ACTIVE_NOTICES, false)
+                    .addOrder(OrderItem.desc("push_time"), OrderItem.desc("id"));
+            return Collections.unmodifiableList(lambdaQuery()
+                    .gt(PublicNotice::getExpireTime, LocalDateTime.now())
+                    .page(page)
+                    .getRecords());
+        });
+        if (CollUtils.isEmpty(notices)) {
+            return CollUtils.emptyList();
+        }
+        // 缓存期间可能有公告过期
+        LocalDateTime now = LocalDateTime.now();
+        return notices.stream()
+                .filter(n -> n.getExpireTime() == null || n.getExpireTime().isAfter(now))
+                .collect(Collectors.toList());
     }
 }
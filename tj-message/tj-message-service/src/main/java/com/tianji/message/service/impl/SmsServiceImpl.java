@@ -4,7 +4,9 @@ import com.tianji.api.dto.sms.SmsInfoDTO;
 import com.tianji.api.dto.user.UserDTO;
 import com.tianji.common.exceptions.CommonException;
 import com.tianji.common.utils.AssertUtils;
+import com.tianji.common.utils.CollUtils;
 import com.tianji.common.utils.MarkedRunnable;
+import com.tianji.common.utils.StringUtils;
 import com.tianji.message.constants.MessageErrorInfo;
 import com.tianji.message.domain.po.MessageTemplate;
 import com.tianji.message.domain.po.NoticeTemplate;
@@ -14,12 +16,16 @@ import com.tianji.message.service.INoticeTemplateService;
 import com.tianji.message.service.ISmsService;
 import com.tianji.message.service.ISmsThirdPlatformService;
 import com.tianji.message.thirdparty.ISmsHandler;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,45 +44,114 @@ public class SmsServiceImpl implements ISmsService {
     private final INoticeTemplateService noticeTemplateService;
     private final IMessageTemplateService messageTemplateService;
 
+    /**
+     * 每块短信的手机号数量，是平台故障转移的单位
+     */
+    private static final int CHUNK_SIZE = 1000;
+
     @Override
     public void sendMessageByTemplate(NoticeTemplate noticeTemplate, List<UserDTO> users) {
         // 1.获取用户手机号
-        Set<String> phones = users.stream().map(UserDTO::getCellPhone).collect(Collectors.toSet());
-        // 2.组织数据，公告默认是无参的
-        SmsInfoDTO info = new SmsInfoDTO();
-        info.setPhones(phones);
-        info.setTemplateCode(noticeTemplate.getCode());
-        // 3.发送
-        sendMessage(info);
+        List<String> phones = users.stream()
+                .map(UserDTO::getCellPhone)
+                .filter(StringUtils::isNotBlank)
+                .distinct()
+                .collect(Collectors.toList());
+        if (phones.isEmpty()) {
+            return;
+        }
+        // 2.查询短信模板，公告默认是无参的
+        List<MessageTemplate> templates = querySortedTemplates(noticeTemplate.getCode());
+        // 3.分块后交给线程池并行发送，每块独立进行平台故障转移
+        for (List<String> chunk : CollUtils.split(phones, CHUNK_SIZE)) {
+            asyncSmsExecutor.execute(new MarkedRunnable(() -> sendWithFailover(chunk, null, templates)));
+        }
     }
 
     @Override
     public void sendMessage(SmsInfoDTO smsInfoDTO) {
+        // 1.查询短信模板
+        List<MessageTemplate> templates = querySortedTemplates(smsInfoDTO.getTemplateCode());
+        // 2.分块发送
+        List<String> phones = new ArrayList<>();
+        smsInfoDTO.getPhones().forEach(phones::add);
+        for (List<String> chunk : CollUtils.split(phones, CHUNK_SIZE)) {
+            sendWithFailover(chunk, smsInfoDTO.getTemplateParams(), templates);
+        }
+    }
+
+    @Override
+    public void sendMessages(List<SmsInfoDTO> smsInfoDTOs) {
+        // 1.按模板和参数分组，合并手机号
+        Map<SmsGroup, Set<String>> groups = new LinkedHashMap<>();
+        for (SmsInfoDTO info : smsInfoDTOs) {
+            if (info == null || info.getPhones() == null) {
+                continue;
+            }
+            Set<String> phones = groups.computeIfAbsent(
+                    new SmsGroup(info.getTemplateCode(), info.getTemplateParams()), k -> new LinkedHashSet<>());
+            info.getPhones().forEach(phones::add);
+        }
+        // 2.逐组发送，一组失败不影响其它组
+        for (Map.Entry<SmsGroup, Set<String>> entry : groups.entrySet()) {
+            SmsGroup group = entry.getKey();
+            try {
+                List<MessageTemplate> templates = querySortedTemplates(group.getTemplateCode());
+                for (List<String> chunk : CollUtils.split(entry.getValue(), CHUNK_SIZE)) {
+                    sendWithFailover(chunk, group.getTemplateParams(), templates);
+                }
+            } catch (Exception e) {
+                log.error("短信发送失败，模板：{}，手机号数量：{}", group.getTemplateCode(), entry.getValue().size(), e);
+            }
+        }
+    }
+
+    /**
+     * 按平台优先级发送一块短信，平台按自己支持的批量大小再次拆分，
+     * 某个平台发送失败时，尚未发送成功的手机号交给下一个平台
+     */
+    private void sendWithFailover(List<String> phones, Map<String, String> params, List<MessageTemplate> templates) {
+        List<String> remaining = phones;
+        for (MessageTemplate template : templates) {
+            ISmsHandler smsHandler = smsHandlers.get(template.getPlatformCode());
+            if (smsHandler == null) {
+                continue;
+            }
+            int batchSize = Math.max(1, smsHandler.maxBatchSize());
+            int sent = 0;
+            try {
+                while (sent < remaining.size()) {
+                    int end = Math.min(sent + batchSize, remaining.size());
+                    SmsInfoDTO info = new SmsInfoDTO();
+                    info.setPhones(remaining.subList(sent, end));
+                    info.setTemplateCode(template.getThirdTemplateCode());
+                    info.setTemplateParams(params);
+                    smsHandler.send(info, template);
+                    sent = end;
+                }
+                return;
+            } catch (Exception e) {
+                log.error("短信发送异常，平台{}, 原因{}, 稍后重试", template.getPlatformCode(), e.getMessage(), e);
+                remaining = remaining.subList(sent, remaining.size());
+            }
+        }
+        log.error("短信发送失败，所有平台都已尝试，放弃发送，未发送的手机号数量：{}", remaining.size());
+    }
+
+    private List<MessageTemplate> querySortedTemplates(String code) {
         // 1.获取通知模板信息
-        String code = smsInfoDTO.getTemplateCode();
         NoticeTemplate noticeTemplate = noticeTemplateService.queryByCode(code);
         AssertUtils.isNotNull(noticeTemplate, MessageErrorInfo.NOTICE_TEMPLATE_NOT_EXISTS);
         AssertUtils.isTrue(noticeTemplate.getIsSmsTemplate(), MessageErrorInfo.NOTICE_NOT_MESSAGE_TEMPLATE);
         // 2.查询短信模板
         List<MessageTemplate> messageTemplates = messageTemplateService.queryByNoticeTemplateId(noticeTemplate.getId());
         AssertUtils.isNotEmpty(messageTemplates, MessageErrorInfo.NOTICE_NOT_MESSAGE_TEMPLATE);
-
         // 3.按照平台优先级来排序并筛选模板
-        List<MessageTemplate> sortedTemplates =  sortMessageTemplate(messageTemplates);
+        List<MessageTemplate> sortedTemplates = sortMessageTemplate(messageTemplates);
         if (sortedTemplates.isEmpty()) {
             throw new CommonException(MessageErrorInfo.NO_SUITABLE_TEMPLATE);
         }
-        // 4.基于模板发送短信
-        for (MessageTemplate template : sortedTemplates) {
-            try {
-                ISmsHandler smsHandler = smsHandlers.get(template.getPlatformCode());
-                smsHandler.send(smsInfoDTO, template);
-                return;
-            } catch (Exception e) {
-                log.error("短信发送异常，平台{}, 原因{}, 稍后重试", template.getPlatformCode(), e.getMessage(), e);
-            }
-        }
-        log.error("短信发送失败，所有平台都已尝试，放弃发送");
+        return sortedTemplates;
     }
 
     private List<MessageTemplate> sortMessageTemplate(List<MessageTemplate> messageTemplates) {
@@ -103,4 +178,14 @@ public class SmsServiceImpl implements ISmsService {
                 new MarkedRunnable(() -> this.sendMessage(smsInfoDTO))
         );
     }
+
+    /**
+     * 模板和参数都相同的短信可以合并发送
+     */
+    @Data
+    @AllArgsConstructor
+    private static class SmsGroup {
+        private String templateCode;
+        private Map<String, String> templateParams;
+    }
 }
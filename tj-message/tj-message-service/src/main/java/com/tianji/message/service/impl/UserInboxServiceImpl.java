@@ -1,13 +1,14 @@
 package com.tianji.message.service.impl;
 
-import com.baomidou.mybatisplus.core.metadata.OrderItem;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.tianji.api.dto.user.UserDTO;
 import com.tianji.common.domain.dto.PageDTO;
+import com.tianji.common.utils.BeanUtils;
 import com.tianji.common.utils.CollUtils;
+import com.tianji.common.utils.NumberUtils;
 import com.tianji.common.utils.UserContext;
 import com.tianji.message.config.MessageProperties;
+import com.tianji.message.constants.MessageRedisConstants;
 import com.tianji.message.domain.dto.UserInboxDTO;
 import com.tianji.message.domain.dto.UserInboxFormDTO;
 import com.tianji.message.domain.po.NoticeTemplate;
@@ -19,9 +20,10 @@ import com.tianji.message.mapper.UserInboxMapper;
 import com.tianji.message.service.IPublicNoticeService;
 import com.tianji.message.service.IUserInboxService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -40,6 +42,9 @@ public class UserInboxServiceImpl extends ServiceImpl<UserInboxMapper, UserInbox
 
     private final MessageProperties properties;
     private final IPublicNoticeService publicNoticeService;
+    private final StringRedisTemplate redisTemplate;
+
+    private static final long NOTICE_CURSOR_TTL_DAYS_PER_MONTH = 31;
 
     @Override
     public void saveNoticeToInbox(NoticeTemplate notice, List<UserDTO> users) {
@@ -62,54 +67,122 @@ public class UserInboxServiceImpl extends ServiceImpl<UserInboxMapper, UserInbox
         saveBatch(list);
     }
 
+    /**
+     * 分页查询收件箱
+     * <p>
+     * 定向通知写入用户信箱（推模式）；全员公告只保存一份，查询时与信箱合并（拉模式），不再复制到每个用户的信箱。
+     * 公告的已读状态由用户的已读游标决定：id不大于游标的公告为已读，不按已读状态筛选时，查看第一页时游标前进到最新的公告。
+     * 公告时间线有缓存，因此每次查询只需要统计、查询一次信箱以及读取一次游标，与公告数量无关
+     */
     @Override
-    @Transactional
     public PageDTO<UserInboxDTO> queryUserInBoxesPage(UserInboxQuery query) {
         // 1.获取用户信息
         Long userId = UserContext.getUser();
-        // 2.查询用户信箱中的最后一条公告，确认本次加载公告的最早时间点
-        UserInbox latest = getBaseMapper().queryLatestPublicNotice(userId);
-        // 2.1.默认时间点是当前时间减去公告的最大有效期时间（未过期的最早公告时间）
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime minTime = now.minusMonths(properties.getNoticeTtlMonths());
-        // 2.2.如果有最后一条公告，判断公告时间是不是比最早时间要晚
-        if(latest != null && latest.getPushTime().isAfter(minTime)){
-            // 用户上次加载时间比最早时间晚，更新一下时间
-            minTime = latest.getPushTime();
-        }
-        // 3.按照发布时间倒序，查看公告箱中的消息，最多加载200条
-        Page<PublicNotice> page = new Page<PublicNotice>(1, 200)
-                .addOrder(new OrderItem("push_time", false));
-        page = publicNoticeService.lambdaQuery()
-                .ge(PublicNotice::getPushTime, minTime)
-                .page(page);
-        // 4.将公告写入用户收件箱
-        if (CollUtils.isNotEmpty(page.getRecords())) {
-            saveNoticeListToInbox(page.getRecords(), userId);
+        // 2.查询公告时间线和用户的已读游标，筛选出符合条件的公告
+        List<PublicNotice> notices = publicNoticeService.queryActiveNotices();
+        long cursor = queryNoticeCursor(userId);
+        List<UserInboxDTO> publicList = new ArrayList<>(notices.size());
+        for (PublicNotice notice : notices) {
+            boolean read = notice.getId() <= cursor;
+            if ((query.getIsRead() != null && query.getIsRead() != read)
+                    || (query.getType() != null && !query.getType().equals(notice.getType()))) {
+                continue;
+            }
+            publicList.add(toInboxDTO(notice, read));
         }
-        // 5.分页查询收件箱信息并返回
-        Page<UserInbox> userInboxPage = query.toMpPage("push_time", false);
-        userInboxPage = lambdaQuery()
+        // 3.统计信箱中的消息数量
+        long inboxTotal = lambdaQuery()
                 .eq(UserInbox::getUserId, userId)
                 .eq(query.getIsRead() != null, UserInbox::getIsRead, query.getIsRead())
                 .eq(query.getType() != null, UserInbox::getType, query.getType())
-                .page(userInboxPage);
-        return PageDTO.of(userInboxPage, UserInboxDTO.class);
+                .count();
+        // 4.合并分页。排在本页之前的公告最多有publicList.size()条，因此信箱从 from - 公告数 开始读取即可
+        int from = query.from();
+        int size = query.getPageSize();
+        int inboxFrom = Math.max(0, from - publicList.size());
+        List<UserInbox> boxes = CollUtils.emptyList();
+        if (inboxFrom < inboxTotal) {
+            boxes = lambdaQuery()
+                    .eq(UserInbox::getUserId, userId)
+                    .eq(query.getIsRead() != null, UserInbox::getIsRead, query.getIsRead())
+                    .eq(query.getType() != null, UserInbox::getType, query.getType())
+                    .orderByDesc(UserInbox::getPushTime, UserInbox::getId)
+                    .last("LIMIT " + inboxFrom + ", " + (size + publicList.size()))
+                    .list();
+        }
+        List<UserInboxDTO> list = mergePage(boxes, inboxFrom, publicList, from, size);
+        // 5.查看第一页时，已读游标前进到最新的公告。按已读状态筛选时不前进，否则未展示的公告被标记为已读，后续页的数据也会错位
+        if (query.getPageNo() == 1 && query.getIsRead() == null
+                && !notices.isEmpty() && notices.get(0).getId() > cursor) {
+            redisTemplate.opsForValue().set(
+                    MessageRedisConstants.NOTICE_READ_CURSOR_KEY_PREFIX + userId,
+                    notices.get(0).getId().toString(),
+                    Duration.ofDays(NOTICE_CURSOR_TTL_DAYS_PER_MONTH * properties.getNoticeTtlMonths()));
+        }
+        long total = inboxTotal + publicList.size();
+        return new PageDTO<>(total, (total + size - 1) / size, list);
     }
 
-    private void saveNoticeListToInbox(List<PublicNotice> notices, Long userId) {
-        List<UserInbox> list = new ArrayList<>(notices.size());
-        for (PublicNotice notice : notices) {
-            UserInbox box = new UserInbox();
-            box.setTitle(notice.getTitle());
-            box.setContent(notice.getContent());
-            box.setUserId(userId);
-            box.setType(notice.getType());
-            box.setPushTime(notice.getPushTime());
-            box.setExpireTime(notice.getExpireTime());
-            list.add(box);
+    /**
+     * 按推送时间倒序合并信箱消息和公告，推送时间相同时公告在前
+     *
+     * @param boxes      从信箱第inboxFrom条开始的消息
+     * @param publicList 符合条件的全部公告
+     * @param from       本页第一条数据在合并结果中的位置
+     */
+    static List<UserInboxDTO> mergePage(
+            List<UserInbox> boxes, int inboxFrom, List<UserInboxDTO> publicList, int from, int size) {
+        // 1.计算boxes第一条数据在合并结果中的位置：前面有inboxFrom条信箱消息，以及推送时间不早于它的公告
+        int pi = 0;
+        int start = 0;
+        if (inboxFrom > 0) {
+            if (boxes.isEmpty()) {
+                return CollUtils.emptyList();
+            }
+            LocalDateTime first = boxes.get(0).getPushTime();
+            while (pi < publicList.size() && !publicList.get(pi).getPushTime().isBefore(first)) {
+                pi++;
+            }
+            start = inboxFrom + pi;
         }
-        saveBatch(list);
+        // 2.归并，跳过本页之前的数据
+        int skip = from - start;
+        int bi = 0;
+        List<UserInboxDTO> list = new ArrayList<>(size);
+        while (list.size() < size) {
+            UserInboxDTO next;
+            if (bi < boxes.size() && (pi >= publicList.size()
+                    || boxes.get(bi).getPushTime().isAfter(publicList.get(pi).getPushTime()))) {
+                next = BeanUtils.copyBean(boxes.get(bi++), UserInboxDTO.class);
+            } else if (pi < publicList.size()) {
+                next = publicList.get(pi++);
+            } else {
+                break;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            list.add(next);
+        }
+        return list;
+    }
+
+    private long queryNoticeCursor(Long userId) {
+        String cursor = redisTemplate.opsForValue().get(MessageRedisConstants.NOTICE_READ_CURSOR_KEY_PREFIX + userId);
+        return NumberUtils.isLong(cursor) ? Long.parseLong(cursor) : 0L;
+    }
+
+    private UserInboxDTO toInboxDTO(PublicNotice notice, boolean read) {
+        UserInboxDTO dto = new UserInboxDTO();
+        dto.setId(notice.getId());
+        dto.setType(notice.getType());
+        dto.setTitle(notice.getTitle());
+        dto.setContent(notice.getContent());
+        dto.setIsRead(read);
+        dto.setPublisher(0L);
+        dto.setPushTime(notice.getPushTime());
+        return dto;
     }
 
     @Override
@@ -9,9 +9,15 @@ import com.tianji.message.domain.po.MessageTemplate;
 public interface ISmsHandler {
 
     /**
-     * 发送短信
+     * 发送短信，所有手机号使用相同的模板参数，发送失败时抛出异常
      */
     void send(SmsInfoDTO platformSmsInfoDTO, MessageTemplate template);
 
+    /**
+     * 一次请求最多可以发送的手机号数量，默认不支持批量发送
+     */
+    default int maxBatchSize() {
+        return 1;
+    }
 
 }
@@ -5,6 +5,7 @@ import com.aliyun.sdk.service.dysmsapi20170525.models.SendSmsRequest;
 import com.aliyun.sdk.service.dysmsapi20170525.models.SendSmsResponse;
 import com.aliyun.sdk.service.dysmsapi20170525.models.SendSmsResponseBody;
 import com.tianji.api.dto.sms.SmsInfoDTO;
+import com.tianji.common.exceptions.CommonException;
 import com.tianji.common.utils.JsonUtils;
 import com.tianji.common.utils.StringUtils;
 import com.tianji.message.domain.po.MessageTemplate;
@@ -13,7 +14,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service("aliYun")
 @Slf4j
@@ -22,33 +25,44 @@ public class AliSmsHandler implements ISmsHandler {
 
     private final AsyncClient asyncClient;
 
+    /**
+     * SendSms接口一次最多支持1000个手机号
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final long SEND_TIMEOUT_SECONDS = 10;
+
+    @Override
+    public int maxBatchSize() {
+        return MAX_BATCH_SIZE;
+    }
+
     @Override
     public void send(SmsInfoDTO platformSmsInfoDTO, MessageTemplate template) {
-        log.info("aliYun平台，准备发送短信：{}", platformSmsInfoDTO);
         // 1.准备请求参数
         String phones = StringUtils.join(",", platformSmsInfoDTO.getPhones());
+        log.debug("aliYun平台，准备发送短信，模板：{}，手机号：{}", template.getThirdTemplateCode(), phones);
         SendSmsRequest request = SendSmsRequest.builder()
                 .phoneNumbers(phones)
                 .templateCode(template.getThirdTemplateCode())
                 .signName(template.getSignName())
                 .templateParam(JsonUtils.toJsonStr(platformSmsInfoDTO.getTemplateParams()))
                 .build();
-        // 2.发送短信验证码
-        CompletableFuture<SendSmsResponse> responseFuture = asyncClient.sendSms(request);
-        log.info("aliYun平台，短信发送请求发出 ...");
+        // 2.发送短信，等待结果，发送失败时由调用方切换平台
+        SendSmsResponse response;
+        try {
+            response = asyncClient.sendSms(request).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommonException("aliYun短信发送被中断", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new CommonException("aliYun短信发送异常", e);
+        }
         // 3.结果处理
-        responseFuture.thenAccept(response -> {
-            SendSmsResponseBody body = response.getBody();
-            String code = body.getCode();
-            if("OK".equals(code)){
-                log.debug("aliYun短信发送成功，手机号:{}", phones);
-            }else{
-                log.error("aliYun短信发送失败，code：{}， 原因：{}", code, body.getMessage());
-            }
-        });
-        responseFuture.exceptionally(e -> {
-            log.error("aliYun短信发送异常", e);
-            return null;
-        });
+        SendSmsResponseBody body = response.getBody();
+        String code = body.getCode();
+        if (!"OK".equals(code)) {
+            throw new CommonException(StringUtils.format("aliYun短信发送失败，code：{}， 原因：{}", code, body.getMessage()));
+        }
+        log.debug("aliYun短信发送成功，手机号:{}", phones);
     }
 }
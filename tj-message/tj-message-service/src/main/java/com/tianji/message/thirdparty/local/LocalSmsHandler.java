@@ -0,0 +1,62 @@
+package com.tianji.message.thirdparty.local;
+
+import com.tianji.api.dto.sms.SmsInfoDTO;
+import com.tianji.message.domain.po.MessageTemplate;
+import com.tianji.message.thirdparty.ISmsHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地短信平台，不调用第三方接口，只统计发送数量，用于离线测试批量发送的吞吐量。
+ * 在短信平台表中配置code为local的平台及对应模板即可使用
+ */
+@Service("local")
+@Slf4j
+public class LocalSmsHandler implements ISmsHandler {
+
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * 模拟每次请求的耗时
+     */
+    @Value("${tj.message.sms.local.latency-millis:0}")
+    private long latencyMillis;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+
+    @Override
+    public void send(SmsInfoDTO platformSmsInfoDTO, MessageTemplate template) {
+        if (latencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int count = 0;
+        for (String ignored : platformSmsInfoDTO.getPhones()) {
+            count++;
+        }
+        requests.increment();
+        messages.add(count);
+        log.debug("local平台，模拟发送短信{}条，累计请求{}次，累计短信{}条", count, requests.sum(), messages.sum());
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return MAX_BATCH_SIZE;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getMessageCount() {
+        return messages.sum();
+    }
+}
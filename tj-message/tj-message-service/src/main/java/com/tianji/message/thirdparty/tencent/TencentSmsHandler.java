@@ -9,6 +9,16 @@ import org.springframework.stereotype.Service;
 @Service("tencent")
 @Slf4j
 public class TencentSmsHandler implements ISmsHandler {
+    /**
+     * SendSms接口一次最多支持200个手机号
+     */
+    private static final int MAX_BATCH_SIZE = 200;
+
+    @Override
+    public int maxBatchSize() {
+        return MAX_BATCH_SIZE;
+    }
+
     @Override
     public void send(SmsInfoDTO platformSmsInfoDTO, MessageTemplate template) {
         //第三方发送短信验证码
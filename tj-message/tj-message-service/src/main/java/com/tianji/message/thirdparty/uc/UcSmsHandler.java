@@ -12,6 +12,16 @@ import org.springframework.stereotype.Service;
 @Service("uCloud")
 @Slf4j
 public class UcSmsHandler implements ISmsHandler {
+    /**
+     * SendUSMSMessage接口一次最多支持1000个手机号
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    @Override
+    public int maxBatchSize() {
+        return MAX_BATCH_SIZE;
+    }
+
     @Override
     public void send(SmsInfoDTO platformSmsInfoDTO, MessageTemplate template) {
         //第三方发送短信验证码
@@ -0,0 +1,92 @@
+package com.tianji.message.service.impl;
+
+import com.tianji.message.domain.dto.UserInboxDTO;
+import com.tianji.message.domain.po.UserInbox;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserInboxServiceImplTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Test
+    void testMergePageMatchesFullMerge() {
+        Random random = new Random(20260101L);
+        for (int round = 0; round < 200; round++) {
+            // 推送时间取值范围较小，覆盖信箱消息与公告推送时间相同的情况
+            List<UserInbox> inbox = new ArrayList<>();
+            for (int i = 0, n = random.nextInt(30); i < n; i++) {
+                UserInbox box = new UserInbox();
+                box.setTitle("b" + i);
+                box.setPushTime(BASE.plusMinutes(random.nextInt(40)));
+                inbox.add(box);
+            }
+            inbox.sort(Comparator.comparing(UserInbox::getPushTime).reversed());
+            List<UserInboxDTO> notices = new ArrayList<>();
+            for (int i = 0, n = random.nextInt(10); i < n; i++) {
+                UserInboxDTO notice = new UserInboxDTO();
+                notice.setTitle("n" + i);
+                notice.setPushTime(BASE.plusMinutes(random.nextInt(40)));
+                notices.add(notice);
+            }
+            notices.sort(Comparator.comparing(UserInboxDTO::getPushTime).reversed());
+
+            List<String> all = fullMerge(inbox, notices);
+            int size = random.nextInt(5) + 1;
+            for (int from = 0; from <= all.size() + size; from += size) {
+                assertEquals(all.subList(Math.min(from, all.size()), Math.min(from + size, all.size())),
+                        queryPage(inbox, notices, from, size), "round " + round + ", from " + from);
+            }
+        }
+    }
+
+    @Test
+    void testMergePageWithoutNotices() {
+        List<UserInbox> inbox = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UserInbox box = new UserInbox();
+            box.setTitle("b" + i);
+            box.setPushTime(BASE.minusMinutes(i));
+            inbox.add(box);
+        }
+        assertEquals(List.of("b2", "b3"), queryPage(inbox, List.of(), 2, 2));
+        assertEquals(List.of(), queryPage(inbox, List.of(), 6, 2));
+    }
+
+    /**
+     * 按查询方法中的方式计算信箱的读取范围，再合并出一页数据
+     */
+    private List<String> queryPage(List<UserInbox> inbox, List<UserInboxDTO> notices, int from, int size) {
+        int inboxFrom = Math.max(0, from - notices.size());
+        List<UserInbox> boxes = inboxFrom < inbox.size()
+                ? inbox.subList(inboxFrom, Math.min(inbox.size(), inboxFrom + size + notices.size()))
+                : List.of();
+        return UserInboxServiceImpl.mergePage(boxes, inboxFrom, notices, from, size).stream()
+                .map(UserInboxDTO::getTitle).collect(Collectors.toList());
+    }
+
+    /**
+     * 全量合并，推送时间倒序，相同时公告在前
+     */
+    private List<String> fullMerge(List<UserInbox> inbox, List<UserInboxDTO> notices) {
+        List<String> list = new ArrayList<>();
+        int bi = 0, pi = 0;
+        while (bi < inbox.size() || pi < notices.size()) {
+            if (pi >= notices.size()
+                    || (bi < inbox.size() && inbox.get(bi).getPushTime().isAfter(notices.get(pi).getPushTime()))) {
+                list.add(inbox.get(bi++).getTitle());
+            } else {
+                list.add(notices.get(pi++).getTitle());
+            }
+        }
+        return list;
+    }
+}
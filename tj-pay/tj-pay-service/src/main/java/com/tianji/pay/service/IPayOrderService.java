@@ -3,10 +3,12 @@ package com.tianji.pay.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.pay.domain.po.PayOrder;
+import com.tianji.pay.third.model.PayStatusResponse;
 import com.tianji.pay.sdk.dto.PayApplyDTO;
 import com.tianji.pay.sdk.dto.PayResultDTO;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * <p>
@@ -31,4 +33,29 @@ public interface IPayOrderService extends IService<PayOrder> {
     PageDTO<PayOrder> queryPayingOrderByPage(int page, int size);
 
     void checkPayOrder(PayOrder payOrder);
+
+    /**
+     * 按id顺序查询某个分片中待支付的订单
+     *
+     * @param shardIndex 分片序号，从0开始
+     * @param shardTotal 分片总数
+     * @param lastId     上一批最后一个订单的id，只查询比它大的
+     * @param size       数量
+     */
+    List<PayOrder> queryPayingOrders(int shardIndex, int shardTotal, Long lastId, int size);
+
+    /**
+     * 批量关闭已经超时或渠道不存在的订单
+     *
+     * @return 剩余需要查询渠道状态的订单
+     */
+    List<PayOrder> closeInvalidOrders(List<PayOrder> payOrders);
+
+    /**
+     * 根据渠道查询结果更新订单状态，支付成功的发送MQ通知
+     *
+     * @param payOrders 订单
+     * @param responses 与订单顺序一致的查询结果，为null代表未查询到
+     */
+    void handlePayStatuses(List<PayOrder> payOrders, List<PayStatusResponse> responses);
 }
@@ -2,10 +2,13 @@ package com.tianji.pay.service;
 
 import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.pay.domain.po.RefundOrder;
+import com.tianji.pay.third.model.RefundResponse;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.tianji.pay.sdk.dto.RefundApplyDTO;
 import com.tianji.pay.sdk.dto.RefundResultDTO;
 
+import java.util.List;
+
 /**
  * <p>
  * 退款订单 服务类
@@ -26,5 +29,30 @@ public interface IRefundOrderService extends IService<RefundOrder> {
 
     void checkRefundOrder(RefundOrder refundOrder);
 
+    /**
+     * 按id顺序查询某个分片中退款状态未知的退款单
+     *
+     * @param shardIndex 分片序号，从0开始
+     * @param shardTotal 分片总数
+     * @param lastId     上一批最后一个退款单的id，只查询比它大的
+     * @param size       数量
+     */
+    List<RefundOrder> queryRefundingOrders(int shardIndex, int shardTotal, Long lastId, int size);
+
+    /**
+     * 批量关闭渠道不存在的退款单
+     *
+     * @return 剩余需要查询渠道状态的退款单
+     */
+    List<RefundOrder> closeInvalidOrders(List<RefundOrder> refundOrders);
+
+    /**
+     * 根据渠道查询结果更新退款单状态，状态变化的发送MQ通知
+     *
+     * @param refundOrders 退款单
+     * @param responses    与退款单顺序一致的查询结果，为null代表未查询到
+     */
+    void handleRefundStatuses(List<RefundOrder> refundOrders, List<RefundResponse> responses);
+
     RefundResultDTO queryRefundDetail(Long bizRefundOrderId);
 }
@@ -12,6 +12,7 @@ import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.common.exceptions.BadRequestException;
 import com.tianji.common.exceptions.BizIllegalException;
 import com.tianji.common.utils.BeanUtils;
+import com.tianji.common.utils.CollUtils;
 import com.tianji.common.utils.StringUtils;
 import com.tianji.pay.constants.NotifyStatus;
 import com.tianji.pay.domain.po.PayOrder;
@@ -31,7 +32,7 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
-import java.util.Map;
+import java.util.*;
 
 import static com.tianji.pay.sdk.constants.PayErrorInfo.*;
 
@@ -258,6 +259,104 @@ public class PayOrderServiceImpl extends ServiceImpl<PayOrderMapper, PayOrder> i
         }
     }
 
+    @Override
+    public List<PayOrder> queryPayingOrders(int shardIndex, int shardTotal, Long lastId, int size) {
+        return lambdaQuery()
+                .eq(PayOrder::getStatus, PayStatus.WAIT_BUYER_PAY.getValue())
+                .gt(PayOrder::getId, lastId)
+                // 雪花id的低位分布不均匀，先散列再按分片数取模
+                .apply(shardTotal > 1, "MOD(CRC32(id), {0}) = {1}", shardTotal, shardIndex)
+                .orderByAsc(PayOrder::getId)
+                .last("LIMIT " + size)
+                .list();
+    }
+
+    @Override
+    public List<PayOrder> closeInvalidOrders(List<PayOrder> payOrders) {
+        // 1.找出渠道不存在或已经超时的订单
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> closeIds = new ArrayList<>();
+        List<PayOrder> remains = new ArrayList<>(payOrders.size());
+        for (PayOrder payOrder : payOrders) {
+            if (!payServiceChannels.containsKey(payOrder.getPayChannelCode())) {
+                log.error("支付渠道不存在，业务单号：{}", payOrder.getBizOrderNo());
+                closeIds.add(payOrder.getId());
+            } else if (payOrder.getPayOverTime().isBefore(now)) {
+                log.debug("支付单{}已经超时，关闭订单", payOrder.getPayOrderNo());
+                closeIds.add(payOrder.getId());
+            } else {
+                remains.add(payOrder);
+            }
+        }
+        // 2.批量关闭
+        closeOrders(closeIds, null, null);
+        return remains;
+    }
+
+    @Override
+    public void handlePayStatuses(List<PayOrder> payOrders, List<PayStatusResponse> responses) {
+        // 1.整理状态变化，关闭的订单按结果分组后批量更新
+        Map<List<String>, List<Long>> closed = new HashMap<>();
+        for (int i = 0; i < payOrders.size(); i++) {
+            PayOrder payOrder = payOrders.get(i);
+            PayStatusResponse response = responses.get(i);
+            // 1.1.查询失败、正在支付或状态未变化，跳过
+            if (response == null || !response.isSuccess() || response.getPayStatus() == null
+                    || PayStatus.WAIT_BUYER_PAY.equalsValue(response.getPayStatus())
+                    || response.getPayStatus().equals(payOrder.getStatus())) {
+                continue;
+            }
+            // 1.2.支付成功，逐个更新，更新成功才发送通知，避免与支付回调重复通知
+            if (PayStatus.TRADE_SUCCESS.equalsValue(response.getPayStatus())) {
+                markCheckedOrderSuccess(payOrder, response);
+                continue;
+            }
+            closed.computeIfAbsent(Arrays.asList(response.getCode(), response.getMsg()), k -> new ArrayList<>())
+                    .add(payOrder.getId());
+        }
+        // 2.批量关闭
+        closed.forEach((result, ids) -> closeOrders(ids, result.get(0), result.get(1)));
+    }
+
+    private void markCheckedOrderSuccess(PayOrder payOrder, PayStatusResponse response) {
+        boolean success = lambdaUpdate()
+                .set(PayOrder::getStatus, PayStatus.TRADE_SUCCESS.getValue())
+                .set(PayOrder::getPaySuccessTime, response.getSuccessTime())
+                .set(PayOrder::getResultCode, response.getCode() == null ? "" : response.getCode())
+                .set(PayOrder::getResultMsg, response.getMsg() == null ? "" : response.getMsg())
+                .eq(PayOrder::getId, payOrder.getId())
+                // 支付状态的乐观锁判断
+                .in(PayOrder::getStatus, PayStatus.NOT_COMMIT.getValue(), PayStatus.WAIT_BUYER_PAY.getValue())
+                .update();
+        if (!success) {
+            return;
+        }
+        rabbitMqHelper.send(
+                MqConstants.Exchange.PAY_EXCHANGE,
+                MqConstants.Key.PAY_SUCCESS,
+                PayResultDTO.builder()
+                        .payOrderNo(payOrder.getPayOrderNo())
+                        .bizOrderId(payOrder.getBizOrderNo())
+                        .payChannel(payOrder.getPayChannelCode())
+                        .successTime(response.getSuccessTime())
+                        .build()
+        );
+    }
+
+    private void closeOrders(List<Long> ids, String resultCode, String resultMsg) {
+        if (CollUtils.isEmpty(ids)) {
+            return;
+        }
+        lambdaUpdate()
+                .set(PayOrder::getStatus, PayStatus.TRADE_CLOSED.getValue())
+                .set(resultCode != null, PayOrder::getResultCode, resultCode)
+                .set(resultMsg != null, PayOrder::getResultMsg, resultMsg)
+                .in(PayOrder::getId, ids)
+                // 已经支付成功的订单不能关闭
+                .in(PayOrder::getStatus, PayStatus.NOT_COMMIT.getValue(), PayStatus.WAIT_BUYER_PAY.getValue())
+                .update();
+    }
+
     private void updatePayStatus2DB(PayStatusResponse response, Long id) {
         try {
             lambdaUpdate()
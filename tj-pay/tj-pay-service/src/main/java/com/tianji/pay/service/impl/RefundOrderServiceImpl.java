@@ -11,6 +11,8 @@ import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.common.exceptions.BadRequestException;
 import com.tianji.common.exceptions.BizIllegalException;
 import com.tianji.common.utils.BeanUtils;
+import com.tianji.common.utils.BooleanUtils;
+import com.tianji.common.utils.CollUtils;
 import com.tianji.pay.domain.po.PayOrder;
 import com.tianji.pay.domain.po.RefundOrder;
 import com.tianji.pay.mapper.RefundOrderMapper;
@@ -28,6 +30,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static com.tianji.pay.sdk.constants.PayErrorInfo.INVALID_PAY_CHANNEL;
@@ -251,6 +255,80 @@ public class RefundOrderServiceImpl extends ServiceImpl<RefundOrderMapper, Refun
         );
     }
 
+    @Override
+    public List<RefundOrder> queryRefundingOrders(int shardIndex, int shardTotal, Long lastId, int size) {
+        return lambdaQuery()
+                .eq(RefundOrder::getStatus, RefundStatus.UN_KNOWN.getValue())
+                .gt(RefundOrder::getId, lastId)
+                // 雪花id的低位分布不均匀，先散列再按分片数取模
+                .apply(shardTotal > 1, "MOD(CRC32(id), {0}) = {1}", shardTotal, shardIndex)
+                .orderByAsc(RefundOrder::getId)
+                .last("LIMIT " + size)
+                .list();
+    }
+
+    @Override
+    public List<RefundOrder> closeInvalidOrders(List<RefundOrder> refundOrders) {
+        // 1.找出渠道不存在的退款单
+        List<Long> closeIds = new ArrayList<>();
+        List<RefundOrder> remains = new ArrayList<>(refundOrders.size());
+        for (RefundOrder refundOrder : refundOrders) {
+            if (payServiceChannels.containsKey(refundOrder.getPayChannelCode())) {
+                remains.add(refundOrder);
+                continue;
+            }
+            log.error("支付渠道不存在，退款单号：{}", refundOrder.getId());
+            closeIds.add(refundOrder.getId());
+        }
+        // 2.批量关闭
+        if (CollUtils.isNotEmpty(closeIds)) {
+            lambdaUpdate()
+                    .set(RefundOrder::getStatus, RefundStatus.FAILED.getValue())
+                    .in(RefundOrder::getId, closeIds)
+                    .eq(RefundOrder::getStatus, RefundStatus.UN_KNOWN.getValue())
+                    .update();
+        }
+        return remains;
+    }
+
+    @Override
+    public void handleRefundStatuses(List<RefundOrder> refundOrders, List<RefundResponse> responses) {
+        for (int i = 0; i < refundOrders.size(); i++) {
+            RefundOrder refundOrder = refundOrders.get(i);
+            RefundResponse response = responses.get(i);
+            // 1.查询失败或状态未变化，跳过
+            if (response == null || !BooleanUtils.isTrue(response.getSuccess()) || response.getStatus() == null
+                    || response.getStatus().equals(refundOrder.getStatus())) {
+                continue;
+            }
+            // 2.更新状态，只有状态仍未知时才更新，更新成功才发送通知
+            boolean updated = lambdaUpdate()
+                    .set(RefundOrder::getStatus, response.getStatus())
+                    .set(response.getAmount() != null, RefundOrder::getRefundAmount, response.getAmount())
+                    .set(response.getChannel() != null, RefundOrder::getRefundChannel, response.getChannel())
+                    .set(RefundOrder::getResultCode, response.getCode() == null ? "" : response.getCode())
+                    .set(RefundOrder::getResultMsg, response.getMsg() == null ? "" : response.getMsg())
+                    .eq(RefundOrder::getId, refundOrder.getId())
+                    .eq(RefundOrder::getStatus, RefundStatus.UN_KNOWN.getValue())
+                    .update();
+            if (!updated || response.refunding()) {
+                continue;
+            }
+            // 3.发送MQ通知业务端
+            RefundResultDTO.RefundResultDTOBuilder builder = response.refundSuccess()
+                    ? RefundResultDTO.success() : RefundResultDTO.failed().msg(response.getMsg());
+            rabbitMqHelper.send(
+                    MqConstants.Exchange.PAY_EXCHANGE,
+                    MqConstants.Key.REFUND_CHANGE,
+                    builder.refundOrderNo(refundOrder.getRefundOrderNo())
+                            .bizPayOrderId(refundOrder.getBizOrderNo())
+                            .bizRefundOrderId(refundOrder.getBizRefundOrderNo())
+                            .refundChannel(response.getChannel())
+                            .build()
+            );
+        }
+    }
+
     @Override
     public RefundResultDTO queryRefundDetail(Long bizRefundOrderId) {
         // 1.查询退款单
@@ -0,0 +1,132 @@
+package com.tianji.pay.tasks;
+
+import com.tianji.pay.third.CommonPayProperties;
+import com.tianji.pay.third.IPayService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateType;
+import org.redisson.api.RedissonClient;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 支付渠道状态的并发查询工具
+ * <p>
+ * 对账任务把一批订单交给本工具，在有界线程池中并发查询各订单在支付渠道的状态：
+ * <ul>
+ *     <li>每个渠道有独立的限流器，限流基于Redis，所有实例、所有分片共用同一个额度，避免渠道恢复后被对账请求打满</li>
+ *     <li>线程池和队列都有上限，队列满时由提交任务的线程自己查询，自然降低提交速度</li>
+ *     <li>任务有截止时间，到期仍未拿到额度或结果的订单直接跳过，留给下次任务</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChannelStatusChecker {
+
+    private static final String RATE_LIMITER_KEY_PREFIX = "pay:check:rate:";
+
+    private final RedissonClient redissonClient;
+    private final CommonPayProperties properties;
+
+    @Resource
+    private Map<String, IPayService> payServiceChannels;
+
+    private final Map<String, RRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int threads = properties.getCheck().getThreads();
+        AtomicInteger index = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 8),
+                r -> new Thread(r, "pay-check-" + index.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 并发查询一批订单在支付渠道的状态
+     *
+     * @param orders    要查询的订单
+     * @param channelOf 获取订单的渠道编码
+     * @param query     查询渠道状态
+     * @param deadline  截止时间，毫秒时间戳
+     * @return 与orders顺序一致的查询结果，渠道不存在、未拿到限流额度、超时或查询异常的为null
+     */
+    public <T, R> List<R> query(List<T> orders, Function<T, String> channelOf,
+                                BiFunction<IPayService, T, R> query, long deadline) {
+        // 1.提交查询任务
+        List<Future<R>> futures = new ArrayList<>(orders.size());
+        for (T order : orders) {
+            String channel = channelOf.apply(order);
+            IPayService payService = payServiceChannels.get(channel);
+            if (payService == null) {
+                futures.add(CompletableFuture.completedFuture(null));
+                continue;
+            }
+            futures.add(executor.submit(() -> queryWithLimit(channel, payService, order, query, deadline)));
+        }
+        // 2.等待结果，超时的取消
+        List<R> results = new ArrayList<>(orders.size());
+        for (Future<R> future : futures) {
+            long wait = deadline - System.currentTimeMillis();
+            try {
+                results.add(future.get(Math.max(wait, 0), TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                results.add(null);
+            } catch (ExecutionException | TimeoutException e) {
+                future.cancel(true);
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    private <T, R> R queryWithLimit(String channel, IPayService payService, T order,
+                                    BiFunction<IPayService, T, R> query, long deadline) {
+        // 1.获取渠道的限流额度
+        long wait = deadline - System.currentTimeMillis();
+        if (wait <= 0 || !rateLimiter(channel).tryAcquire(1, wait, TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        // 2.查询渠道
+        try {
+            return query.apply(payService, order);
+        } catch (Exception e) {
+            log.error("查询支付渠道{}的订单状态异常", channel, e);
+            return null;
+        }
+    }
+
+    private RRateLimiter rateLimiter(String channel) {
+        return rateLimiters.computeIfAbsent(channel, c -> {
+            CommonPayProperties.CheckProperties check = properties.getCheck();
+            int qps = check.getChannelQps().getOrDefault(c, check.getDefaultChannelQps());
+            RRateLimiter limiter = redissonClient.getRateLimiter(RATE_LIMITER_KEY_PREFIX + c);
+            // 已经存在时不会覆盖，修改额度需要先删除Redis中的限流器
+            limiter.trySetRate(RateType.OVERALL, qps, 1, RateIntervalUnit.SECONDS);
+            return limiter;
+        });
+    }
+}
@@ -1,40 +1,69 @@
 package com.tianji.pay.tasks;
 
-import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.common.utils.StringUtils;
 import com.tianji.pay.domain.po.PayOrder;
 import com.tianji.pay.service.IPayOrderService;
+import com.tianji.pay.third.CommonPayProperties;
+import com.tianji.pay.third.model.PayStatusResponse;
 import com.xxl.job.core.context.XxlJobHelper;
 import com.xxl.job.core.handler.annotation.XxlJob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class PayOrderCheckTask {
 
+    private static final int DEFAULT_BATCH_SIZE = 200;
+
     private final IPayOrderService payOrderService;
+    private final ChannelStatusChecker channelStatusChecker;
+    private final CommonPayProperties properties;
 
+    /**
+     * 支付单对账
+     * <p>
+     * 按id散列分片，每个分片按id顺序分批读取待支付订单，超时和渠道不存在的直接批量关闭，
+     * 其余的并发查询渠道状态后批量写回。执行到截止时间后结束，剩余订单留给下次任务
+     */
     @XxlJob("payOrderCheckHandler")
     public void checkPayOrderStatus() {
         // 1.获取分片信息
-        int index = XxlJobHelper.getShardIndex() + 1;
+        int index = XxlJobHelper.getShardIndex();
+        int total = XxlJobHelper.getShardTotal();
         String jobParam = XxlJobHelper.getJobParam();
-        int size = StringUtils.isNumeric(jobParam) ? Integer.parseInt(jobParam) : 10;
-        // 2.查询需要处理的支付订单
-        PageDTO<PayOrder> result = payOrderService.queryPayingOrderByPage(index, size);
-        if (result.isEmpty()) {
-            return;
-        }
-        // 3.逐个检查支付单
-        for (PayOrder payOrder : result.getList()) {
+        int size = StringUtils.isNumeric(jobParam) ? Integer.parseInt(jobParam) : DEFAULT_BATCH_SIZE;
+        long deadline = System.currentTimeMillis() + properties.getCheck().getMaxSeconds() * 1000L;
+        // 2.分批处理本分片的待支付订单
+        Long lastId = 0L;
+        int count = 0;
+        while (System.currentTimeMillis() < deadline) {
+            // 2.1.查询需要处理的支付订单
+            List<PayOrder> payOrders = payOrderService.queryPayingOrders(index, total, lastId, size);
+            if (payOrders.isEmpty()) {
+                break;
+            }
+            lastId = payOrders.get(payOrders.size() - 1).getId();
+            count += payOrders.size();
             try {
-                payOrderService.checkPayOrder(payOrder);
+                // 2.2.关闭无效订单
+                List<PayOrder> checking = payOrderService.closeInvalidOrders(payOrders);
+                // 2.3.并发查询渠道状态
+                List<PayStatusResponse> responses = channelStatusChecker.query(checking, PayOrder::getPayChannelCode,
+                        (payService, o) -> payService.queryPayOrderStatus(o.getPayOrderNo().toString()), deadline);
+                // 2.4.写回状态
+                payOrderService.handlePayStatuses(checking, responses);
             } catch (Exception e) {
                 log.error("处理订单支付状态异常：", e);
             }
+            if (payOrders.size() < size) {
+                break;
+            }
         }
+        XxlJobHelper.log("分片{}/{}处理支付单{}个", index, total, count);
     }
 }
@@ -1,40 +1,67 @@
 package com.tianji.pay.tasks;
 
-import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.common.utils.StringUtils;
 import com.tianji.pay.domain.po.RefundOrder;
 import com.tianji.pay.service.IRefundOrderService;
+import com.tianji.pay.third.CommonPayProperties;
+import com.tianji.pay.third.model.RefundResponse;
 import com.xxl.job.core.context.XxlJobHelper;
 import com.xxl.job.core.handler.annotation.XxlJob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class RefundOrderCheckTask {
 
+    private static final int DEFAULT_BATCH_SIZE = 200;
+
     private final IRefundOrderService refundOrderService;
+    private final ChannelStatusChecker channelStatusChecker;
+    private final CommonPayProperties properties;
 
+    /**
+     * 退款单对账，处理方式与支付单对账相同
+     */
     @XxlJob("refundOrderCheckHandler")
     public void checkRefundOrderStatus() {
         // 1.获取分片信息
-        int index = XxlJobHelper.getShardIndex() + 1;
+        int index = XxlJobHelper.getShardIndex();
+        int total = XxlJobHelper.getShardTotal();
         String jobParam = XxlJobHelper.getJobParam();
-        int size = StringUtils.isNumeric(jobParam) ? Integer.parseInt(jobParam) : 10;
-        // 2.查询需要处理的退款订单
-        PageDTO<RefundOrder> result = refundOrderService.queryRefundingOrderByPage(index, size);
-        if (result.isEmpty()) {
-            return;
-        }
-        // 3.逐个检查退款单
-        for (RefundOrder refundOrder : result.getList()) {
+        int size = StringUtils.isNumeric(jobParam) ? Integer.parseInt(jobParam) : DEFAULT_BATCH_SIZE;
+        long deadline = System.currentTimeMillis() + properties.getCheck().getMaxSeconds() * 1000L;
+        // 2.分批处理本分片的退款订单
+        Long lastId = 0L;
+        int count = 0;
+        while (System.currentTimeMillis() < deadline) {
+            // 2.1.查询需要处理的退款订单
+            List<RefundOrder> refundOrders = refundOrderService.queryRefundingOrders(index, total, lastId, size);
+            if (refundOrders.isEmpty()) {
+                break;
+            }
+            lastId = refundOrders.get(refundOrders.size() - 1).getId();
+            count += refundOrders.size();
             try {
-                refundOrderService.checkRefundOrder(refundOrder);
+                // 2.2.关闭无效退款单
+                List<RefundOrder> checking = refundOrderService.closeInvalidOrders(refundOrders);
+                // 2.3.并发查询渠道状态
+                List<RefundResponse> responses = channelStatusChecker.query(checking, RefundOrder::getPayChannelCode,
+                        (payService, o) -> payService.queryRefundStatus(
+                                o.getPayOrderNo().toString(), o.getRefundOrderNo().toString()), deadline);
+                // 2.4.写回状态
+                refundOrderService.handleRefundStatuses(checking, responses);
             } catch (Exception e) {
                 log.error("处理退款订单状态异常：", e);
             }
+            if (refundOrders.size() < size) {
+                break;
+            }
         }
+        XxlJobHelper.log("分片{}/{}处理退款单{}个", index, total, count);
     }
 }
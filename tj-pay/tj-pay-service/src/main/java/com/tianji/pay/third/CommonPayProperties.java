@@ -4,9 +4,25 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "tj.pay")
 public class CommonPayProperties {
     private String notifyHost;
+    private CheckProperties check = new CheckProperties();
+
+    @Data
+    public static class CheckProperties {
+        /*查询渠道状态的线程数*/
+        private int threads = 16;
+        /*单次任务的最长执行时间，超时后剩余的订单留给下次任务*/
+        private int maxSeconds = 50;
+        /*每个渠道每秒允许的查询次数，所有实例共用*/
+        private int defaultChannelQps = 50;
+        /*各渠道单独配置的每秒查询次数，key为渠道编码*/
+        private Map<String, Integer> channelQps = new HashMap<>();
+    }
 }
@@ -0,0 +1,108 @@
+package com.tianji.pay.third.fake;
+
+import com.tianji.pay.third.IPayService;
+import com.tianji.pay.third.model.PayStatus;
+import com.tianji.pay.third.model.PayStatusResponse;
+import com.tianji.pay.third.model.PrepayResponse;
+import com.tianji.pay.third.model.RefundResponse;
+import com.tianji.pay.third.model.RefundStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模拟支付渠道，不调用第三方接口，用于离线压测对账任务。
+ * 配置tj.pay.fake.enabled=true后启用，支付单的渠道编码为fake即可使用
+ */
+@Slf4j
+@Service("fake")
+@ConditionalOnProperty(prefix = "tj.pay.fake", name = "enabled", havingValue = "true")
+public class FakePayService implements IPayService {
+
+    /**
+     * 模拟每次请求的耗时
+     */
+    @Value("${tj.pay.fake.latency-millis:50}")
+    private long latencyMillis;
+    /**
+     * 查询结果为支付成功或退款成功的比例，其余为待支付或退款中
+     */
+    @Value("${tj.pay.fake.success-rate:0.3}")
+    private double successRate;
+    /**
+     * 查询失败的比例
+     */
+    @Value("${tj.pay.fake.error-rate:0}")
+    private double errorRate;
+
+    private final LongAdder queries = new LongAdder();
+
+    @Override
+    public PrepayResponse createPrepayOrder(String title, String orderNo, Integer amount) {
+        simulateLatency();
+        return PrepayResponse.builder().success(true).payUrl("fake://pay/" + orderNo).build();
+    }
+
+    @Override
+    public PayStatusResponse queryPayOrderStatus(String payOrderNo) {
+        simulateQuery();
+        if (randomError()) {
+            return PayStatusResponse.builder().success(false).code("FAKE_ERROR").msg("模拟查询失败").build();
+        }
+        boolean paid = ThreadLocalRandom.current().nextDouble() < successRate;
+        return PayStatusResponse.builder()
+                .success(true)
+                .payOrderNo(payOrderNo)
+                .payStatus(paid ? PayStatus.TRADE_SUCCESS.getValue() : PayStatus.WAIT_BUYER_PAY.getValue())
+                .successTime(paid ? LocalDateTime.now() : null)
+                .build();
+    }
+
+    @Override
+    public RefundResponse refundOrder(String payOrderNo, String refundOrderNo, Integer refundAmount, Integer totalAmount) {
+        simulateLatency();
+        return RefundResponse.builder()
+                .success(true).channel("fake").amount(refundAmount).status(RefundStatus.UN_KNOWN.getValue()).build();
+    }
+
+    @Override
+    public RefundResponse queryRefundStatus(String orderNo, String refundOrderNo) {
+        simulateQuery();
+        if (randomError()) {
+            return RefundResponse.builder().success(false).code("FAKE_ERROR").msg("模拟查询失败").build();
+        }
+        boolean refunded = ThreadLocalRandom.current().nextDouble() < successRate;
+        return RefundResponse.builder()
+                .success(true)
+                .channel("fake")
+                .status(refunded ? RefundStatus.SUCCESS.getValue() : RefundStatus.UN_KNOWN.getValue())
+                .build();
+    }
+
+    private void simulateQuery() {
+        simulateLatency();
+        queries.increment();
+        log.debug("fake渠道，累计查询{}次", queries.sum());
+    }
+
+    private boolean randomError() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    private void simulateLatency() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
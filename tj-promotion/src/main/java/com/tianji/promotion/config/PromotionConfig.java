@@ -1,13 +1,20 @@
 package com.tianji.promotion.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.tianji.promotion.utils.MyLockAspect;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RedissonClient;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -27,17 +34,30 @@ public class PromotionConfig {
         return executor;
     }
 
+    /**
+     * 优惠券作用范围的caffeine缓存，key为优惠券id，value为限定的分类id
+     */
     @Bean
-    public Executor discountSolutionExecutor(){
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(4);
-        executor.setMaxPoolSize(4);
-        executor.setQueueCapacity(999);
-        executor.setThreadNamePrefix("discount-solution-calculator");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
-        executor.initialize();
-        return executor;
+    public Cache<Long, Set<Long>> couponScopeCaches(){
+        return Caffeine.newBuilder()
+                .initialCapacity(128) // 容量限制
+                .maximumSize(10_000) // 最大内存限制
+                .expireAfterWrite(Duration.ofMinutes(10)) // 有效期，兜底其它实例修改优惠券的情况
+                .build();
     }
 
-
+    /**
+     * 批量消费领券消息的监听容器，攒够一批或等待超时后一次性交给监听器处理
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory couponReceiveContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory){
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(200);
+        factory.setReceiveTimeout(500L);
+        return factory;
+    }
 }
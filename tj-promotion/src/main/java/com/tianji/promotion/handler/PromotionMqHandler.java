@@ -1,5 +1,6 @@
 package com.tianji.promotion.handler;
 
+import com.tianji.common.utils.CollUtils;
 import com.tianji.promotion.domain.dto.UserCouponDTO;
 import com.tianji.promotion.service.IUserCouponService;
 import lombok.RequiredArgsConstructor;
@@ -10,6 +11,8 @@ import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 import static com.tianji.common.constants.MqConstants.Exchange.PROMOTION_EXCHANGE;
 import static com.tianji.common.constants.MqConstants.Key.COUPON_RECEIVE;
 
@@ -23,9 +26,11 @@ public class PromotionMqHandler {
             value = @Queue(name = "coupon.receive.queue", durable = "true"),
             exchange = @Exchange(name = PROMOTION_EXCHANGE, type = ExchangeTypes.TOPIC),
             key = COUPON_RECEIVE
-    ))
-    public void listenCouponReceiveMessage(UserCouponDTO uc){
-        userCouponService.checkAndCreateUserCoupon(uc);
-
+    ), containerFactory = "couponReceiveContainerFactory")
+    public void listenCouponReceiveMessage(List<UserCouponDTO> ucs){
+        if (CollUtils.isEmpty(ucs)) {
+            return;
+        }
+        userCouponService.checkAndCreateUserCoupons(ucs);
     }
 }
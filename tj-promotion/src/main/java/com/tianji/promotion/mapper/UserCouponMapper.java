@@ -18,4 +18,6 @@ import java.util.List;
 public interface UserCouponMapper extends BaseMapper<UserCoupon> {
 
     List<Coupon> queryMyCoupons(@Param("userId") Long user);
+
+    int insertBatch(@Param("list") List<UserCoupon> list);
 }
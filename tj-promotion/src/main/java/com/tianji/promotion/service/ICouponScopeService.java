@@ -3,6 +3,10 @@ package com.tianji.promotion.service;
 import com.tianji.promotion.domain.po.CouponScope;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * <p>
  * 优惠券作用范围信息 服务类
@@ -13,4 +17,17 @@ import com.baomidou.mybatisplus.extension.service.IService;
  */
 public interface ICouponScopeService extends IService<CouponScope> {
 
+    /**
+     * 批量查询优惠券的作用范围，优先读取本地缓存，未命中的优惠券合并为一次查询
+     * @param couponIds 优惠券id集合
+     * @return 优惠券id与限定范围id的映射
+     */
+    Map<Long, Set<Long>> queryScopeBizIds(Collection<Long> couponIds);
+
+    /**
+     * 清理优惠券作用范围缓存，优惠券修改或开始发放时调用
+     * @param couponId 优惠券id
+     */
+    void evictScopeCache(Long couponId);
+
 }
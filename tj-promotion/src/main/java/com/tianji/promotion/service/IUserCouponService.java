@@ -6,6 +6,8 @@ import com.tianji.promotion.domain.po.UserCoupon;
 import com.baomidou.mybatisplus.extension.service.IService;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 /**
  * <p>
  * 用户领取优惠券的记录，是真正使用的优惠券信息 服务类
@@ -21,5 +23,7 @@ public interface IUserCouponService extends IService<UserCoupon> {
     @Transactional
     void checkAndCreateUserCoupon(UserCouponDTO uc);
 
+    void checkAndCreateUserCoupons(List<UserCouponDTO> ucs);
+
     void exchangeCoupon(String code);
 }
@@ -1,11 +1,22 @@
 package com.tianji.promotion.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.tianji.common.utils.CollUtils;
 import com.tianji.promotion.domain.po.CouponScope;
 import com.tianji.promotion.mapper.CouponScopeMapper;
 import com.tianji.promotion.service.ICouponScopeService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 /**
  * <p>
  * 优惠券作用范围信息 服务实现类
@@ -15,6 +26,36 @@ import org.springframework.stereotype.Service;
  * @since 2023-08-19
  */
 @Service
+@RequiredArgsConstructor
 public class CouponScopeServiceImpl extends ServiceImpl<CouponScopeMapper, CouponScope> implements ICouponScopeService {
 
+    private final Cache<Long, Set<Long>> couponScopeCaches;
+
+    @Override
+    public Map<Long, Set<Long>> queryScopeBizIds(Collection<Long> couponIds) {
+        if (CollUtils.isEmpty(couponIds)) {
+            return CollUtils.emptyMap();
+        }
+        return couponScopeCaches.getAll(couponIds, this::loadScopeBizIds);
+    }
+
+    private Map<Long, Set<Long>> loadScopeBizIds(Iterable<? extends Long> couponIds) {
+        // 1.一次查询所有未命中缓存的优惠券范围
+        Set<Long> ids = new HashSet<>();
+        couponIds.forEach(ids::add);
+        List<CouponScope> scopes = lambdaQuery().in(CouponScope::getCouponId, ids).list();
+        // 2.按优惠券分组，没有范围的优惠券也缓存空集合，避免重复查询
+        Map<Long, Set<Long>> map = new HashMap<>(ids.size());
+        for (Long id : ids) {
+            map.put(id, new HashSet<>());
+        }
+        map.putAll(scopes.stream().collect(Collectors.groupingBy(
+                CouponScope::getCouponId, Collectors.mapping(CouponScope::getBizId, Collectors.toSet()))));
+        return map;
+    }
+
+    @Override
+    public void evictScopeCache(Long couponId) {
+        couponScopeCaches.invalidate(couponId);
+    }
 }
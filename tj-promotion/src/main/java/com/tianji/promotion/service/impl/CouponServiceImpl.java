@@ -189,6 +189,8 @@ public class CouponServiceImpl extends ServiceImpl<CouponMapper, Coupon> impleme
 
         // 更新数据库中的优惠券信息
         updateById(c);
+        // 开始发放后作用范围不再变化，清理旧的范围缓存以便重新加载
+        scopeService.evictScopeCache(coupon.getId());
 
        if (isBegin) {
             coupon.setIssueBeginTime(c.getIssueBeginTime());
@@ -206,8 +208,9 @@ public class CouponServiceImpl extends ServiceImpl<CouponMapper, Coupon> impleme
     private void cacheCouponInfo(Coupon coupon) {
         Map<String,String> map = new HashMap<>();
         map.put("issueBeginTime", String.valueOf(DateUtils.toEpochMilli(coupon.getIssueBeginTime())));
-        map.put("issueEndnTime", String.valueOf(DateUtils.toEpochMilli(coupon.getIssueEndTime())));
-        map.put("totalNum", String.valueOf(coupon.getIssueNum()));
+        map.put("issueEndTime", String.valueOf(DateUtils.toEpochMilli(coupon.getIssueEndTime())));
+        // 缓存剩余库存，领券时原子扣减
+        map.put("totalNum", String.valueOf(coupon.getTotalNum() - coupon.getIssueNum()));
         map.put("userLimit", String.valueOf(coupon.getUserLimit()));
         redisTemplate.opsForHash().putAll(PromotionConstants.COUPON_CACHE_KEY_PREFIX + coupon.getId(), map);
     }
@@ -286,6 +289,7 @@ public class CouponServiceImpl extends ServiceImpl<CouponMapper, Coupon> impleme
         }
 
         redisTemplate.delete(PromotionConstants.COUPON_CACHE_KEY_PREFIX + id);
+        scopeService.evictScopeCache(id);
 
     }
 
@@ -13,18 +13,14 @@ import com.tianji.promotion.service.ICouponScopeService;
 import com.tianji.promotion.service.ICouponService;
 import com.tianji.promotion.service.IDiscountService;
 import com.tianji.promotion.strategy.discount.Discount;
+import com.tianji.promotion.strategy.discount.DiscountSolver;
 import com.tianji.promotion.strategy.discount.DiscountStrategy;
-import com.tianji.promotion.utils.PermuteUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.concurrent.Executor;
 
 @Slf4j
 @Service
@@ -33,8 +29,6 @@ public class DiscountServiceImpl implements IDiscountService {
     private final UserCouponMapper userCouponMapper;
     private final ICouponScopeService scopeService;
 
-    private final Executor discountSolutionExecutor;
-
     @Override
     public List<CouponDiscountDTO> findDiscountSolution(List<OrderCourseDTO> orderCourse) {
         List<Coupon> coupons = userCouponMapper.queryMyCoupons(UserContext.getUser());
@@ -56,29 +50,9 @@ public class DiscountServiceImpl implements IDiscountService {
         if (CollUtils.isEmpty(availableCouponMap)) {
             return CollUtils.emptyList();
         }
-        availableCoupons =new ArrayList<>(availableCouponMap.keySet());
-        List<List<Coupon>> solutions = PermuteUtil.permute(availableCoupons);
-        for (Coupon c : availableCoupons) {
-            solutions.add(List.of(c));
-        }
-        List<CouponDiscountDTO> list = Collections.synchronizedList(new ArrayList<>(solutions.size()));
-        CountDownLatch latch = new CountDownLatch(solutions.size());
-        for (List<Coupon> solution : solutions) {
-            CompletableFuture
-                    .supplyAsync(() ->calculateSolutionDiscount(availableCouponMap, orderCourse, solution))
-                    .thenAccept(dto ->{
-                        list.add(dto);
-                        latch.countDown();
-                    });
-        }
-        //
-        try {
-            latch.await(2, TimeUnit.SECONDS);
-        }catch (InterruptedException e){
-            log.error("优惠方案计算被中断，{}", e.getMessage());
-        }
+        //分支定界求解各优惠券组合的最优叠加方案，优惠券过多或超出计算预算时返回已求出的方案
+        List<CouponDiscountDTO> list = DiscountSolver.solve(availableCouponMap, orderCourse);
         //最优解
-
         return findBestSolution(list);
     }
 
@@ -105,59 +79,17 @@ public class DiscountServiceImpl implements IDiscountService {
                 .collect(Collectors.toList());
     }
 
-    private CouponDiscountDTO calculateSolutionDiscount(
-            Map<Coupon, List<OrderCourseDTO>> couponMap, List<OrderCourseDTO> courses, List<Coupon> solution) {
-        CouponDiscountDTO dto = new CouponDiscountDTO();
-        Map<Long, Integer> detailMap = courses.stream().collect(Collectors.toMap(OrderCourseDTO::getId, oc -> 0));
-        for (Coupon coupon : solution) {
-            List<OrderCourseDTO> availableCourses = couponMap.get(coupon);
-            //计算总价
-            int totalAmount = availableCourses.stream()
-                    .mapToInt(oc -> oc.getPrice() - detailMap.get(oc.getId())).sum();
-            Discount discount = DiscountStrategy.getDiscount(coupon.getDiscountType());
-            if (!discount.canUse(totalAmount, coupon)) {
-                continue;
-            }
-            int discountAmount = discount.calculateDiscount(totalAmount, coupon);
-            calculateDiscountDetails(detailMap, availableCourses, totalAmount, discountAmount);
-            dto.getIds().add(coupon.getId());
-            dto.getRules().add(discount.getRule(coupon));
-            dto.setDiscountAmount(discountAmount + dto.getDiscountAmount());
-        }
-        return dto;
-    }
-
-    private void calculateDiscountDetails(
-            Map<Long, Integer> detailMap, List<OrderCourseDTO> courses, int totalAmount, int discountAmount) {
-        int time = 0;
-        int remainDiscount = discountAmount;
-        for (OrderCourseDTO course : courses) {
-            time++;
-            int discount = 0;
-            if (time == courses.size()) {
-                //最后一个课程
-                discount = remainDiscount;
-
-            }else {
-                discount = discountAmount * course.getPrice() / totalAmount;
-                remainDiscount -= discount;
-            }
-
-            detailMap.put(course.getId(), discount + detailMap.get(course.getId()));
-
-        }
-
-    }
-
     private Map<Coupon, List<OrderCourseDTO>> findAvailableCoupon(
             List<Coupon> coupons, List<OrderCourseDTO> courses) {
         Map<Coupon, List<OrderCourseDTO>> map = new HashMap<>(coupons.size());
+        //批量查询限定范围优惠券的作用范围
+        List<Long> specificIds = coupons.stream()
+                .filter(Coupon::getSpecific).map(Coupon::getId).collect(Collectors.toList());
+        Map<Long, Set<Long>> scopeMap = scopeService.queryScopeBizIds(specificIds);
         for (Coupon coupon : coupons) {
             List<OrderCourseDTO> availableCourse =courses;
             if (coupon.getSpecific()){
-                List<CouponScope> scopes = scopeService.lambdaQuery()
-                        .eq(CouponScope::getCouponId, coupon.getId()).list();
-                Set<Long> scopeIds = scopes.stream().map(CouponScope::getBizId).collect(Collectors.toSet());
+                Set<Long> scopeIds = scopeMap.getOrDefault(coupon.getId(), CollUtils.emptySet());
                 availableCourse = courses.stream().filter(c -> scopeIds.contains(c.getCateId())).collect(Collectors.toList());
             }
             if (CollUtils.isEmpty(availableCourse)){
@@ -1,12 +1,10 @@
 package com.tianji.promotion.service.impl;
 
-import cn.hutool.core.bean.copier.CopyOptions;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
-import com.tianji.common.autoconfigure.redisson.annotations.Lock;
 import com.tianji.common.constants.MqConstants;
 import com.tianji.common.exceptions.BadRequestException;
 import com.tianji.common.exceptions.BizIllegalException;
-import com.tianji.common.utils.BeanUtils;
 import com.tianji.common.utils.UserContext;
 import com.tianji.promotion.constants.PromotionConstants;
 import com.tianji.promotion.domain.dto.UserCouponDTO;
@@ -28,14 +26,19 @@ import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.RedisClient;
 import org.springframework.aop.framework.AopContext;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -57,79 +60,46 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
     private final StringRedisTemplate redisTemplate;
     private final RabbitMqHelper mqHelper;
 
-    @Override
-    @Lock(name = "lock:coupon:#{couponId}")
-    public void receiveCoupon(Long couponId) {
-
-        // 从数据库中通过ID查询优惠券
-        Coupon coupon = queryCouponByCache(couponId);
-
-        // 如果查询不到这个优惠券，抛出异常
-        if (coupon == null) {
-            throw new BadRequestException("优惠券不存在！");
-        }
-
-        LocalDateTime now = LocalDateTime.now();
+    private static final DefaultRedisScript<Long> RECEIVE_COUPON_SCRIPT;
 
-        // 检查当前时间是否在优惠券的发放时间范围内
-        if (now.isBefore(coupon.getIssueBeginTime()) || now.isAfter(coupon.getIssueEndTime())) {
-            throw new BadRequestException("优惠券发放已经结束或尚未开始！");
-        }
-
-        // 检查优惠券的已发放数量是否已经达到总数限制
-        if (coupon.getIssueNum() <= 0) {
-            throw new BadRequestException("优惠券库存不足！");
-        }
+    static {
+        RECEIVE_COUPON_SCRIPT = new DefaultRedisScript<>();
+        RECEIVE_COUPON_SCRIPT.setLocation(new ClassPathResource("lua/receive_coupon.lua"));
+        RECEIVE_COUPON_SCRIPT.setResultType(Long.class);
+    }
 
+    @Override
+    public void receiveCoupon(Long couponId) {
         // 从上下文中获取当前用户的ID
         Long userId = UserContext.getUser();
 
-        // 查询该用户已领取该优惠券的数量
-        //String key = "lock:coupon:uid:" + userId;
-
-        String key = PromotionConstants.USER_COUPON_CACHE_KEY_PREFIX + couponId;
-        Long count = redisTemplate.opsForHash().increment(key, userId.toString(), 1);
-
-        if (count > coupon.getUserLimit()){
-            throw new BadRequestException("超出领取数量！");
+        // 执行Lua脚本，原子完成发放时间、库存、限领数量的校验以及库存扣减
+        Long result = redisTemplate.execute(
+                RECEIVE_COUPON_SCRIPT,
+                List.of(PromotionConstants.COUPON_CACHE_KEY_PREFIX + couponId,
+                        PromotionConstants.USER_COUPON_CACHE_KEY_PREFIX + couponId),
+                userId.toString(), String.valueOf(System.currentTimeMillis()));
+        int code = result == null ? 1 : result.intValue();
+        switch (code) {
+            case 0:
+                break;
+            case 1:
+                throw new BadRequestException("优惠券不存在！");
+            case 2:
+                throw new BadRequestException("优惠券发放已经结束或尚未开始！");
+            case 3:
+                throw new BadRequestException("优惠券库存不足！");
+            default:
+                throw new BadRequestException("超出领取数量！");
         }
-        redisTemplate.opsForHash().increment(
-                PromotionConstants.COUPON_CACHE_KEY_PREFIX + couponId, "totalNum", -1);
 
+        // 校验通过，异步写入数据库
         UserCouponDTO uc = new UserCouponDTO();
         uc.setUserId(userId);
         uc.setCouponId(couponId);
         mqHelper.send(MqConstants.Exchange.PROMOTION_EXCHANGE,MqConstants.Key.COUPON_RECEIVE, uc);
-
-
-        /*IUserCouponService userCouponService = (IUserCouponService) AopContext.currentProxy();
-        userCouponService.checkAndCreateUserCoupon(coupon, userId);*/
-
-
-       /* RLock lock = redissonClient.getLock(key);
-        boolean isLock = lock.tryLock();
-        if (!isLock) {
-            throw new BizIllegalException("请求太频繁！");
-        }
-        try {
-            IUserCouponService userCouponService = (IUserCouponService) AopContext.currentProxy();
-            userCouponService.checkAndCreateUserCoupon(coupon, userId);
-        } finally {
-            lock.unlock();
-        }*/
-
-    }
-
-    private Coupon queryCouponByCache(Long couponId) {
-        String key = PromotionConstants.COUPON_CACHE_KEY_PREFIX + couponId;
-        Map<Object, Object> objMap = redisTemplate.opsForHash().entries(key);
-        if (objMap.isEmpty()) {
-            return null;
-        }
-        return BeanUtils.mapToBean(objMap, Coupon.class, false, CopyOptions.create());
     }
 
-
     @Transactional
     @Override
     public void checkAndCreateUserCoupon(UserCouponDTO uc) {
@@ -150,6 +120,39 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 
     }
 
+    @Transactional
+    @Override
+    public void checkAndCreateUserCoupons(List<UserCouponDTO> ucs) {
+        // 1.按优惠券分组
+        Map<Long, List<UserCouponDTO>> ucMap = ucs.stream()
+                .collect(Collectors.groupingBy(UserCouponDTO::getCouponId));
+        List<Coupon> coupons = couponMapper.selectBatchIds(ucMap.keySet());
+        List<UserCoupon> list = new ArrayList<>(ucs.size());
+        for (Coupon coupon : coupons) {
+            List<UserCouponDTO> group = ucMap.get(coupon.getId());
+            // 2.一次性增加已发放数量
+            int r = couponMapper.incrIssueNumBy(coupon.getId(), group.size());
+            if (r == 0) {
+                // 库存不足以发放整批，逐条发放直到库存耗尽
+                log.warn("优惠券{}库存不足以批量发放{}张，改为逐条发放", coupon.getId(), group.size());
+                group = group.stream()
+                        .filter(uc -> couponMapper.incrIssueNum(coupon.getId()) > 0)
+                        .collect(Collectors.toList());
+            }
+            for (UserCouponDTO uc : group) {
+                list.add(buildUserCoupon(coupon, uc.getUserId()));
+            }
+        }
+        if (list.size() < ucs.size()) {
+            log.error("{}条领券记录对应的优惠券不存在或库存不足，已丢弃", ucs.size() - list.size());
+        }
+        if (list.isEmpty()) {
+            return;
+        }
+        // 3.多行插入用户券
+        getBaseMapper().insertBatch(list);
+    }
+
     @Override
     @Transactional  // 声明该方法需要事务管理
     public void exchangeCoupon(String code) {
@@ -208,9 +211,15 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 
 
     private void saveUserCoupon(Coupon coupon, Long userId) {
+        // 在数据库中保存UserCoupon对象
+        save(buildUserCoupon(coupon, userId));
+    }
+
+    private UserCoupon buildUserCoupon(Coupon coupon, Long userId) {
 
         // 创建一个新的UserCoupon对象，用于保存用户领取的优惠券记录
         UserCoupon uc = new UserCoupon();
+        uc.setId(IdWorker.getId());
         uc.setUserId(userId);
         uc.setCouponId(coupon.getId());
 
@@ -227,9 +236,7 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
         // 设置UserCoupon的有效期开始和结束时间
         uc.setTermBeginTime(termBeginTime);
         uc.setTermEndTime(termEndTime);
-
-        // 在数据库中保存UserCoupon对象
-        save(uc);
+        return uc;
     }
 
 }
@@ -0,0 +1,294 @@
+package com.tianji.promotion.strategy.discount;
+
+import com.tianji.promotion.domain.dto.CouponDiscountDTO;
+import com.tianji.promotion.domain.dto.OrderCourseDTO;
+import com.tianji.promotion.domain.po.Coupon;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>基于分支定界的优惠方案求解器</p>
+ * 按优惠券子集逐步扩展求解，每个子集只保留叠加顺序最优的方案：
+ * <ul>
+ *     <li>子集中存在无法使用的优惠券时，其所有超集同样无法使用，直接剪枝</li>
+ *     <li>已用优惠 + 剩余优惠券按当前金额可得优惠之和 不超过已知最优时，剪枝</li>
+ *     <li>相同的（已用优惠券，各课程剩余金额）状态只展开一次</li>
+ *     <li>以子集的最优方案追加一张优惠券作为初始可行解，提高剪枝效率</li>
+ * </ul>
+ * 用于替代全排列算法，避免优惠券较多时计算量阶乘级增长。
+ * 优惠券按单独使用的优惠金额排序后只取前 {@link #MAX_COUPONS} 张，搜索的节点数和耗时超过预算时停止展开，
+ * 返回已经求出的方案
+ */
+public class DiscountSolver {
+
+    /**
+     * 参与计算的优惠券数量上限
+     */
+    static final int MAX_COUPONS = 20;
+    /**
+     * 搜索的节点数上限
+     */
+    static final long MAX_NODES = 2_000_000L;
+    /**
+     * 计算耗时上限
+     */
+    static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private final Coupon[] coupons;
+    private final Discount[] discounts;
+    /**
+     * 每张优惠券可用的课程下标
+     */
+    private final int[][] scopes;
+    private final int[] prices;
+    private final List<CouponDiscountDTO> solutions = new ArrayList<>();
+    private final long maxNodes;
+    private final long deadline;
+    private long nodes;
+    private boolean exhausted;
+
+    private DiscountSolver(Map<Coupon, List<OrderCourseDTO>> couponMap, List<OrderCourseDTO> courses,
+                           int maxCoupons, long maxNodes, Duration timeout) {
+        this.maxNodes = maxNodes;
+        this.deadline = System.nanoTime() + timeout.toNanos();
+        Map<Long, Integer> courseIndex = new HashMap<>(courses.size());
+        this.prices = new int[courses.size()];
+        for (int i = 0; i < courses.size(); i++) {
+            courseIndex.put(courses.get(i).getId(), i);
+            prices[i] = courses.get(i).getPrice();
+        }
+        // 按单独使用时的优惠金额从大到小排序，超出数量上限的优惠券不参与计算，预算耗尽时也优先保留了优惠大的组合
+        Map<Coupon, Integer> singleDiscounts = new HashMap<>(couponMap.size());
+        couponMap.forEach((coupon, scope) -> {
+            int total = scope.stream().mapToInt(OrderCourseDTO::getPrice).sum();
+            Discount discount = DiscountStrategy.getDiscount(coupon.getDiscountType());
+            singleDiscounts.put(coupon, discount.canUse(total, coupon) ? discount.calculateDiscount(total, coupon) : 0);
+        });
+        List<Coupon> list = new ArrayList<>(couponMap.keySet());
+        list.sort(Comparator.<Coupon>comparingInt(singleDiscounts::get).reversed().thenComparing(Coupon::getId));
+        int n = Math.min(list.size(), maxCoupons);
+        this.coupons = list.subList(0, n).toArray(new Coupon[0]);
+        this.discounts = new Discount[n];
+        this.scopes = new int[n][];
+        for (int i = 0; i < n; i++) {
+            discounts[i] = DiscountStrategy.getDiscount(coupons[i].getDiscountType());
+            scopes[i] = couponMap.get(coupons[i]).stream().mapToInt(c -> courseIndex.get(c.getId())).toArray();
+        }
+    }
+
+    /**
+     * 计算所有可行的优惠券组合及其最优叠加顺序
+     *
+     * @param couponMap 优惠券及其可用课程
+     * @param courses   订单中的课程
+     * @return 每个可行组合的最优方案
+     */
+    public static List<CouponDiscountDTO> solve(Map<Coupon, List<OrderCourseDTO>> couponMap, List<OrderCourseDTO> courses) {
+        return solve(couponMap, courses, MAX_COUPONS, MAX_NODES, TIMEOUT);
+    }
+
+    static List<CouponDiscountDTO> solve(Map<Coupon, List<OrderCourseDTO>> couponMap, List<OrderCourseDTO> courses,
+                                         int maxCoupons, long maxNodes, Duration timeout) {
+        DiscountSolver solver = new DiscountSolver(couponMap, courses, Math.min(maxCoupons, Long.SIZE - 1), maxNodes, timeout);
+        solver.expand(0L, -1, null);
+        return solver.solutions;
+    }
+
+    /**
+     * 累计搜索节点数，超过节点数或耗时预算后返回true，每1024个节点检查一次耗时
+     */
+    private boolean exhausted() {
+        if (!exhausted) {
+            nodes++;
+            exhausted = nodes > maxNodes || ((nodes & 1023) == 0 && System.nanoTime() > deadline);
+        }
+        return exhausted;
+    }
+
+    private void expand(long set, int last, SetSearch parent) {
+        for (int i = last + 1; i < coupons.length && !exhausted; i++) {
+            long next = set | (1L << i);
+            SetSearch search = new SetSearch(next);
+            search.seed(parent, i);
+            CouponDiscountDTO dto = search.search();
+            if (dto == null) {
+                // 该组合无法叠加，超集也不可能叠加
+                continue;
+            }
+            solutions.add(dto);
+            expand(next, i, search);
+        }
+    }
+
+    private int scopeAmount(int coupon, int[] remain) {
+        int total = 0;
+        for (int c : scopes[coupon]) {
+            total += remain[c];
+        }
+        return total;
+    }
+
+    /**
+     * 按价格比例把优惠金额分摊到各课程，最后一门课程承担剩余部分
+     */
+    private int[] allocate(int coupon, int[] remain, int totalAmount, int discountAmount) {
+        int[] next = remain.clone();
+        int[] scope = scopes[coupon];
+        int remainDiscount = discountAmount;
+        for (int i = 0; i < scope.length; i++) {
+            int c = scope[i];
+            int discount;
+            if (i == scope.length - 1) {
+                discount = remainDiscount;
+            } else {
+                discount = (int) ((long) discountAmount * prices[c] / totalAmount);
+                remainDiscount -= discount;
+            }
+            next[c] -= discount;
+        }
+        return next;
+    }
+
+    /**
+     * 单个优惠券组合内的叠加顺序搜索
+     */
+    private class SetSearch {
+        private final long target;
+        private final Set<State> visited = new HashSet<>();
+        private final int[] order;
+        private int[] bestOrder;
+        private int[] bestRemain;
+        private int bestAmount = -1;
+
+        SetSearch(long target) {
+            this.target = target;
+            this.order = new int[Long.bitCount(target)];
+        }
+
+        /**
+         * 在父组合的最优方案后追加优惠券，作为初始可行解
+         */
+        void seed(SetSearch parent, int coupon) {
+            int[] remain = parent == null ? prices : parent.bestRemain;
+            int amount = parent == null ? 0 : parent.bestAmount;
+            int total = scopeAmount(coupon, remain);
+            if (!discounts[coupon].canUse(total, coupons[coupon])) {
+                return;
+            }
+            int discountAmount = discounts[coupon].calculateDiscount(total, coupons[coupon]);
+            bestAmount = amount + discountAmount;
+            bestRemain = allocate(coupon, remain, total, discountAmount);
+            bestOrder = new int[order.length];
+            if (parent != null) {
+                System.arraycopy(parent.bestOrder, 0, bestOrder, 0, parent.bestOrder.length);
+            }
+            bestOrder[order.length - 1] = coupon;
+        }
+
+        CouponDiscountDTO search() {
+            dfs(0L, 0, prices, 0);
+            if (bestOrder == null) {
+                return null;
+            }
+            CouponDiscountDTO dto = new CouponDiscountDTO();
+            for (int i : bestOrder) {
+                dto.getIds().add(coupons[i].getId());
+                dto.getRules().add(discounts[i].getRule(coupons[i]));
+            }
+            dto.setDiscountAmount(bestAmount);
+            return dto;
+        }
+
+        private void dfs(long used, int depth, int[] remain, int amount) {
+            if (exhausted()) {
+                // 预算耗尽，保留当前已知的最优解
+                return;
+            }
+            if (used == target) {
+                if (amount > bestAmount) {
+                    bestAmount = amount;
+                    bestOrder = order.clone();
+                    bestRemain = remain;
+                }
+                return;
+            }
+            if (!visited.add(new State(used, remain))) {
+                return;
+            }
+            // 1.计算剩余优惠券在当前金额下的优惠，金额只减不增，因此是后续优惠的上界
+            long left = target & ~used;
+            int n = Long.bitCount(left);
+            int[] candidates = new int[n];
+            int[] amounts = new int[n];
+            int[] discountAmounts = new int[n];
+            int bound = amount;
+            for (int k = 0, i = 0; k < n; i++) {
+                if ((left & (1L << i)) == 0) {
+                    continue;
+                }
+                int total = scopeAmount(i, remain);
+                if (!discounts[i].canUse(total, coupons[i])) {
+                    // 门槛只会越来越难满足，当前分支不可行
+                    return;
+                }
+                candidates[k] = i;
+                amounts[k] = total;
+                discountAmounts[k] = discounts[i].calculateDiscount(total, coupons[i]);
+                bound += discountAmounts[k];
+                k++;
+            }
+            if (bound <= bestAmount) {
+                return;
+            }
+            // 2.优先尝试当前优惠最大的优惠券，尽早得到较优解以便剪枝
+            Integer[] idx = new Integer[n];
+            for (int k = 0; k < n; k++) {
+                idx[k] = k;
+            }
+            Arrays.sort(idx, (a, b) -> Integer.compare(discountAmounts[b], discountAmounts[a]));
+            for (int k : idx) {
+                int i = candidates[k];
+                order[depth] = i;
+                dfs(used | (1L << i), depth + 1,
+                        allocate(i, remain, amounts[k], discountAmounts[k]), amount + discountAmounts[k]);
+            }
+        }
+    }
+
+    private static class State {
+        private final long used;
+        private final int[] remain;
+        private final int hash;
+
+        State(long used, int[] remain) {
+            this.used = used;
+            this.remain = remain;
+            this.hash = 31 * Long.hashCode(used) + Arrays.hashCode(remain);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof State)) {
+                return false;
+            }
+            State state = (State) o;
+            return used == state.used && Arrays.equals(remain, state.remain);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
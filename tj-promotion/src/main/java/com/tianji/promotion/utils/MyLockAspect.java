@@ -1,12 +1,13 @@
 package com.tianji.promotion.utils;
 
+import com.tianji.common.autoconfigure.redisson.aspect.LockNameResolver;
 import com.tianji.common.exceptions.BizIllegalException;
 import lombok.RequiredArgsConstructor;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
 import org.springframework.core.Ordered;
 
 @Aspect
@@ -14,10 +15,17 @@ import org.springframework.core.Ordered;
 public class MyLockAspect implements Ordered {
 
     private final MyLockFactory lockFactory;
+    /**
+     * 锁名称支持 #{} 引用方法参数，解析结果按方法缓存
+     */
+    private final LockNameResolver lockNameResolver = new LockNameResolver();
 
     @Around("@annotation(myLock)")
     public Object tryLock(ProceedingJoinPoint pjp, MyLock myLock) throws Throwable {
-        RLock lock = lockFactory.getLock(myLock.lockType(), myLock.name());
+        MethodSignature signature = (MethodSignature) pjp.getSignature();
+        String name = lockNameResolver.resolve(
+                myLock.name(), signature.getMethod(), pjp.getTarget().getClass(), pjp.getArgs());
+        RLock lock = lockFactory.getLock(myLock.lockType(), name);
         /*switch (myLock.lockType()){
             case RE_ENTRANT_LOCK:
                 lock = redissonClient.getLock(myLock.name());
@@ -37,7 +45,7 @@ public class MyLockAspect implements Ordered {
 
         boolean isLock = myLock.lockStrategy().tryLock(lock, myLock);
 
-        if (isLock){
+        if (!isLock){
 
             throw new BizIllegalException("请求太频繁！");
 
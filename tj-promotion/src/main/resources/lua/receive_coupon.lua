@@ -0,0 +1,22 @@
+-- 领取优惠券：校验发放时间、库存、每人限领数量，全部通过后扣减库存并记录领取数量
+-- KEYS[1] 优惠券缓存key，KEYS[2] 用户领券数量缓存key
+-- ARGV[1] 用户id，ARGV[2] 当前时间毫秒值
+-- 返回值：0-成功，1-优惠券不存在，2-不在发放时间，3-库存不足，4-超出限领数量
+if (redis.call('exists', KEYS[1]) == 0) then
+    return 1
+end
+local info = redis.call('hmget', KEYS[1], 'issueBeginTime', 'issueEndTime', 'totalNum', 'userLimit')
+local now = tonumber(ARGV[2])
+if (now < tonumber(info[1]) or now > tonumber(info[2])) then
+    return 2
+end
+if (tonumber(info[3]) <= 0) then
+    return 3
+end
+local count = tonumber(redis.call('hget', KEYS[2], ARGV[1]) or 0)
+if (count >= tonumber(info[4])) then
+    return 4
+end
+redis.call('hincrby', KEYS[2], ARGV[1], 1)
+redis.call('hincrby', KEYS[1], 'totalNum', -1)
+return 0
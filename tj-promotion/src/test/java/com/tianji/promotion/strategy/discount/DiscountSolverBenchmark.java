@@ -0,0 +1,67 @@
+package com.tianji.promotion.strategy.discount;
+
+import com.tianji.promotion.domain.dto.CouponDiscountDTO;
+import com.tianji.promotion.domain.dto.OrderCourseDTO;
+import com.tianji.promotion.domain.po.Coupon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分支定界求解与全排列求解的性能对比，直接运行main方法即可
+ * <p>
+ * 全排列在10张以上优惠券时单次计算耗时以秒计，可通过 -p couponNum=1,2,... 缩小范围
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class DiscountSolverBenchmark {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12"})
+    private int couponNum;
+
+    private List<OrderCourseDTO> courses;
+    private Map<Coupon, List<OrderCourseDTO>> couponMap;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(couponNum);
+        courses = DiscountSolverFixtures.randomCourses(random, 4);
+        couponMap = DiscountSolverFixtures.randomCoupons(random, courses, couponNum);
+    }
+
+    @Benchmark
+    public List<CouponDiscountDTO> branchAndBound() {
+        return DiscountSolver.solve(couponMap, courses);
+    }
+
+    @Benchmark
+    public List<CouponDiscountDTO> permutation() {
+        return PermuteDiscountEngine.solve(couponMap, courses);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DiscountSolverBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
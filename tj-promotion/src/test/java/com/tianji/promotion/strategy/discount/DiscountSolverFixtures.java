@@ -0,0 +1,56 @@
+package com.tianji.promotion.strategy.discount;
+
+import com.tianji.promotion.domain.dto.OrderCourseDTO;
+import com.tianji.promotion.domain.po.Coupon;
+import com.tianji.promotion.enums.DiscountType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 优惠方案计算的测试数据
+ */
+class DiscountSolverFixtures {
+
+    static List<OrderCourseDTO> randomCourses(Random random, int n) {
+        List<OrderCourseDTO> courses = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            courses.add(new OrderCourseDTO()
+                    .setId(i + 1L)
+                    .setCateId(i % 2 + 1L)
+                    .setPrice((random.nextInt(50) + 10) * 1000));
+        }
+        return courses;
+    }
+
+    static Map<Coupon, List<OrderCourseDTO>> randomCoupons(Random random, List<OrderCourseDTO> courses, int n) {
+        Map<Coupon, List<OrderCourseDTO>> couponMap = new LinkedHashMap<>(n);
+        DiscountType[] types = DiscountType.values();
+        for (int i = 0; i < n; i++) {
+            Coupon coupon = new Coupon();
+            coupon.setId(i + 1L);
+            DiscountType type = types[random.nextInt(types.length)];
+            coupon.setDiscountType(type);
+            coupon.setThresholdAmount((random.nextInt(40) + 1) * 1000);
+            coupon.setMaxDiscountAmount((random.nextInt(20) + 5) * 1000);
+            coupon.setDiscountValue(type == DiscountType.RATE_DISCOUNT
+                    ? random.nextInt(30) + 70 : (random.nextInt(10) + 1) * 500);
+            List<OrderCourseDTO> scope = courses;
+            if (random.nextBoolean()) {
+                long cateId = random.nextInt(2) + 1L;
+                List<OrderCourseDTO> specific = new ArrayList<>();
+                for (OrderCourseDTO c : courses) {
+                    if (c.getCateId() == cateId) {
+                        specific.add(c);
+                    }
+                }
+                scope = specific.isEmpty() ? courses : specific;
+            }
+            couponMap.put(coupon, scope);
+        }
+        return couponMap;
+    }
+}
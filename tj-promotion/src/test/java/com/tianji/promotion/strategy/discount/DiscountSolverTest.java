@@ -0,0 +1,113 @@
+package com.tianji.promotion.strategy.discount;
+
+import com.tianji.promotion.domain.dto.CouponDiscountDTO;
+import com.tianji.promotion.domain.dto.OrderCourseDTO;
+import com.tianji.promotion.domain.po.Coupon;
+import com.tianji.promotion.utils.PermuteUtil;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiscountSolverTest {
+
+    @Test
+    void testSolveMatchesBruteForce() {
+        Random random = new Random(20231018L);
+        for (int round = 0; round < 50; round++) {
+            List<OrderCourseDTO> courses = DiscountSolverFixtures.randomCourses(random, 3);
+            Map<Coupon, List<OrderCourseDTO>> couponMap = DiscountSolverFixtures.randomCoupons(random, courses, 5);
+
+            Map<String, Integer> expected = bruteForce(couponMap, courses);
+            Map<String, Integer> actual = DiscountSolver.solve(couponMap, courses).stream()
+                    .collect(Collectors.toMap(this::key, CouponDiscountDTO::getDiscountAmount));
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void testBestSolutionNotWorseThanPermutation() {
+        Random random = new Random(42L);
+        for (int round = 0; round < 50; round++) {
+            List<OrderCourseDTO> courses = DiscountSolverFixtures.randomCourses(random, 3);
+            Map<Coupon, List<OrderCourseDTO>> couponMap = DiscountSolverFixtures.randomCoupons(random, courses, 5);
+
+            int permuteBest = PermuteDiscountEngine.solve(couponMap, courses).stream()
+                    .mapToInt(CouponDiscountDTO::getDiscountAmount).max().orElse(0);
+            int solverBest = DiscountSolver.solve(couponMap, courses).stream()
+                    .mapToInt(CouponDiscountDTO::getDiscountAmount).max().orElse(0);
+            assertEquals(permuteBest, solverBest);
+        }
+    }
+
+    @Test
+    void testManyCouponsCappedInsteadOfRejected() {
+        Random random = new Random(7L);
+        List<OrderCourseDTO> courses = DiscountSolverFixtures.randomCourses(random, 3);
+        Map<Coupon, List<OrderCourseDTO>> couponMap = DiscountSolverFixtures.randomCoupons(random, courses, 80);
+
+        List<CouponDiscountDTO> solutions = DiscountSolver.solve(couponMap, courses);
+
+        assertFalse(solutions.isEmpty());
+        assertTrue(solutions.stream().allMatch(dto -> dto.getIds().size() <= DiscountSolver.MAX_COUPONS));
+    }
+
+    @Test
+    void testExhaustedBudgetReturnsSolutionsFoundSoFar() {
+        Random random = new Random(11L);
+        List<OrderCourseDTO> courses = DiscountSolverFixtures.randomCourses(random, 3);
+        Map<Coupon, List<OrderCourseDTO>> couponMap = DiscountSolverFixtures.randomCoupons(random, courses, 12);
+        Map<String, Integer> full = DiscountSolver.solve(couponMap, courses).stream()
+                .collect(Collectors.toMap(this::key, CouponDiscountDTO::getDiscountAmount));
+        int bestSingle = DiscountSolver.solve(couponMap, courses).stream()
+                .filter(dto -> dto.getIds().size() == 1)
+                .mapToInt(CouponDiscountDTO::getDiscountAmount).max().orElse(0);
+
+        List<CouponDiscountDTO> solutions = DiscountSolver.solve(
+                couponMap, courses, DiscountSolver.MAX_COUPONS, 1, Duration.ofSeconds(2));
+
+        assertFalse(solutions.isEmpty());
+        assertTrue(solutions.size() < full.size());
+        for (CouponDiscountDTO dto : solutions) {
+            assertTrue(full.get(key(dto)) >= dto.getDiscountAmount());
+        }
+        assertTrue(solutions.stream().mapToInt(CouponDiscountDTO::getDiscountAmount).max().orElse(0) >= bestSingle);
+    }
+
+    /**
+     * 枚举每个优惠券组合的全部叠加顺序，组合内优惠券须全部可用
+     */
+    private Map<String, Integer> bruteForce(Map<Coupon, List<OrderCourseDTO>> couponMap, List<OrderCourseDTO> courses) {
+        List<Coupon> coupons = new ArrayList<>(couponMap.keySet());
+        Map<String, Integer> result = new HashMap<>();
+        for (int mask = 1; mask < (1 << coupons.size()); mask++) {
+            List<Coupon> subset = new ArrayList<>();
+            for (int i = 0; i < coupons.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    subset.add(coupons.get(i));
+                }
+            }
+            for (List<Coupon> order : PermuteUtil.permute(subset)) {
+                CouponDiscountDTO dto = PermuteDiscountEngine.calculate(couponMap, courses, order);
+                if (dto.getIds().size() != order.size()) {
+                    continue;
+                }
+                result.merge(key(dto), dto.getDiscountAmount(), Math::max);
+            }
+        }
+        return result;
+    }
+
+    private String key(CouponDiscountDTO dto) {
+        return dto.getIds().stream().sorted().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
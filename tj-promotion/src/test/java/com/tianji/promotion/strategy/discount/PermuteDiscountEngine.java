@@ -0,0 +1,63 @@
+package com.tianji.promotion.strategy.discount;
+
+import com.tianji.promotion.domain.dto.CouponDiscountDTO;
+import com.tianji.promotion.domain.dto.OrderCourseDTO;
+import com.tianji.promotion.domain.po.Coupon;
+import com.tianji.promotion.utils.PermuteUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 原全排列方案计算逻辑，作为 {@link DiscountSolver} 的对照实现
+ */
+class PermuteDiscountEngine {
+
+    static List<CouponDiscountDTO> solve(Map<Coupon, List<OrderCourseDTO>> couponMap, List<OrderCourseDTO> courses) {
+        List<Coupon> availableCoupons = new ArrayList<>(couponMap.keySet());
+        List<List<Coupon>> solutions = PermuteUtil.permute(availableCoupons);
+        for (Coupon c : availableCoupons) {
+            solutions.add(List.of(c));
+        }
+        List<CouponDiscountDTO> list = new ArrayList<>(solutions.size());
+        for (List<Coupon> solution : solutions) {
+            list.add(calculate(couponMap, courses, solution));
+        }
+        return list;
+    }
+
+    static CouponDiscountDTO calculate(
+            Map<Coupon, List<OrderCourseDTO>> couponMap, List<OrderCourseDTO> courses, List<Coupon> solution) {
+        CouponDiscountDTO dto = new CouponDiscountDTO();
+        Map<Long, Integer> detailMap = courses.stream().collect(Collectors.toMap(OrderCourseDTO::getId, oc -> 0));
+        for (Coupon coupon : solution) {
+            List<OrderCourseDTO> availableCourses = couponMap.get(coupon);
+            int totalAmount = availableCourses.stream()
+                    .mapToInt(oc -> oc.getPrice() - detailMap.get(oc.getId())).sum();
+            Discount discount = DiscountStrategy.getDiscount(coupon.getDiscountType());
+            if (!discount.canUse(totalAmount, coupon)) {
+                continue;
+            }
+            int discountAmount = discount.calculateDiscount(totalAmount, coupon);
+            int time = 0;
+            int remainDiscount = discountAmount;
+            for (OrderCourseDTO course : availableCourses) {
+                time++;
+                int d;
+                if (time == availableCourses.size()) {
+                    d = remainDiscount;
+                } else {
+                    d = (int) ((long) discountAmount * course.getPrice() / totalAmount);
+                    remainDiscount -= d;
+                }
+                detailMap.put(course.getId(), d + detailMap.get(course.getId()));
+            }
+            dto.getIds().add(coupon.getId());
+            dto.getRules().add(discount.getRule(coupon));
+            dto.setDiscountAmount(discountAmount + dto.getDiscountAmount());
+        }
+        return dto;
+    }
+}
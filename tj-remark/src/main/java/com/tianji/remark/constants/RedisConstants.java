@@ -3,4 +3,12 @@ package com.tianji.remark.constants;
 public interface RedisConstants {
     String LIKE_BIZ_KEY_PREFIX = "likes:set:biz:";
     String LIKES_TIMES_KEY_PREFIX ="likes:times:type:";
+    /**
+     * 点赞数缓存分片，zset结构：key为 LIKES_TIMES_KEY_PREFIX + 业务类型:分片序号，member为业务id，score为点赞总数
+     */
+    String LIKES_TIMES_SHARD_KEY_TEMPLATE = LIKES_TIMES_KEY_PREFIX + "{}:{}";
+    /**
+     * 每种业务类型的点赞数缓存分片数量，同一业务id固定落在同一分片
+     */
+    int LIKES_TIMES_SHARD_COUNT = 8;
 }
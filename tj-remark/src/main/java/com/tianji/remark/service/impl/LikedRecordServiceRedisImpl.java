@@ -13,7 +13,6 @@ import com.tianji.remark.domain.po.LikedRecord;
 import com.tianji.remark.mapper.LikedRecordMapper;
 import com.tianji.remark.service.ILikedRecordService;
 import lombok.RequiredArgsConstructor;
-import org.aspectj.weaver.ast.Var;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.StringRedisConnection;
@@ -23,8 +22,9 @@ import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -46,6 +46,11 @@ public class LikedRecordServiceRedisImpl extends ServiceImpl<LikedRecordMapper,
     private final RabbitMqHelper mqHelper;
     private final StringRedisTemplate redisTemplate;
 
+    /**
+     * 每次处理最多读取的轮数，避免一直有新数据写入时长时间占用定时任务
+     */
+    private static final int MAX_DRAIN_ROUNDS = 10;
+
     @Override
     public void addLikeRecord(LikeRecordFormDTO recordDTO) {
         //基于前端参数是点赞或者取消
@@ -60,58 +65,104 @@ public class LikedRecordServiceRedisImpl extends ServiceImpl<LikedRecordMapper,
         if (likedTimes == null) {
             return;
         }
-        //缓存点赞数到redis
-        redisTemplate.opsForZSet().add( RedisConstants.LIKES_TIMES_KEY_PREFIX + recordDTO.getBizType(),
+        //缓存点赞数到redis，按业务id分片，同一业务id只保留最新的点赞总数
+        redisTemplate.opsForZSet().add(likedTimesShardKey(recordDTO.getBizType(), recordDTO.getBizId()),
                 recordDTO.getBizId().toString(),
                 likedTimes);
     }
 
     @Override
     public Set<Long> isBizLiked(List<Long> bizIds) {
-        Long userId = UserContext.getUser();
-        //查询点赞状态
-        for (Long bizId : bizIds) {
-            String key = RedisConstants.LIKE_BIZ_KEY_PREFIX + bizId;
-            redisTemplate.opsForSet().isMember(key, userId.toString());
+        if (CollUtils.isEmpty(bizIds)) {
+            return CollUtils.emptySet();
         }
+        String userId = UserContext.getUser().toString();
+        //在一次管道中查询所有业务的点赞状态
         List<Object> objects = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
             StringRedisConnection src = (StringRedisConnection) connection;
             for (Long bizId : bizIds) {
-                String key = RedisConstants.LIKE_BIZ_KEY_PREFIX + bizId;
-                src.sIsMember(key, userId.toString());
+                src.sIsMember(RedisConstants.LIKE_BIZ_KEY_PREFIX + bizId, userId);
             }
             return null;
         });
         //返回結果
         return IntStream.range(0, objects.size())
-                .filter(i -> (boolean) objects.get(i))
+                .filter(i -> Boolean.TRUE.equals(objects.get(i)))
                 .mapToObj(bizIds::get)
                 .collect(Collectors.toSet());
     }
 
     @Override
     public void readLikeTimesAndSendMessage(String bizType, int maxBizSize) {
-        //读取并移除
-        String key = RedisConstants.LIKE_BIZ_KEY_PREFIX + bizType;
-        Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet().popMin(key, maxBizSize);
-        if (CollUtils.isNotEmpty(tuples)) {
+        List<String> keys = likedTimesKeys(bizType);
+        String legacyKey = keys.get(0);
+        // 1.多轮读取，每轮在一次管道中从各个分片各取出maxBizSize条，直到分片被取空或达到轮数上限
+        Map<Long, Integer> likedTimesMap = new LinkedHashMap<>();
+        for (int round = 0; round < MAX_DRAIN_ROUNDS; round++) {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection src = (StringRedisConnection) connection;
+                for (String key : keys) {
+                    src.zPopMin(key, maxBizSize);
+                }
+                return null;
+            });
+            boolean drained = true;
+            for (int i = 0; i < results.size(); i++) {
+                @SuppressWarnings("unchecked")
+                Set<ZSetOperations.TypedTuple<String>> tuples = (Set<ZSetOperations.TypedTuple<String>>) results.get(i);
+                if (CollUtils.isEmpty(tuples)) {
+                    continue;
+                }
+                if (tuples.size() >= maxBizSize) {
+                    drained = false;
+                }
+                // 2.合并结果，分片中的点赞数更新；旧key不再写入，其中的点赞数一定更旧，不能覆盖分片中的
+                boolean legacy = legacyKey.equals(keys.get(i));
+                for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                    String bizId = tuple.getValue();
+                    Double likedTimes = tuple.getScore();
+                    if (bizId == null || likedTimes == null) {
+                        continue;
+                    }
+                    if (legacy) {
+                        likedTimesMap.putIfAbsent(Long.valueOf(bizId), likedTimes.intValue());
+                    } else {
+                        likedTimesMap.put(Long.valueOf(bizId), likedTimes.intValue());
+                    }
+                }
+            }
+            if (drained) {
+                break;
+            }
+        }
+        if (likedTimesMap.isEmpty()) {
             return;
         }
-        //数据转换
-        List<LikeTimesDTO> list = new ArrayList<>(tuples.size());
-        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
-            String bizId = tuple.getValue();
-            Double likedTimes = tuple.getScore();
-            if (bizId == null || likedTimes == null){
-                continue;
-            }
-            list.add(LikeTimesDTO.of(Long.valueOf(bizId), likedTimes.intValue()));
+        // 3.本次取出的数据按maxBizSize分成多条消息发送，避免单条消息过大
+        List<LikeTimesDTO> list = new ArrayList<>(likedTimesMap.size());
+        likedTimesMap.forEach((bizId, likedTimes) -> list.add(LikeTimesDTO.of(bizId, likedTimes)));
+        String routingKey = StringUtils.format(LIKED_TIMES_KEY_TEMPLATE, bizType);
+        for (int i = 0; i < list.size(); i += maxBizSize) {
+            mqHelper.send(LIKE_RECORD_EXCHANGE, routingKey,
+                    new ArrayList<>(list.subList(i, Math.min(i + maxBizSize, list.size()))));
         }
-        mqHelper.send(
-                LIKE_RECORD_EXCHANGE,
-                StringUtils.format(LIKED_TIMES_KEY_TEMPLATE, bizType),
-                list);
+    }
 
+    private String likedTimesShardKey(String bizType, Long bizId) {
+        int shard = (int) Math.floorMod(bizId, (long) RedisConstants.LIKES_TIMES_SHARD_COUNT);
+        return StringUtils.format(RedisConstants.LIKES_TIMES_SHARD_KEY_TEMPLATE, bizType, shard);
+    }
+
+    /**
+     * 业务类型的所有分片key，第一个是分片前的旧key，保证升级前未处理的数据也能被取出
+     */
+    private List<String> likedTimesKeys(String bizType) {
+        List<String> keys = new ArrayList<>(RedisConstants.LIKES_TIMES_SHARD_COUNT + 1);
+        keys.add(RedisConstants.LIKES_TIMES_KEY_PREFIX + bizType);
+        for (int i = 0; i < RedisConstants.LIKES_TIMES_SHARD_COUNT; i++) {
+            keys.add(StringUtils.format(RedisConstants.LIKES_TIMES_SHARD_KEY_TEMPLATE, bizType, i));
+        }
+        return keys;
     }
 
     private boolean unlike(LikeRecordFormDTO recordDTO) {
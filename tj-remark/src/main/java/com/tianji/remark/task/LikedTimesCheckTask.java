@@ -12,11 +12,14 @@ import java.util.List;
 public class LikedTimesCheckTask {
 
     private static final List<String> BIZ_TYPES = List.of("QA","NOTE");
-    private static final int MAX_BIZ_SIZE = 30;
+    /**
+     * 每个分片每轮读取的数量
+     */
+    private static final int MAX_BIZ_SIZE = 200;
 
     private final ILikedRecordService recordService;
 
-    @Scheduled(fixedDelay = 2000)
+    @Scheduled(fixedDelay = 1000)
     public void checkLikedTimes(){
         for (String bizType : BIZ_TYPES) {
             recordService.readLikeTimesAndSendMessage(bizType, MAX_BIZ_SIZE);
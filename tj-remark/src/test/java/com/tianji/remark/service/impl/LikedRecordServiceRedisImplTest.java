@@ -0,0 +1,163 @@
+package com.tianji.remark.service.impl;
+
+import com.tianji.api.dto.remark.LikeTimesDTO;
+import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
+import com.tianji.common.utils.UserContext;
+import com.tianji.remark.constants.RedisConstants;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.tianji.common.constants.MqConstants.Exchange.LIKE_RECORD_EXCHANGE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LikedRecordServiceRedisImplTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private RabbitMqHelper mqHelper;
+    private LikedRecordServiceRedisImpl likedRecordService;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        mqHelper = mock(RabbitMqHelper.class);
+        likedRecordService = new LikedRecordServiceRedisImpl(mqHelper, redisTemplate);
+        UserContext.setUser(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContext.removeUser();
+        redisTemplate.execute(connection -> {
+            connection.flushDb();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void testIsBizLiked() {
+        redisTemplate.opsForSet().add(RedisConstants.LIKE_BIZ_KEY_PREFIX + 10, "1", "2");
+        redisTemplate.opsForSet().add(RedisConstants.LIKE_BIZ_KEY_PREFIX + 11, "2");
+        redisTemplate.opsForSet().add(RedisConstants.LIKE_BIZ_KEY_PREFIX + 12, "1");
+
+        Set<Long> liked = likedRecordService.isBizLiked(List.of(10L, 11L, 12L, 13L));
+
+        assertEquals(Set.of(10L, 12L), liked);
+    }
+
+    @Test
+    void testIsBizLikedWithEmptyInput() {
+        assertTrue(likedRecordService.isBizLiked(List.of()).isEmpty());
+        assertTrue(likedRecordService.isBizLiked(null).isEmpty());
+    }
+
+    /**
+     * 嵌入式redis版本较低，不支持ZPOPMIN，读取点赞数的测试模拟管道的返回结果，
+     * 每轮结果依次对应旧key和各个分片
+     */
+    @Test
+    void testReadLikeTimesPrefersShardOverLegacyKey() {
+        // 旧key中是升级前的点赞数，分片中是之后的最新点赞数，无论哪一轮取出，都以分片中的为准
+        List<Object> round1 = emptyRound();
+        round1.set(1, tuples(Map.of("8", 5.0)));
+        round1.set(2, tuples(Map.of("1", 1.0, "9", 1.0)));
+        List<Object> round2 = emptyRound();
+        round2.set(0, tuples(Map.of("8", 3.0, "9", 4.0)));
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        when(template.executePipelined(any(RedisCallback.class))).thenReturn(round1, round2, emptyRound());
+
+        new LikedRecordServiceRedisImpl(mqHelper, template).readLikeTimesAndSendMessage("QA", 2);
+
+        Map<Long, Integer> likedTimes = captureSent(2).stream().flatMap(List::stream)
+                .collect(Collectors.toMap(LikeTimesDTO::getBizId, LikeTimesDTO::getLikeTimes));
+        assertEquals(Map.of(1L, 1, 8L, 5, 9L, 1), likedTimes);
+    }
+
+    @Test
+    void testReadLikeTimesSplitsMessages() {
+        List<Object> round = emptyRound();
+        for (int shard = 0; shard < RedisConstants.LIKES_TIMES_SHARD_COUNT; shard++) {
+            Map<String, Double> values = new HashMap<>();
+            for (int i = 0; i < 4; i++) {
+                long bizId = shard + (long) i * RedisConstants.LIKES_TIMES_SHARD_COUNT;
+                values.put(String.valueOf(bizId), (double) bizId);
+            }
+            round.set(shard + 1, tuples(values));
+        }
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        when(template.executePipelined(any(RedisCallback.class))).thenReturn(round);
+
+        new LikedRecordServiceRedisImpl(mqHelper, template).readLikeTimesAndSendMessage("QA", 10);
+
+        List<List<LikeTimesDTO>> messages = captureSent(4);
+        assertTrue(messages.stream().allMatch(m -> m.size() <= 10));
+        assertEquals(32, messages.stream().mapToInt(List::size).sum());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<LikeTimesDTO>> captureSent(int times) {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(mqHelper, times(times)).send(eq(LIKE_RECORD_EXCHANGE), anyString(), captor.capture());
+        return captor.getAllValues().stream().map(o -> (List<LikeTimesDTO>) o).collect(Collectors.toList());
+    }
+
+    private static List<Object> emptyRound() {
+        List<Object> round = new ArrayList<>();
+        for (int i = 0; i <= RedisConstants.LIKES_TIMES_SHARD_COUNT; i++) {
+            round.add(Collections.emptySet());
+        }
+        return round;
+    }
+
+    private static Set<ZSetOperations.TypedTuple<String>> tuples(Map<String, Double> values) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = new LinkedHashSet<>();
+        values.forEach((value, score) -> tuples.add(new DefaultTypedTuple<>(value, score)));
+        return tuples;
+    }
+}
@@ -1,5 +1,6 @@
 package com.tianji.search;
 
+import com.tianji.api.annotations.EnableUserCache;
 import lombok.extern.slf4j.Slf4j;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
@@ -14,6 +15,7 @@ import java.net.UnknownHostException;
 @MapperScan("com.tianji.search.mapper")
 @SpringBootApplication
 @EnableScheduling
+@EnableUserCache
 @Slf4j
 public class SearchApplication {
 
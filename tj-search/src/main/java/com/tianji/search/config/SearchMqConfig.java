@@ -0,0 +1,28 @@
+package com.tianji.search.config;
+
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SearchMqConfig {
+
+    /**
+     * 批量消费课程索引变更消息的监听容器，攒够一批或等待超时后一次性交给监听器处理，
+     * 监听器写入索引库后整批确认
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory courseIndexContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory){
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(500);
+        factory.setPrefetchCount(500);
+        factory.setReceiveTimeout(1000L);
+        return factory;
+    }
+}
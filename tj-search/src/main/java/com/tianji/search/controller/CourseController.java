@@ -39,18 +39,14 @@ public class CourseController {
     @PostMapping("/up")
     public void handleCoursesUp(
             @ApiParam("课程id集合") @RequestParam("courseIds") List<Long> courseIds) {
-        for (Long courseId : courseIds) {
-            courseService.handleCourseUp(courseId);
-        }
+        courseService.handleCourseUp(courseIds);
     }
 
     @ApiOperation("处理指定课程下架失败的问题")
     @PostMapping("/down")
     public void handleCoursesDown(
             @ApiParam("课程id集合") @RequestParam("courseIds") List<Long> courseIds) {
-        for (Long courseId : courseIds) {
-            courseService.handleCourseDeletes(courseIds);
-        }
+        courseService.handleCourseDeletes(courseIds);
     }
 }
 /**/
\ No newline at end of file
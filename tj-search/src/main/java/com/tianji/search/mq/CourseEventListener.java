@@ -10,6 +10,8 @@ import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 import static com.tianji.common.constants.MqConstants.Exchange.COURSE_EXCHANGE;
 import static com.tianji.common.constants.MqConstants.Key.*;
 
@@ -24,28 +26,28 @@ public class CourseEventListener {
             value = @Queue(name = "search.course.up.queue", durable = "true"),
             exchange = @Exchange(name = COURSE_EXCHANGE, type = ExchangeTypes.TOPIC),
             key = COURSE_UP_KEY
-    ))
-    public void listenCourseUp(Long courseId){
-        log.debug("监听到课程{}上架", courseId);
-        courseService.handleCourseUp(courseId);
+    ), containerFactory = "courseIndexContainerFactory")
+    public void listenCourseUp(List<Long> courseIds){
+        log.debug("监听到课程{}上架", courseIds);
+        courseService.handleCourseUp(courseIds);
     }
 
     @RabbitListener(bindings = @QueueBinding(
             value = @Queue(name = "search.course.down.queue", durable = "true"),
             exchange = @Exchange(name = COURSE_EXCHANGE, type = ExchangeTypes.TOPIC),
             key = COURSE_DOWN_KEY
-    ))
-    public void listenCourseDown(Long courseId){
-        log.debug("监听到课程{}下架", courseId);
-        courseService.handleCourseDelete(courseId);
+    ), containerFactory = "courseIndexContainerFactory")
+    public void listenCourseDown(List<Long> courseIds){
+        log.debug("监听到课程{}下架", courseIds);
+        courseService.handleCourseDelete(courseIds);
     }
 
     @RabbitListener(bindings = @QueueBinding(
             value = @Queue(name = "search.course.expire.queue", durable = "true"),
             exchange = @Exchange(name = COURSE_EXCHANGE, type = ExchangeTypes.TOPIC),
             key = COURSE_EXPIRE_KEY
-    ))
-    public void listenCourseExpire(Long courseId){
-        courseService.handleCourseDelete(courseId);
+    ), containerFactory = "courseIndexContainerFactory")
+    public void listenCourseExpire(List<Long> courseIds){
+        courseService.handleCourseDelete(courseIds);
     }
 }
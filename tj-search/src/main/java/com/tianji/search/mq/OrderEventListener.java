@@ -12,6 +12,10 @@ import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import static com.tianji.common.constants.MqConstants.Exchange.ORDER_EXCHANGE;
 import static com.tianji.common.constants.MqConstants.Key.ORDER_PAY_KEY;
 import static com.tianji.common.constants.MqConstants.Key.ORDER_REFUND_KEY;
@@ -27,27 +31,36 @@ public class OrderEventListener {
             value = @Queue(name = "search.order.pay.queue", durable = "true"),
             exchange = @Exchange(name = ORDER_EXCHANGE, type = ExchangeTypes.TOPIC),
             key = ORDER_PAY_KEY
-    ))
-    public void listenOrderPay(OrderBasicDTO order) {
-        if (order == null || order.getUserId() == null || CollUtils.isEmpty(order.getCourseIds())) {
-            log.debug("订单支付，异常消息，信息未空");
-            return;
-        }
-        log.debug("处理订单支付消息：{}", order);
-        courseService.updateCourseSold(order.getCourseIds(), 1);
+    ), containerFactory = "courseIndexContainerFactory")
+    public void listenOrderPay(List<OrderBasicDTO> orders) {
+        log.debug("处理订单支付消息：{}条", orders.size());
+        courseService.updateCourseSold(sumSoldDeltas(orders, 1, "订单支付"));
     }
 
     @RabbitListener(bindings = @QueueBinding(
             value = @Queue(name = "search.order.refund.queue", durable = "true"),
             exchange = @Exchange(name = ORDER_EXCHANGE, type = ExchangeTypes.TOPIC),
             key = ORDER_REFUND_KEY
-    ))
-    public void listenOrderRefund(OrderBasicDTO order) {
-        if (order == null || order.getUserId() == null || CollUtils.isEmpty(order.getCourseIds())) {
-            log.debug("订单退款，异常消息，信息未空");
-            return;
+    ), containerFactory = "courseIndexContainerFactory")
+    public void listenOrderRefund(List<OrderBasicDTO> orders) {
+        log.debug("处理订单退款消息：{}条", orders.size());
+        courseService.updateCourseSold(sumSoldDeltas(orders, -1, "订单退款"));
+    }
+
+    /**
+     * 一批订单消息中的销量变化按课程累加
+     */
+    private Map<Long, Integer> sumSoldDeltas(List<OrderBasicDTO> orders, int amount, String event) {
+        Map<Long, Integer> soldDeltas = new HashMap<>();
+        for (OrderBasicDTO order : orders) {
+            if (order == null || order.getUserId() == null || CollUtils.isEmpty(order.getCourseIds())) {
+                log.debug("{}，异常消息，信息未空", event);
+                continue;
+            }
+            for (Long courseId : order.getCourseIds()) {
+                soldDeltas.merge(courseId, amount, Integer::sum);
+            }
         }
-        log.debug("处理订单退款消息：{}", order);
-        courseService.updateCourseSold(order.getCourseIds(), -1);
+        return soldDeltas;
     }
 }
@@ -2,8 +2,11 @@ package com.tianji.search.repository;
 
 import com.tianji.search.domain.po.Course;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface CourseRepository{
     String INDEX_NAME = "course";
@@ -47,4 +50,14 @@ public interface CourseRepository{
     void saveAll(List<Course> list);
 
     void deleteByIds(List<Long> courseIds);
+
+    /**
+     * 通过一次bulk请求批量写入课程索引
+     *
+     * @param saves      要新增或覆盖的课程
+     * @param deletes    要删除的课程id
+     * @param soldDeltas 课程id及销量的变化量
+     * @return 写入失败、可以重试的课程id，更新销量时课程不存在的不重试
+     */
+    Set<Long> bulkWrite(Collection<Course> saves, Collection<Long> deletes, Map<Long, Integer> soldDeltas);
 }
@@ -23,10 +23,14 @@ import org.elasticsearch.script.ScriptType;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static com.tianji.search.constants.SearchErrorInfo.*;
 
@@ -153,6 +157,52 @@ public class CourseRepositoryImpl implements CourseRepository {
         }
     }
 
+    @Override
+    public Set<Long> bulkWrite(Collection<Course> saves, Collection<Long> deletes, Map<Long, Integer> soldDeltas) {
+        // 1.创建BulkRequest
+        BulkRequest request = new BulkRequest(INDEX_NAME);
+        // 2.添加参数
+        for (Course course : saves) {
+            request.add(new IndexRequest(INDEX_NAME)
+                    .id(course.getId().toString())
+                    .source(JsonUtils.toJsonStr(course), XContentType.JSON));
+        }
+        for (Long courseId : deletes) {
+            request.add(new DeleteRequest(INDEX_NAME, courseId.toString()));
+        }
+        for (Map.Entry<Long, Integer> entry : soldDeltas.entrySet()) {
+            Map<String, Object> params = new HashMap<>();
+            params.put(INCREMENT_SOLD_SCRIPT_PARAM, entry.getValue());
+            request.add(new UpdateRequest(INDEX_NAME, entry.getKey().toString())
+                    .script(new Script(ScriptType.STORED, null, INCREMENT_SOLD_SCRIPT_ID, params)));
+        }
+        if (request.numberOfActions() == 0) {
+            return Collections.emptySet();
+        }
+        // 3.批处理
+        try {
+            BulkResponse bulkResponse = restHighLevelClient.bulk(request, RequestOptions.DEFAULT);
+            if (!bulkResponse.hasFailures()) {
+                return Collections.emptySet();
+            }
+            // 4.收集失败的操作
+            Set<Long> failedIds = new HashSet<>();
+            for (BulkItemResponse itemResponse : bulkResponse.getItems()) {
+                if (!itemResponse.isFailed()) {
+                    continue;
+                }
+                log.error("批处理失败，id:{}, 操作:{}, 原因:{}",
+                        itemResponse.getId(), itemResponse.getOpType(), itemResponse.getFailureMessage());
+                if (itemResponse.status() != RestStatus.NOT_FOUND) {
+                    failedIds.add(Long.valueOf(itemResponse.getId()));
+                }
+            }
+            return failedIds;
+        } catch (IOException e) {
+            throw new CommonException(SAVE_COURSE_ERROR, e);
+        }
+    }
+
     @Override
     public void deleteByIds(List<Long> courseIds) {
         // 1.创建BulkRequest
@@ -1,14 +1,15 @@
 package com.tianji.search.service;
 
 import java.util.List;
+import java.util.Map;
 
 public interface ICourseService {
 
-    void handleCourseDelete(Long courseId);
+    void handleCourseDelete(List<Long> courseIds);
 
-    void handleCourseUp(Long courseId);
+    void handleCourseUp(List<Long> courseIds);
 
-    void updateCourseSold(List<Long> courseId, int amount);
+    void updateCourseSold(Map<Long, Integer> soldDeltas);
 
     void handleCourseDeletes(List<Long> courseIds);
 }
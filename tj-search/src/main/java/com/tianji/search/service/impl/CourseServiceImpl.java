@@ -6,10 +6,14 @@ import com.tianji.common.utils.BeanUtils;
 import com.tianji.search.domain.po.Course;
 import com.tianji.search.repository.CourseRepository;
 import com.tianji.search.service.ICourseService;
+import com.tianji.search.utils.CourseIndexBulkProcessor;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CourseServiceImpl implements ICourseService {
@@ -18,31 +22,41 @@ public class CourseServiceImpl implements ICourseService {
     private CourseRepository courseRepository;
     @Resource
     private CourseClient courseClient;
+    @Resource
+    private CourseIndexBulkProcessor bulkProcessor;
 
     @Override
-    public void handleCourseDelete(Long courseId) {
-        // 1.直接删除
-        courseRepository.deleteById(courseId);
+    public void handleCourseDelete(List<Long> courseIds) {
+        // 批量删除，value为null代表删除
+        Map<Long, Course> docs = new HashMap<>(courseIds.size());
+        for (Long courseId : courseIds) {
+            docs.put(courseId, null);
+        }
+        bulkProcessor.writeDocs(docs);
     }
 
     @Override
-    public void handleCourseUp(Long courseId) {
-        // 1.根据id查询课程信息
-        CourseSearchDTO courseSearchDTO = courseClient.getSearchInfo(courseId);
-        if (courseSearchDTO == null) {
-            return;
+    public void handleCourseUp(List<Long> courseIds) {
+        Map<Long, Course> docs = new HashMap<>(courseIds.size());
+        for (Long courseId : new LinkedHashSet<>(courseIds)) {
+            // 1.根据id查询课程信息
+            CourseSearchDTO courseSearchDTO = courseClient.getSearchInfo(courseId);
+            if (courseSearchDTO == null) {
+                continue;
+            }
+            // 2.数据转换
+            Course course = BeanUtils.toBean(courseSearchDTO, Course.class);
+            course.setType(courseSearchDTO.getCourseType());
+            docs.put(courseId, course);
         }
-        // 2.数据转换
-        Course course = BeanUtils.toBean(courseSearchDTO, Course.class);
-        course.setType(courseSearchDTO.getCourseType());
-        // 3.写入索引库
-        courseRepository.save(course);
-
+        // 3.批量写入索引库
+        bulkProcessor.writeDocs(docs);
     }
 
     @Override
-    public void updateCourseSold(List<Long> courseIds, int amount) {
-        courseRepository.incrementSold(courseIds, amount);
+    public void updateCourseSold(Map<Long, Integer> soldDeltas) {
+        // 销量变化按课程累加后批量更新
+        bulkProcessor.incrementSold(soldDeltas);
     }
 
     @Override
@@ -0,0 +1,98 @@
+package com.tianji.search.utils;
+
+import com.tianji.common.exceptions.CommonException;
+import com.tianji.search.domain.po.Course;
+import com.tianji.search.repository.CourseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 课程索引的批量写入处理器
+ * <p>
+ * 课程上下架、过期以及销量变化的消息由监听器批量消费，一批消息中的操作按课程id合并：
+ * <ul>
+ *     <li>同一课程的新增、删除只保留最后一次操作</li>
+ *     <li>同一课程的销量变化累加后只更新一次</li>
+ * </ul>
+ * 合并后通过一次bulk请求写入索引库，写入完成后监听器才返回，消息在写入成功后才确认。
+ * 部分失败的操作在本地重试，仍然失败时：
+ * <ul>
+ *     <li>新增、删除抛出异常，整批消息重新投递，重复写入不影响结果</li>
+ *     <li>销量变化不能重复累加，只记录日志，避免重新投递时已成功的课程被重复累加</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CourseIndexBulkProcessor {
+
+    private static final int MAX_RETRIES = 3;
+    private static final long RETRY_INTERVAL_MILLIS = 200;
+
+    private final CourseRepository courseRepository;
+
+    /**
+     * 批量写入课程
+     *
+     * @param docs 课程id -> 要写入的课程，value为null代表删除
+     */
+    public void writeDocs(Map<Long, Course> docs) {
+        Map<Long, Course> pending = new HashMap<>(docs);
+        for (int i = 0; !pending.isEmpty(); i++) {
+            if (i > MAX_RETRIES) {
+                throw new CommonException("批量写入课程索引失败，课程id：" + pending.keySet());
+            }
+            pending = retain(pending, write(pending, Collections.emptyMap(), i));
+        }
+    }
+
+    /**
+     * 批量更新课程销量
+     *
+     * @param soldDeltas 课程id -> 销量的变化量
+     */
+    public void incrementSold(Map<Long, Integer> soldDeltas) {
+        Map<Long, Integer> pending = new HashMap<>(soldDeltas);
+        pending.values().removeIf(delta -> delta == 0);
+        for (int i = 0; !pending.isEmpty(); i++) {
+            if (i > MAX_RETRIES) {
+                log.error("批量更新课程销量失败，放弃更新，课程id及变化量：{}", pending);
+                return;
+            }
+            pending = retain(pending, write(Collections.emptyMap(), pending, i));
+        }
+    }
+
+    private Set<Long> write(Map<Long, Course> docs, Map<Long, Integer> soldDeltas, int retries) {
+        if (retries > 0) {
+            // 重试前等待，间隔逐次增加
+            try {
+                Thread.sleep(RETRY_INTERVAL_MILLIS * retries);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CommonException("批量写入课程索引被中断", e);
+            }
+        }
+        List<Course> saves = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        for (Map.Entry<Long, Course> entry : docs.entrySet()) {
+            if (entry.getValue() == null) {
+                deletes.add(entry.getKey());
+            } else {
+                saves.add(entry.getValue());
+            }
+        }
+        Set<Long> failedIds = courseRepository.bulkWrite(saves, deletes, soldDeltas);
+        log.debug("批量写入课程索引，新增：{}，删除：{}，更新销量：{}，失败：{}",
+                saves.size(), deletes.size(), soldDeltas.size(), failedIds.size());
+        return failedIds;
+    }
+
+    private static <V> Map<Long, V> retain(Map<Long, V> map, Set<Long> ids) {
+        map.keySet().retainAll(ids);
+        return map;
+    }
+}
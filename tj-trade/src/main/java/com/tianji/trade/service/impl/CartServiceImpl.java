@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.tianji.api.client.course.CourseClient;
+import com.tianji.api.coalesce.CourseClientCoalescer;
 import com.tianji.api.dto.course.CourseFullInfoDTO;
 import com.tianji.api.dto.course.CourseSimpleInfoDTO;
 import com.tianji.common.exceptions.BadRequestException;
@@ -44,6 +45,7 @@ import static com.tianji.trade.constants.TradeErrorInfo.*;
 public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements ICartService {
 
     private final CourseClient courseClient;
+    private final CourseClientCoalescer courseClientCoalescer;
     private final TradeProperties tradeProperties;
 
     @Override
@@ -58,7 +60,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
         checkCartsFull(userId);
 
         // 3.根据id查询课程信息
-        CourseFullInfoDTO courseInfo = courseClient.getCourseInfoById(courseId, false, false);
+        CourseFullInfoDTO courseInfo = courseClientCoalescer.getCourseInfoById(courseId);
 
         // 4.判断是否为空
         if (courseInfo == null) {
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.tianji.api.cache.RoleCache;
 import com.tianji.api.client.user.UserClient;
+import com.tianji.api.coalesce.UserClientCoalescer;
 import com.tianji.api.dto.trade.OrderBasicDTO;
 import com.tianji.api.dto.user.UserDTO;
 import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
@@ -64,6 +65,7 @@ public class RefundApplyServiceImpl extends ServiceImpl<RefundApplyMapper, Refun
     private final OrderMapper orderMapper;
     private final IOrderDetailService detailService;
     private final UserClient userClient;
+    private final UserClientCoalescer userClientCoalescer;
     private final PayClient payClient;
     private final RoleCache roleCache;
     private final ThreadPoolTaskExecutor sendRefundRequestExecutor;
@@ -104,7 +106,7 @@ public class RefundApplyServiceImpl extends ServiceImpl<RefundApplyMapper, Refun
         }
 
         // 3.查询申请人信息
-        UserDTO userDTO = userClient.queryUserById(userId);
+        UserDTO userDTO = userClientCoalescer.queryUserById(userId);
         AssertUtils.isNotNull(userDTO, ErrorInfo.Msg.USER_NOT_EXISTS);
         boolean isStudent = UserType.STUDENT.equalsValue(userDTO.getType());
         if (!userId.equals(detail.getUserId()) && isStudent) {
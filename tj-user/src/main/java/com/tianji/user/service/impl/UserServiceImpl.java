@@ -25,10 +25,15 @@ import com.tianji.user.service.ICodeService;
 import com.tianji.user.service.IUserDetailService;
 import com.tianji.user.service.IUserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import static com.tianji.api.constants.UserCacheConstants.USER_CACHE_KEY_PREFIX;
+import static com.tianji.api.constants.UserCacheConstants.USER_CHANGE_CHANNEL;
 import static com.tianji.user.constants.UserConstants.*;
 import static com.tianji.user.constants.UserErrorInfo.Msg.*;
 
@@ -52,6 +57,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
     private AuthClient authClient;
     @Autowired
     private IUserDetailService detailService;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
 
     @Override
     public LoginUserDTO queryUserDetail(LoginFormDTO loginDTO, boolean isStaff) {
@@ -164,6 +171,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
             user.setCellPhone(cellPhone);
             // 1.3.修改
             updateById(user);
+            cleanUserCache(id);
         }
     }
 
@@ -209,6 +217,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         UserDetail detail = BeanUtils.toBean(userDTO, UserDetail.class);
         detail.setType(null);
         detailService.updateById(detail);
+        // 3.清理用户缓存
+        cleanUserCache(userDTO.getId());
     }
 
     @Override
@@ -240,6 +250,33 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         detail.setRoleId(null);
         detail.setType(null);
         detailService.updateById(detail);
+        // 3.清理用户缓存
+        cleanUserCache(detail.getId());
+    }
+
+    /**
+     * 删除用户信息的Redis缓存，并广播通知各服务清理本地缓存，在事务中调用时等事务提交后再执行
+     */
+    private void cleanUserCache(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        // 提交前清理的话，并发查询可能把旧数据重新写入缓存
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            doCleanUserCache(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                doCleanUserCache(userId);
+            }
+        });
+    }
+
+    private void doCleanUserCache(Long userId) {
+        stringRedisTemplate.delete(USER_CACHE_KEY_PREFIX + userId);
+        stringRedisTemplate.convertAndSend(USER_CHANGE_CHANNEL, userId.toString());
     }
 
     public User loginByPw(LoginFormDTO loginDTO) {